@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * ClassSaverBenchmark.java
+ * Throughput of saving vehicles to a csv file with ClassSaver, in rows per second.
+ *
+ * saveObjects prints every row it saves; that printing is measured, but its output is discarded.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassSaverBenchmark {
+    private static final int ROWS = 1024;
+
+    private static final MethodHandle SAVE_OBJECTS =
+            ProjectClasses.findStatic("ClassSaver", "saveObjects", MethodType.methodType(void.class, Object[].class));
+    private static final MethodHandle TO_CSV =
+            ProjectClasses.findStatic("ClassSaver", "convertObjectToCSVString", MethodType.methodType(String.class, Object.class));
+
+    private Object[] vehicles;
+    private int next;
+    private PrintStream console;
+
+    @Setup
+    public void setUp() {
+        vehicles = (Object[]) Array.newInstance(ProjectClasses.VEHICLE, ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            vehicles[i] = ProjectClasses.createRandomVehicle();
+        }
+        console = ProjectClasses.silenceSystemOut();
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+        new File("Vehicles.csv").delete();
+    }
+
+
+    /**
+     * Saves 1024 vehicles to Vehicles.csv (opening, writing the header, writing the rows and closing).
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void saveObjects() throws Throwable {
+        SAVE_OBJECTS.invokeExact((Object) vehicles);
+    }
+
+
+    /**
+     * Converts one vehicle to its csv line.
+     */
+    @Benchmark
+    public String convertObjectToCSVString() throws Throwable {
+        Object vehicle = vehicles[next++ & (ROWS - 1)];
+        return (String) (Object) TO_CSV.invokeExact(vehicle);
+    }
+}
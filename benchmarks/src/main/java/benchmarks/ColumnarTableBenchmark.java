@@ -0,0 +1,96 @@
+package benchmarks;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * ColumnarTableBenchmark.java
+ * Time to run Database.main's filters (Make = 'CHEVY' OR Make = 'TOYOTA', Weight > 2500) over a ColumnarTable of vehicles.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class ColumnarTableBenchmark {
+    private static final Class<?> SELECTION = ProjectClasses.load("ColumnarTable$Selection");
+
+    private static final MethodHandle FROM_CSV = ProjectClasses.findStatic("ColumnarTable", "fromCsv",
+            MethodType.methodType(ProjectClasses.load("ColumnarTable"), File.class, Class.class));
+    private static final MethodHandle SELECT_EQUALS = ProjectClasses.findVirtual("ColumnarTable", "selectEquals",
+            MethodType.methodType(SELECTION, String.class, Object[].class));
+    private static final MethodHandle SELECT_GREATER_THAN = ProjectClasses.findVirtual("ColumnarTable", "selectGreaterThan",
+            MethodType.methodType(SELECTION, String.class, double.class));
+    private static final MethodHandle SELECT_GREATER_THAN_WITHIN = ProjectClasses.findVirtual("ColumnarTable", "selectGreaterThan",
+            MethodType.methodType(SELECTION, SELECTION, String.class, double.class));
+
+    @Param({ "1000000" })
+    private int rows;
+
+    private Object table;
+    private Object[] chevyOrToyota;
+
+    @Setup
+    public void setUp() throws Throwable {
+        File file = ProjectClasses.vehicleCsv(rows);
+        table = (Object) FROM_CSV.invokeExact((Object) file, (Object) ProjectClasses.VEHICLE);
+
+        Class<?> make = ProjectClasses.load("Vehicle$Make");
+        chevyOrToyota = new Object[2];
+        for (Object constant : make.getEnumConstants()) {
+            String name = ((Enum<?>) constant).name();
+            if (name.equals("CHEVY")) {
+                chevyOrToyota[0] = constant;
+            } else if (name.equals("TOYOTA")) {
+                chevyOrToyota[1] = constant;
+            }
+        }
+    }
+
+
+    /**
+     * Make = 'CHEVY' OR Make = 'TOYOTA', from the per-constant bitmaps.
+     */
+    @Benchmark
+    public Object makeIsChevyOrToyota() throws Throwable {
+        return (Object) SELECT_EQUALS.invokeExact(table, (Object) "make", (Object) chevyOrToyota);
+    }
+
+
+    /**
+     * Weight > 2500, scanning the weight column.
+     */
+    @Benchmark
+    public Object weightOver2500() throws Throwable {
+        return (Object) SELECT_GREATER_THAN.invokeExact(table, (Object) "weight", 2500.0);
+    }
+
+
+    /**
+     * Both filters, the second one only checking the rows selected by the first.
+     */
+    @Benchmark
+    public Object chevyOrToyotaOver2500() throws Throwable {
+        Object selection = (Object) SELECT_EQUALS.invokeExact(table, (Object) "make", (Object) chevyOrToyota);
+        return (Object) SELECT_GREATER_THAN_WITHIN.invokeExact(table, selection, (Object) "weight", 2500.0);
+    }
+}
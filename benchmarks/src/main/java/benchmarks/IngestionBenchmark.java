@@ -0,0 +1,136 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * IngestionBenchmark.java
+ * End-to-end time to stream a csv file of vehicles into an in-memory Derby database,
+ * through ObjectLoader.stream and Database.insertAll, and through Database.loadPipelined
+ * (a reader, 2 parser threads and 2 writer threads).
+ *
+ * The table is emptied before each load, outside of the measured time.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class IngestionBenchmark {
+    private static final String URL = "jdbc:derby:memory:benchDB";
+
+    private static final MethodHandle NEW_DATABASE =
+            ProjectClasses.findConstructor("Database", MethodType.methodType(void.class, String.class));
+    private static final MethodHandle INSERT_ALL = ProjectClasses.findVirtual("Database", "insertAll",
+            MethodType.methodType(long.class, Stream.class, Class.class));
+    private static final MethodHandle LOAD_PIPELINED = ProjectClasses.findVirtual("Database", "loadPipelined",
+            MethodType.methodType(long.class, File.class, Class.class, int.class, int.class));
+    private static final MethodHandle CLOSE_CONNECTIONS =
+            ProjectClasses.findVirtual("Database", "closeConnections", MethodType.methodType(void.class));
+    private static final MethodHandle STREAM = ProjectClasses.findStatic("ObjectLoader", "stream",
+            MethodType.methodType(Stream.class, File.class, Class.class));
+    private static final MethodHandle CREATE_TABLE_QUERY = ProjectClasses.findStatic("QueryBuilder",
+            "buildCreateTableQuery", MethodType.methodType(String.class, String.class, String.class));
+    private static final MethodHandle COLUMN_INFO = ProjectClasses.findStatic("DatabaseUtils", "buildColumnInfo",
+            MethodType.methodType(String.class, Class.class));
+    private static final MethodHandle SHUTDOWN =
+            ProjectClasses.findStatic("SimpleDataSource", "shutdown", MethodType.methodType(void.class));
+
+    @Param({ "1000", "100000" })
+    private int rows;
+
+    private File file;
+    private Object database;
+    private Connection admin;
+
+    @Setup
+    public void setUp() throws Throwable {
+        file = ProjectClasses.vehicleCsv(rows);
+
+        File properties = new File("bench-derby.properties");
+        try (Writer writer = new FileWriter(properties)) {
+            writer.write("jdbc.url=" + URL + ";create=true\n");
+            writer.write("jdbc.driver=org.apache.derby.jdbc.EmbeddedDriver\n");
+            writer.write("pool.validationQuery=VALUES 1\n");
+        }
+        database = (Object) NEW_DATABASE.invokeExact((Object) properties.getPath());
+
+        admin = DriverManager.getConnection(URL);
+        try (Statement statement = admin.createStatement()) {
+            String columns = (String) (Object) COLUMN_INFO.invokeExact((Object) ProjectClasses.VEHICLE);
+            statement.executeUpdate((String) (Object) CREATE_TABLE_QUERY.invokeExact((Object) "Vehicles", (Object) columns));
+        }
+    }
+
+
+    @Setup(Level.Invocation)
+    public void emptyTable() throws SQLException {
+        try (Statement statement = admin.createStatement()) {
+            statement.executeUpdate("TRUNCATE TABLE Vehicles");
+        }
+    }
+
+
+    @TearDown
+    public void tearDown() throws Throwable {
+        admin.close();
+        CLOSE_CONNECTIONS.invokeExact(database);
+        SHUTDOWN.invokeExact();
+        try {
+            DriverManager.getConnection(URL + ";drop=true").close();
+        } catch (SQLException e) {
+            // Derby reports a dropped database with an exception
+        }
+    }
+
+
+    @Benchmark
+    public long csvToDerby() throws Throwable {
+        Object vehicles = (Object) STREAM.invokeExact((Object) file, (Object) ProjectClasses.VEHICLE);
+        try (Stream<?> stream = (Stream<?>) vehicles) {
+            long inserted = (long) INSERT_ALL.invokeExact(database, vehicles, (Object) ProjectClasses.VEHICLE);
+            if (inserted != rows) {
+                throw new IllegalStateException("Inserted " + inserted + " of " + rows + " rows");
+            }
+            return inserted;
+        }
+    }
+
+
+    @Benchmark
+    public long csvToDerbyPipelined() throws Throwable {
+        long inserted = (long) LOAD_PIPELINED.invokeExact(database, (Object) file, (Object) ProjectClasses.VEHICLE, 2, 2);
+        if (inserted != rows) {
+            throw new IllegalStateException("Inserted " + inserted + " of " + rows + " rows");
+        }
+        return inserted;
+    }
+}
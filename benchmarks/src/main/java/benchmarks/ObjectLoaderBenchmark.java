@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * ObjectLoaderBenchmark.java
+ * Time to load a csv file of vehicles with ObjectLoader, for files of 1K, 1M and 10M rows.
+ *
+ * The files are written once under bench-data and reused by later runs.
+ * The 10M row file is about 400 MB, and its vehicles need about 1 GB of heap.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms3g", "-Xmx3g" })
+public class ObjectLoaderBenchmark {
+    private static final MethodHandle LOAD_OBJECTS_FROM_FILE = ProjectClasses.findStatic("ObjectLoader",
+            "loadObjectsFromFile", MethodType.methodType(List.class, File.class, Class.class));
+    private static final MethodHandle LOAD_OBJECTS_PARALLEL = ProjectClasses.findStatic("ObjectLoader",
+            "loadObjectsParallel", MethodType.methodType(List.class, File.class, Class.class, boolean.class));
+
+    @Param({ "1000", "1000000", "10000000" })
+    private int rows;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = ProjectClasses.vehicleCsv(rows);
+    }
+
+
+    @Benchmark
+    public Object loadObjectsFromFile() throws Throwable {
+        return (Object) LOAD_OBJECTS_FROM_FILE.invokeExact((Object) file, (Object) ProjectClasses.VEHICLE);
+    }
+
+
+    /**
+     * The memory mapped parallel loader, for comparison.
+     */
+    @Benchmark
+    public Object loadObjectsParallel() throws Throwable {
+        return (Object) LOAD_OBJECTS_PARALLEL.invokeExact((Object) file, (Object) ProjectClasses.VEHICLE, true);
+    }
+}
@@ -0,0 +1,172 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+
+/**
+ * ProjectClasses.java
+ * Gives the benchmarks access to the project's classes.
+ *
+ * The project's classes are in the default package, which JMH benchmarks can't be in and
+ * named packages can't import, so the benchmarks call them through method handles.
+ * The handles are kept in static final fields, so the JIT calls them as directly as normal methods.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+final class ProjectClasses {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    static final Class<?> VEHICLE = load("Vehicle");
+
+    private static final MethodHandle CREATE_RANDOM_VEHICLE =
+            findStatic("VehicleFactory", "createRandomVehicle", MethodType.methodType(VEHICLE));
+    private static final MethodHandle TO_CSV =
+            findStatic("ClassSaver", "convertObjectToCSVString", MethodType.methodType(String.class, Object.class));
+    private static final MethodHandle CODEC_FOR_CLASS =
+            findStatic("ClassCodec", "forClass", MethodType.methodType(load("ClassCodec"), Class.class));
+    private static final MethodHandle CODEC_COLUMN_NAMES =
+            findVirtual("ClassCodec", "getColumnNames", MethodType.methodType(List.class));
+
+    private ProjectClasses() {
+    }
+
+
+    /**
+     * Loads a class of the project by name.
+     */
+    static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("The project class " + name + " is missing", e);
+        }
+    }
+
+
+    /**
+     * Finds a public static method of a project class, adapted to take and return Objects (primitives stay as they are).
+     */
+    static MethodHandle findStatic(String className, String methodName, MethodType type) {
+        try {
+            MethodHandle handle = LOOKUP.findStatic(load(className), methodName, type);
+            return handle.asFixedArity().asType(genericKeepingPrimitives(handle.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The project method " + className + "." + methodName + " is missing", e);
+        }
+    }
+
+
+    /**
+     * Finds a public instance method of a project class, adapted to take and return Objects (primitives stay as they are).
+     */
+    static MethodHandle findVirtual(String className, String methodName, MethodType type) {
+        try {
+            MethodHandle handle = LOOKUP.findVirtual(load(className), methodName, type);
+            return handle.asFixedArity().asType(genericKeepingPrimitives(handle.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The project method " + className + "." + methodName + " is missing", e);
+        }
+    }
+
+
+    /**
+     * Finds a public constructor of a project class, adapted to return an Object.
+     */
+    static MethodHandle findConstructor(String className, MethodType type) {
+        try {
+            MethodHandle handle = LOOKUP.findConstructor(load(className), type);
+            return handle.asFixedArity().asType(genericKeepingPrimitives(handle.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The project class " + className + " has no such constructor", e);
+        }
+    }
+
+
+    private static MethodType genericKeepingPrimitives(MethodType type) {
+        MethodType generic = type.changeReturnType(erase(type.returnType()));
+        for (int i = 0; i < type.parameterCount(); i++) {
+            generic = generic.changeParameterType(i, erase(type.parameterType(i)));
+        }
+        return generic;
+    }
+
+
+    private static Class<?> erase(Class<?> type) {
+        return type.isPrimitive() ? type : Object.class;
+    }
+
+
+    static Object createRandomVehicle() {
+        try {
+            return (Object) CREATE_RANDOM_VEHICLE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * Finds (or writes) a csv file of random vehicles in the format ClassSaver writes,
+     * under bench-data in the working directory. Files are kept between runs since the large ones take a while to write.
+     * @param rows The number of vehicles in the file.
+     * @return The file.
+     */
+    static File vehicleCsv(int rows) throws IOException {
+        File file = new File("bench-data", "Vehicles-" + rows + ".csv");
+        if (file.exists()) {
+            return file;
+        }
+
+        File directory = file.getParentFile();
+        directory.mkdirs();
+        File partial = File.createTempFile("Vehicles-" + rows, ".part", directory);
+        try (BufferedWriter writer = Files.newBufferedWriter(partial.toPath(), StandardCharsets.UTF_8)) {
+            Object codec = (Object) CODEC_FOR_CLASS.invokeExact((Object) VEHICLE);
+            List<?> columns = (List<?>) (Object) CODEC_COLUMN_NAMES.invokeExact(codec);
+            StringBuilder header = new StringBuilder();
+            for (Object column : columns) {
+                if (header.length() > 0) {
+                    header.append(',');
+                }
+                header.append(column);
+            }
+            writer.write(header.toString());
+            writer.write('\n');
+
+            for (int i = 0; i < rows; i++) {
+                writer.write((String) (Object) TO_CSV.invokeExact(createRandomVehicle()));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return file;
+    }
+
+
+    /**
+     * Replaces System.out with a stream that discards everything, for project methods that print each row.
+     * The printing is still done (and measured), only the console output is dropped.
+     * @return The original System.out, to put back afterwards.
+     */
+    static PrintStream silenceSystemOut() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * VehicleFactoryBenchmark.java
+ * Throughput of creating random vehicles with VehicleFactory, one at a time,
+ * and with VehicleGenerator, a million at a time on all cores.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleFactoryBenchmark {
+    private static final int GENERATED_ROWS = 1_000_000;
+
+    private static final MethodHandle NEW_GENERATOR =
+            ProjectClasses.findConstructor("VehicleGenerator", MethodType.methodType(void.class, long.class));
+    private static final MethodHandle GENERATOR_STREAM =
+            ProjectClasses.findVirtual("VehicleGenerator", "stream", MethodType.methodType(Stream.class, long.class));
+
+    @Benchmark
+    public Object createRandomVehicle() {
+        return ProjectClasses.createRandomVehicle();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(GENERATED_ROWS)
+    public long generateParallel() throws Throwable {
+        Object generator = (Object) NEW_GENERATOR.invokeExact(42L);
+        Stream<?> vehicles = (Stream<?>) (Object) GENERATOR_STREAM.invokeExact(generator, (long) GENERATED_ROWS);
+        return vehicles.parallel().filter(Objects::nonNull).count();
+    }
+}
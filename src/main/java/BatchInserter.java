@@ -0,0 +1,184 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+
+/**
+ * BatchInserter.java
+ * Inserts objects of a class into its table through a single prepared statement.
+ *
+ * Process:
+ * - Build one parameterized INSERT statement for the class (one '?' per field).
+ * - Bind each object's fields by type (through its ClassCodec) and add it to the JDBC batch.
+ * - Execute and commit the batch every time it reaches the batch size.
+ * - Flush whatever is left when the caller is done (flush), so the last batch is only committed on success.
+ * - Roll back rows that were never flushed and restore the connection's auto-commit mode on close.
+ *
+ * If inserting fails part way, the batches committed before the failure stay in the table;
+ * getRowsInserted tells how many rows they hold. With setCommitEachBatch(false) the batches are only executed,
+ * and commit inserts all of them at once, so a failure leaves none of them in the table.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class BatchInserter<T> implements AutoCloseable {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    // The metrics shape of each class's insert statement, normalized once
+    private static final ClassValue<StatementMetrics.Shape> SHAPES = new ClassValue<StatementMetrics.Shape>() {
+        @Override
+        protected StatementMetrics.Shape computeValue(Class<?> cls) {
+            return StatementMetrics.Shape.of(insertCommand(cls));
+        }
+    };
+
+    private final Connection conn;
+    private final PreparedStatement statement;
+    private final ClassCodec<T> codec;
+    private final int batchSize;
+    private final boolean previousAutoCommit;
+
+    private boolean commitEachBatch = true;
+    private int pending;
+    private long uncommitted;
+    private long rowsInserted;
+
+    /**
+     * Prepares the insert statement for the given class.
+     * @param conn The connection to insert with.
+     * @param cls The class of the objects being inserted.
+     * @param batchSize The number of rows sent to the database per batch.
+     * @throws SQLException If the statement could not be prepared.
+     */
+    public BatchInserter(Connection conn, Class<T> cls, int batchSize) throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        }
+
+        this.conn = conn;
+        this.batchSize = batchSize;
+        this.codec = ClassCodec.forClass(cls);
+
+        this.statement = conn.prepareStatement(insertCommand(cls));
+
+        // Commit once per batch instead of once per row
+        this.previousAutoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+    }
+
+
+    private static String insertCommand(Class<?> cls) {
+        return QueryBuilder.buildPreparedInsertQuery(DatabaseUtils.buildTableName(cls),
+                DatabaseUtils.buildColumnNames(cls), ClassCodec.forClass(cls).getFields().size());
+    }
+
+
+    /**
+     * @param cls A class.
+     * @return The shape its insert statement is recorded under in StatementMetrics.
+     */
+    static StatementMetrics.Shape shapeFor(Class<?> cls) {
+        return SHAPES.get(cls);
+    }
+
+
+    /**
+     * Sets whether each batch is committed as it is sent (the default), or all of them together by commit.
+     * @param commitEachBatch False to insert every row in one transaction.
+     * @return This inserter.
+     */
+    public BatchInserter<T> setCommitEachBatch(boolean commitEachBatch) {
+        this.commitEachBatch = commitEachBatch;
+        return this;
+    }
+
+
+    /**
+     * Adds an object to the current batch, sending the batch if it is full.
+     * @param object The object to insert.
+     * @throws SQLException If the batch could not be executed.
+     */
+    public void add(T object) throws SQLException {
+        codec.bind(statement, object);
+        statement.addBatch();
+        pending++;
+
+        if (pending >= batchSize) {
+            flush();
+        }
+    }
+
+
+    /**
+     * Executes the rows that are waiting in the batch, and commits them unless every row waits for commit.
+     * @throws SQLException If the batch could not be executed (the uncommitted rows are rolled back).
+     */
+    public void flush() throws SQLException {
+        if (pending == 0) {
+            return;
+        }
+
+        try {
+            statement.executeBatch();
+            uncommitted += pending;
+            if (commitEachBatch) {
+                conn.commit();
+                rowsInserted += uncommitted;
+                uncommitted = 0;
+            }
+        } catch (SQLException e) {
+            uncommitted = 0;
+            conn.rollback();
+            throw e;
+        } finally {
+            pending = 0;
+        }
+    }
+
+
+    /**
+     * Flushes the rows that are waiting in the batch and commits every row executed since the last commit.
+     * @throws SQLException If the rows could not be inserted (they are rolled back).
+     */
+    public void commit() throws SQLException {
+        flush();
+        try {
+            conn.commit();
+            rowsInserted += uncommitted;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            uncommitted = 0;
+        }
+    }
+
+
+    /**
+     * @return The number of rows inserted and committed so far.
+     */
+    public long getRowsInserted() {
+        return rowsInserted;
+    }
+
+
+    /**
+     * Rolls back the rows that weren't flushed or committed (e.g. when the inserts are abandoned because of
+     * an error), closes the statement and restores the auto-commit mode. Call flush (or commit) first to keep them.
+     * @throws SQLException If the rows could not be rolled back.
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (pending > 0 || uncommitted > 0) {
+                pending = 0;
+                uncommitted = 0;
+                statement.clearBatch();
+                conn.rollback();
+            }
+        } finally {
+            statement.close();
+            conn.setAutoCommit(previousAutoCommit);
+        }
+    }
+}
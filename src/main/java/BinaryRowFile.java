@@ -0,0 +1,500 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * BinaryRowFile.java
+ * Saves objects of a class to a compact binary file and loads them back, as a faster and smaller
+ * alternative to CSV. ClassSaver and ObjectLoader use it for files ending in ".bin".
+ *
+ * File layout (every number is little-endian):
+ * - Magic "ROWS", a format version byte, and the length of the schema in bytes (int).
+ * - The schema: the number of fields (int), then for each field in column order a type byte and its name.
+ *   Enum fields also list their constant names, so a file still loads if the constants are reordered.
+ * - Row blocks until the end of the file, each with its row count (int), its length in bytes (int) and its rows.
+ * Names are an unsigned short length followed by UTF-8 bytes.
+ *
+ * Values in a row, in column order:
+ * - int: 4 bytes, double: 8 bytes, boolean: 1 byte.
+ * - Enum: its ordinal as 1 byte, or 0xFF for null.
+ * - String: its UTF-8 length as an int (-1 for null), then the bytes.
+ * - Integer, Double, Boolean: a presence byte (0 for null), then the value if present.
+ *
+ * Rows are written through a direct ByteBuffer and a FileChannel, and read through memory mapped windows
+ * of whole blocks, so values are decoded straight from the file without any text parsing.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class BinaryRowFile {
+    /**
+     * The file extension that selects this format in ClassSaver and ObjectLoader.
+     */
+    public static final String EXTENSION = ".bin";
+
+    private static final byte[] MAGIC = { 'R', 'O', 'W', 'S' };
+    private static final byte VERSION = 1;
+    private static final int PREAMBLE_SIZE = MAGIC.length + 1 + 4;
+    private static final int BLOCK_HEADER_SIZE = 8;
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    // A mapped buffer is indexed by int, so a window has to stay well under 2GB
+    private static final long MAX_WINDOW_SIZE = 256L * 1024 * 1024;
+    private static final int NULL_ORDINAL = 0xFF;
+
+    // Type bytes stored in the schema
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_DOUBLE = 2;
+    private static final byte TYPE_BOOLEAN = 3;
+    private static final byte TYPE_STRING = 4;
+    private static final byte TYPE_ENUM = 5;
+    private static final byte TYPE_BOXED_INT = 6;
+    private static final byte TYPE_BOXED_DOUBLE = 7;
+    private static final byte TYPE_BOXED_BOOLEAN = 8;
+
+
+    /**
+     * Checks whether a file name selects the binary format.
+     * @param fileName The file name or path.
+     * @return Whether it ends in ".bin" (ignoring case).
+     */
+    public static boolean isBinaryFile(String fileName) {
+        return fileName.toLowerCase().endsWith(EXTENSION);
+    }
+
+
+    /**
+     * Saves objects to a binary file, replacing it if it exists.
+     * @param path The file.
+     * @param objects The objects to save.
+     * @param cls The class of the objects.
+     * @return The number of objects saved.
+     * @throws IOException If the file could not be written.
+     */
+    public static <T> long write(Path path, Iterable<? extends T> objects, Class<T> cls) throws IOException {
+        try (RowWriter<T> writer = new RowWriter<>(path, cls)) {
+            for (T object : objects) {
+                writer.add(object);
+            }
+            return writer.getRowCount();
+        }
+    }
+
+
+    /**
+     * Loads every object from a binary file.
+     * @param path The file.
+     * @param cls The class to load the rows into. Its fields must match the file's schema by name and type.
+     * @return The loaded objects, in file order.
+     * @throws IOException If the file could not be read, isn't a binary row file, or doesn't match the class.
+     */
+    public static <T> List<T> read(Path path, Class<T> cls) throws IOException {
+        ClassCodec<T> codec = ClassCodec.forClass(cls);
+        List<T> objects = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer preamble = readFully(channel, 0, PREAMBLE_SIZE);
+            for (byte b : MAGIC) {
+                if (preamble.get() != b) {
+                    throw new IOException(path + " is not a binary row file");
+                }
+            }
+            byte version = preamble.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary row file version " + version + " in " + path);
+            }
+            int schemaSize = preamble.getInt();
+            Object[][] enumConstants = readSchema(readFully(channel, PREAMBLE_SIZE, schemaSize), codec, path);
+            ClassCodec.FieldCodec[] fields = codec.getFields().toArray(new ClassCodec.FieldCodec[0]);
+
+            // Map windows of whole blocks, and decode the rows straight from them
+            long position = PREAMBLE_SIZE + (long) schemaSize;
+            while (position < size) {
+                long windowSize = Math.min(size - position, MAX_WINDOW_SIZE);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                window.order(ByteOrder.LITTLE_ENDIAN);
+
+                int offset = 0;
+                while (windowSize - offset >= BLOCK_HEADER_SIZE) {
+                    int rows = window.getInt(offset);
+                    int length = window.getInt(offset + 4);
+                    if (rows < 0 || length < 0) {
+                        throw new IOException("Corrupt block at offset " + (position + offset) + " in " + path);
+                    }
+                    if (offset + BLOCK_HEADER_SIZE + (long) length > windowSize) {
+                        break;
+                    }
+                    window.position(offset + BLOCK_HEADER_SIZE);
+                    try {
+                        for (int i = 0; i < rows; i++) {
+                            objects.add(readRow(window, codec, fields, enumConstants));
+                        }
+                    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                        throw new IOException("Corrupt block at offset " + (position + offset) + " in " + path, e);
+                    }
+                    if (window.position() != offset + BLOCK_HEADER_SIZE + length) {
+                        throw new IOException("Corrupt block at offset " + (position + offset) + " in " + path);
+                    }
+                    offset += BLOCK_HEADER_SIZE + length;
+                }
+                if (offset == 0) {
+                    throw new IOException("Truncated block at offset " + position + " in " + path);
+                }
+                position += offset;
+            }
+        }
+        return objects;
+    }
+
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+
+    /**
+     * Checks the file's schema against the class, and maps the file's enum ordinals to the class's constants.
+     * @return For each enum field, its constants indexed by their ordinal in the file.
+     */
+    private static Object[][] readSchema(ByteBuffer schema, ClassCodec<?> codec, Path path) throws IOException {
+        List<ClassCodec.FieldCodec> fields = codec.getFields();
+        int fieldCount = schema.getInt();
+        if (fieldCount != fields.size()) {
+            throw new IOException(path + " has " + fieldCount + " fields, but " + codec.getType().getSimpleName()
+                    + " has " + fields.size());
+        }
+
+        Object[][] enumConstants = new Object[fieldCount][];
+        for (int i = 0; i < fieldCount; i++) {
+            ClassCodec.FieldCodec field = fields.get(i);
+            byte type = schema.get();
+            String name = readName(schema);
+            if (type != typeOf(field) || !name.equals(field.getName())) {
+                throw new IOException("Field " + (i + 1) + " of " + path + " is " + name + " (type " + type
+                        + "), but " + codec.getType().getSimpleName() + " has " + field.getName());
+            }
+            if (type == TYPE_ENUM) {
+                Map<String, Object> byName = new HashMap<>();
+                for (Object constant : field.getType().getEnumConstants()) {
+                    byName.put(((Enum<?>) constant).name(), constant);
+                }
+                Object[] byOrdinal = new Object[Short.toUnsignedInt(schema.getShort())];
+                for (int ordinal = 0; ordinal < byOrdinal.length; ordinal++) {
+                    String constantName = readName(schema);
+                    Object constant = byName.get(constantName);
+                    if (constant == null) {
+                        throw new IOException("Unknown " + field.getType().getSimpleName() + " in " + path + ": " + constantName);
+                    }
+                    byOrdinal[ordinal] = constant;
+                }
+                enumConstants[i] = byOrdinal;
+            }
+        }
+        return enumConstants;
+    }
+
+
+    private static <T> T readRow(ByteBuffer in, ClassCodec<T> codec, ClassCodec.FieldCodec[] fields,
+            Object[][] enumConstants) throws IOException {
+        T object = codec.newInstance();
+        for (int i = 0; i < fields.length; i++) {
+            ClassCodec.FieldCodec field = fields[i];
+            switch (field.getKind()) {
+                case INT:
+                    field.setInt(object, in.getInt());
+                    break;
+                case DOUBLE:
+                    field.setDouble(object, in.getDouble());
+                    break;
+                case BOOLEAN:
+                    field.setBoolean(object, in.get() != 0);
+                    break;
+                case STRING:
+                    field.set(object, readString(in));
+                    break;
+                case ENUM:
+                    int ordinal = Byte.toUnsignedInt(in.get());
+                    if (ordinal != NULL_ORDINAL) {
+                        if (ordinal >= enumConstants[i].length) {
+                            throw new IOException("Unknown " + field.getType().getSimpleName() + " ordinal " + ordinal);
+                        }
+                        field.set(object, enumConstants[i][ordinal]);
+                    }
+                    break;
+                default:
+                    if (in.get() != 0) {
+                        field.set(object, readBoxed(in, field.getType()));
+                    }
+                    break;
+            }
+        }
+        return object;
+    }
+
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    private static Object readBoxed(ByteBuffer in, Class<?> type) {
+        if (type == Integer.class) {
+            return in.getInt();
+        } else if (type == Double.class) {
+            return in.getDouble();
+        } else {
+            return in.get() != 0;
+        }
+    }
+
+
+    private static String readName(ByteBuffer in) {
+        byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    private static byte typeOf(ClassCodec.FieldCodec field) {
+        switch (field.getKind()) {
+            case INT:
+                return TYPE_INT;
+            case DOUBLE:
+                return TYPE_DOUBLE;
+            case BOOLEAN:
+                return TYPE_BOOLEAN;
+            case STRING:
+                return TYPE_STRING;
+            case ENUM:
+                return TYPE_ENUM;
+            default:
+                if (field.getType() == Integer.class) {
+                    return TYPE_BOXED_INT;
+                } else if (field.getType() == Double.class) {
+                    return TYPE_BOXED_DOUBLE;
+                }
+                return TYPE_BOXED_BOOLEAN;
+        }
+    }
+
+
+    /**
+     * Writes objects to a binary file one at a time, sending a block to the file each time the buffer fills.
+     * Close it (e.g. with try-with-resources) to write the last block.
+     */
+    public static class RowWriter<T> implements Closeable {
+        private final FileChannel channel;
+        private final ClassCodec.FieldCodec[] fields;
+        private ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private int blockRows;
+        private long rowCount;
+
+        /**
+         * Creates (or replaces) the file and writes its schema.
+         * @param path The file.
+         * @param cls The class of the objects.
+         * @throws IOException If the file could not be written.
+         */
+        public RowWriter(Path path, Class<T> cls) throws IOException {
+            this.fields = ClassCodec.forClass(cls).getFields().toArray(new ClassCodec.FieldCodec[0]);
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                writeSchema();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            block.position(BLOCK_HEADER_SIZE);
+        }
+
+
+        private void writeSchema() throws IOException {
+            ByteBuffer schema = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            schema.putInt(fields.length);
+            for (ClassCodec.FieldCodec field : fields) {
+                schema.put(typeOf(field));
+                putName(schema, field.getName());
+                if (field.getKind() == ClassCodec.Kind.ENUM) {
+                    Object[] constants = field.getType().getEnumConstants();
+                    if (constants.length > NULL_ORDINAL) {
+                        throw new IllegalArgumentException(field.getType().getSimpleName() + " has more than "
+                                + NULL_ORDINAL + " constants, so its ordinals don't fit in a byte");
+                    }
+                    schema.putShort((short) constants.length);
+                    for (Object constant : constants) {
+                        putName(schema, ((Enum<?>) constant).name());
+                    }
+                }
+            }
+            schema.flip();
+
+            ByteBuffer preamble = ByteBuffer.allocate(PREAMBLE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            preamble.put(MAGIC).put(VERSION).putInt(schema.remaining()).flip();
+            writeFully(preamble);
+            writeFully(schema);
+        }
+
+
+        private static void putName(ByteBuffer out, String name) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            out.putShort((short) bytes.length).put(bytes);
+        }
+
+
+        /**
+         * Adds one object to the current block, writing the block first if the object doesn't fit.
+         * @param object The object.
+         * @throws IOException If a block could not be written.
+         */
+        public void add(T object) throws IOException {
+            int rowStart = block.position();
+            try {
+                putRow(object);
+            } catch (BufferOverflowException e) {
+                block.position(rowStart);
+                flushBlock();
+                if (block.capacity() - BLOCK_HEADER_SIZE < rowSize(object)) {
+                    // A row larger than a block gets a block of its own size
+                    block = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE + rowSize(object)).order(ByteOrder.LITTLE_ENDIAN);
+                    block.position(BLOCK_HEADER_SIZE);
+                }
+                putRow(object);
+            }
+            blockRows++;
+            rowCount++;
+        }
+
+
+        private void putRow(Object object) {
+            for (ClassCodec.FieldCodec field : fields) {
+                switch (field.getKind()) {
+                    case INT:
+                        block.putInt(field.getInt(object));
+                        break;
+                    case DOUBLE:
+                        block.putDouble(field.getDouble(object));
+                        break;
+                    case BOOLEAN:
+                        block.put((byte) (field.getBoolean(object) ? 1 : 0));
+                        break;
+                    case STRING:
+                        String text = (String) field.get(object);
+                        if (text == null) {
+                            block.putInt(-1);
+                        } else {
+                            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                            block.putInt(bytes.length).put(bytes);
+                        }
+                        break;
+                    case ENUM:
+                        Object constant = field.get(object);
+                        block.put((byte) (constant == null ? NULL_ORDINAL : ((Enum<?>) constant).ordinal()));
+                        break;
+                    default:
+                        Object value = field.get(object);
+                        if (value == null) {
+                            block.put((byte) 0);
+                        } else if (value instanceof Integer) {
+                            block.put((byte) 1).putInt((Integer) value);
+                        } else if (value instanceof Double) {
+                            block.put((byte) 1).putDouble((Double) value);
+                        } else {
+                            block.put((byte) 1).put((byte) ((Boolean) value ? 1 : 0));
+                        }
+                        break;
+                }
+            }
+        }
+
+
+        private int rowSize(Object object) {
+            int size = 0;
+            for (ClassCodec.FieldCodec field : fields) {
+                switch (field.getKind()) {
+                    case INT:
+                        size += 4;
+                        break;
+                    case STRING:
+                        String text = (String) field.get(object);
+                        size += 4 + (text == null ? 0 : text.getBytes(StandardCharsets.UTF_8).length);
+                        break;
+                    default:
+                        size += 9;
+                        break;
+                }
+            }
+            return size;
+        }
+
+
+        /**
+         * Writes the current block, if it has any rows.
+         */
+        private void flushBlock() throws IOException {
+            if (blockRows == 0) {
+                return;
+            }
+            block.putInt(0, blockRows);
+            block.putInt(4, block.position() - BLOCK_HEADER_SIZE);
+            block.flip();
+            writeFully(block);
+            block.clear();
+            block.position(BLOCK_HEADER_SIZE);
+            blockRows = 0;
+        }
+
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+
+        /**
+         * @return The number of objects added so far.
+         */
+        public long getRowCount() {
+            return rowCount;
+        }
+
+
+        /**
+         * Writes the last block and closes the file.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBlock();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,380 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+
+/**
+ * BlockCompressedCsv.java
+ * Saves objects to a gzip compressed CSV file made of independently compressed blocks, and loads them back,
+ * compressing and decompressing the blocks on several threads. ClassSaver and ObjectLoader use it for files
+ * ending in ".csv.gz".
+ *
+ * File layout:
+ * - Each block is a complete gzip member holding about 1MB of whole CSV lines (the first block starts with
+ *   the header line), so the file as a whole is an ordinary gzip file that gunzip or GZIPInputStream can read.
+ * - Each member's header has an extra field ("RB") with the member's size and its uncompressed size.
+ *   Hopping from header to header indexes the blocks without decompressing them, so they can be handed to
+ *   different threads. A gzip file without the field (e.g. written by gzip) is read on one thread instead.
+ *
+ * Process:
+ * - Saving: fill a block with lines, compress it on the common fork-join pool while the next block is filled,
+ *   and write the compressed blocks to the file in order. Only a few blocks are in flight at once.
+ * - Loading: index the blocks, then decompress each one and convert its lines into objects on the
+ *   common fork-join pool, decoding the values straight from the decompressed bytes.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class BlockCompressedCsv {
+    /**
+     * The file extension that selects this format in ClassSaver and ObjectLoader.
+     */
+    public static final String EXTENSION = ".csv.gz";
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    // ID1 ID2 CM FLG MTIME(4) XFL OS XLEN(2), then the "RB" subfield: SI1 SI2 LEN(2) memberSize(4) dataSize(4)
+    private static final int HEADER_SIZE = 24;
+    private static final int TRAILER_SIZE = 8;
+    private static final int FLAG_EXTRA = 4;
+    private static final int EXTRA_LENGTH = 12;
+
+
+    /**
+     * Checks whether a file name selects the block compressed format.
+     * @param fileName The file name or path.
+     * @return Whether it ends in ".csv.gz" (ignoring case).
+     */
+    public static boolean isCompressedFile(String fileName) {
+        return fileName.toLowerCase().endsWith(EXTENSION);
+    }
+
+
+    /**
+     * Saves objects to a block compressed CSV file, replacing it if it exists.
+     * @param path The file.
+     * @param objects The objects to save.
+     * @param cls The class of the objects.
+     * @return The number of objects saved.
+     * @throws IOException If the file could not be written.
+     */
+    public static <T> long write(Path path, Iterable<? extends T> objects, Class<T> cls) throws IOException {
+        try (RowWriter<T> writer = new RowWriter<>(path, cls)) {
+            for (T object : objects) {
+                writer.add(object);
+            }
+            return writer.getRowCount();
+        }
+    }
+
+
+    /**
+     * Loads every object from a gzip compressed CSV file, decompressing and parsing its blocks on several threads.
+     * @param path The file.
+     * @param cls The class of the objects to load.
+     * @return The loaded objects, in file order.
+     * @throws IOException If the file could not be read or a block is corrupt.
+     */
+    public static <T> List<T> read(Path path, Class<T> cls) throws IOException {
+        CsvRowDecoder<T> decoder = CsvRowDecoder.forClass(cls);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<long[]> blocks = indexBlocks(channel);
+            if (blocks == null) {
+                return readSequentially(path, decoder);
+            }
+
+            List<ForkJoinTask<List<T>>> tasks = new ArrayList<>();
+            for (int i = 0; i < blocks.size(); i++) {
+                long[] block = blocks.get(i);
+                boolean skipHeader = i == 0;
+                tasks.add(ForkJoinPool.commonPool().submit(() -> parseBlock(channel, block[0], block[1], skipHeader, decoder)));
+            }
+
+            // join() rethrows anything a block failed with
+            List<T> objects = new ArrayList<>();
+            for (ForkJoinTask<List<T>> task : tasks) {
+                objects.addAll(task.join());
+            }
+            return objects;
+        }
+    }
+
+
+    /**
+     * Finds the blocks of a file from their headers.
+     * @return The offset and member size of each block, or null if a member has no block size
+     *         (a gzip file written by something else).
+     */
+    private static List<long[]> indexBlocks(FileChannel channel) throws IOException {
+        List<long[]> blocks = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long size = channel.size();
+        long position = 0;
+        while (position < size) {
+            header.clear();
+            while (header.hasRemaining() && channel.read(header, position + header.position()) >= 0) {
+                // Keep reading until the header is full or the file ends
+            }
+            if (header.hasRemaining() || (header.get(0) & 0xFF) != 0x1f || (header.get(1) & 0xFF) != 0x8b) {
+                throw new IOException("Not a gzip file, or a block header is corrupt at offset " + position);
+            }
+            if ((header.get(3) & FLAG_EXTRA) == 0 || header.getShort(10) != EXTRA_LENGTH
+                    || header.get(12) != 'R' || header.get(13) != 'B') {
+                return null;
+            }
+            long memberSize = Integer.toUnsignedLong(header.getInt(16));
+            if (memberSize < HEADER_SIZE + TRAILER_SIZE || position + memberSize > size) {
+                throw new IOException("Corrupt block size at offset " + position);
+            }
+            blocks.add(new long[] { position, memberSize });
+            position += memberSize;
+        }
+        return blocks;
+    }
+
+
+    /**
+     * Decompresses one block and converts each of its lines into an object.
+     */
+    private static <T> List<T> parseBlock(FileChannel channel, long offset, long memberSize, boolean skipHeader,
+            CsvRowDecoder<T> decoder) throws IOException {
+        ByteBuffer member = ByteBuffer.allocate((int) memberSize).order(ByteOrder.LITTLE_ENDIAN);
+        while (member.hasRemaining()) {
+            if (channel.read(member, offset + member.position()) < 0) {
+                throw new IOException("Unexpected end of file in the block at offset " + offset);
+            }
+        }
+
+        int dataSize = member.getInt(20);
+        int compressedSize = (int) memberSize - HEADER_SIZE - TRAILER_SIZE;
+        byte[] data = new byte[dataSize];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(member.array(), HEADER_SIZE, compressedSize);
+            int length = 0;
+            while (length < dataSize && !inflater.finished()) {
+                int inflated = inflater.inflate(data, length, dataSize - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            if (length != dataSize || (int) crc.getValue() != member.getInt(HEADER_SIZE + compressedSize)) {
+                throw new IOException("Corrupt block at offset " + offset);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block at offset " + offset, e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer lines = ByteBuffer.wrap(data);
+        List<T> objects = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i <= dataSize; i++) {
+            if (i < dataSize && data[i] != '\n') {
+                continue;
+            }
+            int lineEnd = i;
+            if (lineEnd > lineStart && data[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (skipHeader) {
+                skipHeader = false;
+            } else if (lineEnd > lineStart) {
+                objects.add(decoder.decode(lines, lineStart, lineEnd));
+            }
+            lineStart = i + 1;
+        }
+        return objects;
+    }
+
+
+    /**
+     * Reads a gzip file that has no block index on one thread.
+     */
+    private static <T> List<T> readSequentially(Path path, CsvRowDecoder<T> decoder) throws IOException {
+        List<T> objects = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path), 64 * 1024), 64 * 1024)) {
+            byte[] line = new byte[256];
+            ByteBuffer wrapped = ByteBuffer.wrap(line);
+            int length = 0;
+            boolean header = true;
+            int b;
+            while (true) {
+                b = in.read();
+                if (b == '\n' || b == -1) {
+                    int end = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+                    if (header) {
+                        header = false;
+                    } else if (end > 0) {
+                        objects.add(decoder.decode(wrapped, 0, end));
+                    }
+                    length = 0;
+                    if (b == -1) {
+                        break;
+                    }
+                    continue;
+                }
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                    wrapped = ByteBuffer.wrap(line);
+                }
+                line[length++] = (byte) b;
+            }
+        }
+        return objects;
+    }
+
+
+    /**
+     * Compresses a block of lines into a complete gzip member.
+     */
+    private static ByteBuffer compressBlock(byte[] data, int length) {
+        // The fastest level compresses CSV rows nearly as well as the default (about 2.4x against 2.7x for vehicles),
+        // in well under half the time
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            // Deflate never grows data by more than a few bytes per 16KB, plus a little overhead
+            byte[] compressed = new byte[HEADER_SIZE + length + length / 1000 + 64 + TRAILER_SIZE];
+            int compressedSize = 0;
+            while (!deflater.finished()) {
+                if (HEADER_SIZE + compressedSize == compressed.length - TRAILER_SIZE) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                compressedSize += deflater.deflate(compressed, HEADER_SIZE + compressedSize,
+                        compressed.length - TRAILER_SIZE - HEADER_SIZE - compressedSize);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            int memberSize = HEADER_SIZE + compressedSize + TRAILER_SIZE;
+            ByteBuffer member = ByteBuffer.wrap(compressed, 0, memberSize).order(ByteOrder.LITTLE_ENDIAN);
+            member.put((byte) 0x1f).put((byte) 0x8b).put((byte) 8).put((byte) FLAG_EXTRA)
+                    .putInt(0).put((byte) 0).put((byte) 0xff).putShort((short) EXTRA_LENGTH)
+                    .put((byte) 'R').put((byte) 'B').putShort((short) 8).putInt(memberSize).putInt(length);
+            member.position(HEADER_SIZE + compressedSize);
+            member.putInt((int) crc.getValue()).putInt(length);
+            member.flip();
+            return member;
+        } finally {
+            deflater.end();
+        }
+    }
+
+
+    /**
+     * Writes objects to a block compressed CSV file one at a time, compressing each full block on the
+     * common fork-join pool while the next one is filled. Close it (e.g. with try-with-resources)
+     * to write the last block.
+     */
+    public static class RowWriter<T> implements Closeable {
+        private final FileChannel channel;
+        private final ClassCodec<T> codec;
+        private final int maxInFlight = ForkJoinPool.getCommonPoolParallelism() * 2 + 1;
+        private final ArrayDeque<ForkJoinTask<ByteBuffer>> inFlight = new ArrayDeque<>();
+        private final StringBuilder block = new StringBuilder(BLOCK_SIZE + 1024);
+        private long rowCount;
+
+        /**
+         * Creates (or replaces) the file, and starts the first block with the header line.
+         * @param path The file.
+         * @param cls The class of the objects.
+         * @throws IOException If the file could not be created.
+         */
+        public RowWriter(Path path, Class<T> cls) throws IOException {
+            this.codec = ClassCodec.forClass(cls);
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            block.append(String.join(",", codec.getColumnNames())).append('\n');
+        }
+
+
+        /**
+         * Adds one object as a line, sending the block off to be compressed once it is full.
+         * @param object The object.
+         * @throws IOException If a compressed block could not be written.
+         */
+        public void add(T object) throws IOException {
+            codec.appendCsv(object, block);
+            block.append('\n');
+            rowCount++;
+            if (block.length() >= BLOCK_SIZE) {
+                submitBlock();
+            }
+        }
+
+
+        private void submitBlock() throws IOException {
+            if (block.length() == 0) {
+                return;
+            }
+            byte[] data = block.toString().getBytes(StandardCharsets.UTF_8);
+            block.setLength(0);
+            inFlight.add(ForkJoinPool.commonPool().submit(() -> compressBlock(data, data.length)));
+            while (inFlight.size() >= maxInFlight) {
+                writeOldest();
+            }
+        }
+
+
+        /**
+         * Waits for the oldest block to be compressed and writes it, so blocks are written in order.
+         */
+        private void writeOldest() throws IOException {
+            ByteBuffer member = inFlight.poll().join();
+            while (member.hasRemaining()) {
+                channel.write(member);
+            }
+        }
+
+
+        /**
+         * @return The number of objects added so far.
+         */
+        public long getRowCount() {
+            return rowCount;
+        }
+
+
+        /**
+         * Compresses and writes the last block, waits for the others, and closes the file.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                submitBlock();
+                while (!inFlight.isEmpty()) {
+                    writeOldest();
+                }
+            } finally {
+                for (ForkJoinTask<ByteBuffer> task : inFlight) {
+                    task.cancel(false);
+                }
+                channel.close();
+            }
+        }
+    }
+}
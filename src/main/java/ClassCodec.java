@@ -0,0 +1,440 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * ClassCodec.java
+ * Reads and writes the fields of a class through accessors that are built once and cached.
+ * Shared by ClassSaver (writing CSV), ObjectLoader (reading CSV) and DatabaseUtils/BatchInserter (building
+ * columns and binding statement parameters), so none of them use reflection per object.
+ *
+ * Functionality:
+ * - Fixes the column order of the class, from its FieldOrder annotation if it has one.
+ * - Builds a MethodHandle getter and setter for each field, typed so primitives are never boxed.
+ * - Writes an object as a CSV line.
+ * - Binds an object's fields to the parameters of a prepared statement.
+ * - Creates new instances through the no-argument constructor.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class ClassCodec<T> {
+    private static final ClassValue<ClassCodec<?>> CODECS = new ClassValue<ClassCodec<?>>() {
+        @Override
+        protected ClassCodec<?> computeValue(Class<?> cls) {
+            return new ClassCodec<>(cls);
+        }
+    };
+
+    /**
+     * The kinds of field a codec can read and write.
+     */
+    public enum Kind { INT, DOUBLE, BOOLEAN, STRING, ENUM, BOXED }
+
+    private final Class<T> cls;
+    private final List<FieldCodec> fields;
+    private final MethodHandle constructor;
+    private CsvRowDecoder<T> decoder;
+
+    /**
+     * Gets the codec for a class, building it the first time the class is used.
+     * @param cls The class.
+     * @return The codec.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ClassCodec<T> forClass(Class<T> cls) {
+        return (ClassCodec<T>) CODECS.get(cls);
+    }
+
+
+    private ClassCodec(Class<T> cls) {
+        this.cls = cls;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        List<FieldCodec> codecs = new ArrayList<>();
+        for (Field field : orderedFields(cls)) {
+            codecs.add(new FieldCodec(field, lookup));
+        }
+        this.fields = Collections.unmodifiableList(codecs);
+
+        MethodHandle created;
+        try {
+            Constructor<T> noArgs = cls.getDeclaredConstructor();
+            noArgs.setAccessible(true);
+            created = lookup.unreflectConstructor(noArgs).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            // Classes without one can still be saved and inserted, just not loaded
+            created = null;
+        }
+        this.constructor = created;
+    }
+
+
+    /**
+     * Finds the instance fields of a class in column order.
+     * @throws IllegalArgumentException If the FieldOrder annotation doesn't list every instance field exactly once.
+     */
+    private static List<Field> orderedFields(Class<?> cls) {
+        Map<String, Field> byName = new HashMap<>();
+        List<Field> declared = new ArrayList<>();
+        for (Field field : cls.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                byName.put(field.getName(), field);
+                declared.add(field);
+            }
+        }
+
+        FieldOrder order = cls.getAnnotation(FieldOrder.class);
+        if (order == null) {
+            return declared;
+        }
+
+        List<Field> ordered = new ArrayList<>();
+        for (String name : order.value()) {
+            Field field = byName.remove(name);
+            if (field == null) {
+                throw new IllegalArgumentException("FieldOrder on " + cls.getSimpleName()
+                        + " names an unknown or repeated field: " + name);
+            }
+            ordered.add(field);
+        }
+        if (!byName.isEmpty()) {
+            throw new IllegalArgumentException("FieldOrder on " + cls.getSimpleName()
+                    + " is missing fields: " + byName.keySet());
+        }
+        return ordered;
+    }
+
+
+    /**
+     * @return The class this codec reads and writes.
+     */
+    public Class<T> getType() {
+        return cls;
+    }
+
+
+    /**
+     * @return The fields, in column order.
+     */
+    public List<FieldCodec> getFields() {
+        return fields;
+    }
+
+
+    /**
+     * @return The field names, in column order.
+     */
+    public List<String> getColumnNames() {
+        List<String> names = new ArrayList<>();
+        for (FieldCodec field : fields) {
+            names.add(field.getName());
+        }
+        return names;
+    }
+
+
+    /**
+     * @return The decoder that creates objects of this class from CSV lines.
+     */
+    public synchronized CsvRowDecoder<T> getDecoder() {
+        if (decoder == null) {
+            decoder = new CsvRowDecoder<>(this);
+        }
+        return decoder;
+    }
+
+
+    /**
+     * Creates an instance with the no-argument constructor.
+     * @return The new object.
+     * @throws UnsupportedOperationException If the class has no no-argument constructor.
+     */
+    @SuppressWarnings("unchecked")
+    public T newInstance() {
+        if (constructor == null) {
+            throw new UnsupportedOperationException(cls.getName() + " needs a no-argument constructor to be loaded");
+        }
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Error creating " + cls.getSimpleName(), e);
+        }
+    }
+
+
+    /**
+     * Appends an object to a builder as a CSV line (without the line ending).
+     * @param object The object to write.
+     * @param sb The builder to append to.
+     */
+    public void appendCsv(T object, StringBuilder sb) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            fields.get(i).appendCsv(object, sb);
+        }
+    }
+
+
+    /**
+     * Converts an object to a CSV line (without the line ending).
+     * @param object The object to convert.
+     * @return The CSV line.
+     */
+    public String toCsv(T object) {
+        StringBuilder sb = new StringBuilder(64);
+        appendCsv(object, sb);
+        return sb.toString();
+    }
+
+
+    /**
+     * Binds an object's fields to parameters 1..n of a prepared statement, in column order.
+     * @param statement The prepared statement.
+     * @param object The object to bind.
+     * @throws SQLException If a value could not be bound.
+     */
+    public void bind(PreparedStatement statement, T object) throws SQLException {
+        for (int i = 0; i < fields.size(); i++) {
+            fields.get(i).bind(statement, i + 1, object);
+        }
+    }
+
+
+    /**
+     * One field of a class, with accessors typed to its kind.
+     * Primitive fields are read and written through getInt/setInt, getDouble/setDouble and getBoolean/setBoolean,
+     * everything else through get/set.
+     */
+    public static final class FieldCodec {
+        private final Field field;
+        private final Kind kind;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        FieldCodec(Field field, MethodHandles.Lookup lookup) {
+            this.field = field;
+            this.kind = kindOf(field.getType());
+
+            // Erase the owner to Object, and everything but primitives to Object, so invokeExact call sites match
+            Class<?> valueType = field.getType().isPrimitive() ? field.getType() : Object.class;
+            try {
+                field.setAccessible(true);
+                this.getter = lookup.unreflectGetter(field)
+                        .asType(MethodType.methodType(valueType, Object.class));
+                this.setter = Modifier.isFinal(field.getModifiers()) ? null : lookup.unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Object.class, valueType));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Failed to access field: " + field.getName(), e);
+            }
+        }
+
+        private static Kind kindOf(Class<?> type) {
+            if (type == int.class) {
+                return Kind.INT;
+            } else if (type == double.class) {
+                return Kind.DOUBLE;
+            } else if (type == boolean.class) {
+                return Kind.BOOLEAN;
+            } else if (type == String.class) {
+                return Kind.STRING;
+            } else if (type.isEnum()) {
+                return Kind.ENUM;
+            } else if (type == Integer.class || type == Double.class || type == Boolean.class) {
+                return Kind.BOXED;
+            } else {
+                throw new UnsupportedOperationException("Unimplemented type in 'ClassCodec': " + type.getName());
+            }
+        }
+
+        public String getName() {
+            return field.getName();
+        }
+
+        public Class<?> getType() {
+            return field.getType();
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return The field itself, for annotations.
+         */
+        public Field getField() {
+            return field;
+        }
+
+        public int getInt(Object obj) {
+            try {
+                return (int) getter.invokeExact(obj);
+            } catch (Throwable e) {
+                throw accessFailed(e);
+            }
+        }
+
+        public double getDouble(Object obj) {
+            try {
+                return (double) getter.invokeExact(obj);
+            } catch (Throwable e) {
+                throw accessFailed(e);
+            }
+        }
+
+        public boolean getBoolean(Object obj) {
+            try {
+                return (boolean) getter.invokeExact(obj);
+            } catch (Throwable e) {
+                throw accessFailed(e);
+            }
+        }
+
+        /**
+         * @return The value of a non-primitive field.
+         */
+        public Object get(Object obj) {
+            try {
+                return (Object) getter.invokeExact(obj);
+            } catch (Throwable e) {
+                throw accessFailed(e);
+            }
+        }
+
+        public void setInt(Object obj, int value) {
+            try {
+                setter().invokeExact(obj, value);
+            } catch (Throwable e) {
+                throw accessFailed(e);
+            }
+        }
+
+        public void setDouble(Object obj, double value) {
+            try {
+                setter().invokeExact(obj, value);
+            } catch (Throwable e) {
+                throw accessFailed(e);
+            }
+        }
+
+        public void setBoolean(Object obj, boolean value) {
+            try {
+                setter().invokeExact(obj, value);
+            } catch (Throwable e) {
+                throw accessFailed(e);
+            }
+        }
+
+        /**
+         * Sets the value of a non-primitive field.
+         */
+        public void set(Object obj, Object value) {
+            try {
+                setter().invokeExact(obj, value);
+            } catch (Throwable e) {
+                throw accessFailed(e);
+            }
+        }
+
+        /**
+         * Reads the field as an Object, boxing primitives. Only meant for paths that need boxing anyway.
+         */
+        public Object getValue(Object obj) {
+            switch (kind) {
+                case INT:
+                    return getInt(obj);
+                case DOUBLE:
+                    return getDouble(obj);
+                case BOOLEAN:
+                    return getBoolean(obj);
+                default:
+                    return get(obj);
+            }
+        }
+
+        void appendCsv(Object obj, StringBuilder sb) {
+            switch (kind) {
+                case INT:
+                    sb.append(getInt(obj));
+                    break;
+                case DOUBLE:
+                    sb.append(getDouble(obj));
+                    break;
+                case BOOLEAN:
+                    sb.append(getBoolean(obj));
+                    break;
+                case ENUM:
+                    Object constant = get(obj);
+                    if (constant != null) {
+                        sb.append(((Enum<?>) constant).name());
+                    }
+                    break;
+                default:
+                    Object value = get(obj);
+                    if (value != null) {
+                        sb.append(value);
+                    }
+                    break;
+            }
+        }
+
+        void bind(PreparedStatement statement, int index, Object obj) throws SQLException {
+            switch (kind) {
+                case INT:
+                    statement.setInt(index, getInt(obj));
+                    break;
+                case DOUBLE:
+                    statement.setDouble(index, getDouble(obj));
+                    break;
+                case BOOLEAN:
+                    statement.setBoolean(index, getBoolean(obj));
+                    break;
+                default:
+                    Object value = get(obj);
+                    if (value == null) {
+                        statement.setNull(index, DatabaseUtils.getSQLTypeCode(field.getType()));
+                    } else if (kind == Kind.ENUM) {
+                        statement.setString(index, ((Enum<?>) value).name());
+                    } else {
+                        statement.setObject(index, value, DatabaseUtils.getSQLTypeCode(field.getType()));
+                    }
+                    break;
+            }
+        }
+
+        private MethodHandle setter() {
+            if (setter == null) {
+                throw new UnsupportedOperationException("Field " + field.getName() + " is final and can't be set");
+            }
+            return setter;
+        }
+
+        private IllegalStateException accessFailed(Throwable e) {
+            return new IllegalStateException("Failed to access field: " + field.getName(), e);
+        }
+
+        @Override
+        public String toString() {
+            return field.getName() + " (" + kind + ")";
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        return "ClassCodec" + getColumnNames();
+    }
+}
@@ -1,171 +1,453 @@
 
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 
 /*
  * ClassSaver.java
- * Utility class for saving objects of any class to a CSV file.
- * 
+ * Saves objects of any class to a CSV file. One ClassSaver writes one file, and can be used from many threads at once.
+ *
  * Process:
- * - Open a CSV file for writing.
- * - Write column headers based on the fields of the class.
- * - Save objects to the CSV file.
- * - Convert objects to CSV string format.
- * - Close the CSV file.
- * 
+ * - Open the file and write the column headers based on the fields of the class.
+ * - Convert each object to a CSV line and add it to a buffer. Each thread adds to one of several striped buffers,
+ *   so threads rarely wait on each other, and a line is never split between buffers.
+ * - Hand each full buffer to a lock-free queue. Whichever thread finds the writer free writes the queued buffers
+ *   to the file's FileChannel, so there is only ever one writer.
+ * - Write the remaining buffers and close the file.
+ *
+ * Lines from one thread are written in the order that thread saved them; lines from different threads are interleaved
+ * a buffer at a time. Columns and values are read through the class's ClassCodec, so their order is fixed
+ * and no reflection happens per object.
+ *
+ * The static saveObjects methods save an array in one call, and saveAllParallel exports several files at once.
+ * Files ending in ".bin" are saved in the compact binary format instead (see BinaryRowFile),
+ * and files ending in ".csv.gz" as CSV compressed in blocks on several threads (see BlockCompressedCsv).
+ * Those formats are written through a lock instead of striped buffers.
+ *
  * @author Elijah Reyna
- * Last Edited 9/21/25
+ * Last Edited 10/18/26
  */
-public class ClassSaver<T> {
-    public static File file;
-    public static FileWriter writer;
+public class ClassSaver<T> implements Closeable {
+    // A stripe's buffer is handed to the writer once it holds this many characters
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int STRIPES = nextPowerOfTwo(Runtime.getRuntime().availableProcessors() * 2);
+
+    private final Path path;
+    private final ClassCodec<T> codec;
+    private final FileChannel channel;
+    private final Stripe[] stripes;
+    private final ConcurrentLinkedQueue<ByteBuffer> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    // Binary and compressed files are written through one of these instead, under a lock
+    private final BinaryRowFile.RowWriter<T> binaryWriter;
+    private final BlockCompressedCsv.RowWriter<T> compressedWriter;
 
     /**
-     * Saves an array of objects to a CSV file.
-     * This is the main method to call for saving objects.
-     * 
-     * @param objects The array of objects to save.
-     * @throws IOException If an I/O error occurs.
+     * Opens a file for saving objects of a class, replacing it if it exists.
+     * @param filePath The path to the file.
+     * @param cls The class of the objects.
+     * @throws IOException If the file could not be opened.
      */
-    public static <T> void saveObjects(T[] objects) throws IOException {
-        // Check if the array is empty or null
-        if (objects == null || objects.length == 0) {
-            System.out.println("No objects to save.");
+    public ClassSaver(String filePath, Class<T> cls) throws IOException {
+        this(new File(filePath).toPath(), cls, false);
+    }
+
+
+    /**
+     * Opens a file for saving objects of a class.
+     * @param path The path to the file.
+     * @param cls The class of the objects.
+     * @param append Whether to add to the end of an existing CSV file instead of replacing it.
+     *               The column headers are only written if the file is new or empty.
+     * @throws IOException If the file could not be opened.
+     */
+    public ClassSaver(Path path, Class<T> cls, boolean append) throws IOException {
+        this.path = path;
+        this.codec = ClassCodec.forClass(cls);
+        String name = path.getFileName().toString();
+        boolean binary = BinaryRowFile.isBinaryFile(name);
+        boolean compressed = BlockCompressedCsv.isCompressedFile(name);
+        if (append && (binary || compressed)) {
+            throw new IllegalArgumentException("Only CSV files can be appended to: " + path);
+        }
+
+        this.binaryWriter = binary ? new BinaryRowFile.RowWriter<>(path, cls) : null;
+        this.compressedWriter = compressed ? new BlockCompressedCsv.RowWriter<>(path, cls) : null;
+        if (binary || compressed) {
+            this.channel = null;
+            this.stripes = null;
             return;
         }
 
-        // Open the CSV file for writing (pluralizes it)
-        openCSVFile(objects[0].getClass().getSimpleName() + "s.csv");
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        if (!append || channel.size() == 0) {
+            writeColumns();
+        }
+    }
+
 
-        // Write column headers based on the fields of the class
-        writeColumns(objects[0].getClass());
+    /**
+     * Writes the column headers to the file based on the fields of the class.
+     */
+    private void writeColumns() throws IOException {
+        ByteBuffer header = ByteBuffer.wrap((String.join(",", codec.getColumnNames()) + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
 
-        // Save each object to the CSV file
+
+    /**
+     * Saves a single object to the file. Safe to call from many threads at once.
+     * @param object The object to save.
+     * @throws IOException If the file could not be written (possibly for an earlier object).
+     */
+    public void saveObject(T object) throws IOException {
+        checkOpen();
+        if (channel == null) {
+            saveObjectLocked(object);
+            return;
+        }
+
+        Stripe stripe = stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+        boolean full;
+        synchronized (stripe) {
+            codec.appendCsv(object, stripe.lines);
+            stripe.lines.append('\n');
+            stripe.rows++;
+            full = stripe.lines.length() >= BUFFER_SIZE;
+            if (full) {
+                // Queued while the stripe is held, so a thread's buffers stay in order
+                handOff(stripe);
+            }
+        }
+        if (full) {
+            drain(false);
+        }
+    }
+
+
+    private synchronized void saveObjectLocked(T object) throws IOException {
+        if (binaryWriter != null) {
+            binaryWriter.add(object);
+        } else {
+            compressedWriter.add(object);
+        }
+    }
+
+
+    /**
+     * Saves objects to the file.
+     * @param objects The objects to save.
+     * @return The number of objects saved.
+     * @throws IOException If the file could not be written.
+     */
+    public long saveAll(Iterable<? extends T> objects) throws IOException {
+        long count = 0;
         for (T object : objects) {
             saveObject(object);
+            count++;
         }
-
-        // Close the CSV file
-        closeCSVFile();
+        return count;
     }
 
 
-    /*
-     * Opens a CSV file for writing.
-     * @param filePath The path to the CSV file.
+    /**
+     * Saves the objects of a stream to the file as the stream produces them. A parallel stream
+     * saves from each of its threads at once.
+     * @param objects The objects to save.
+     * @return The number of objects saved.
+     * @throws IOException If the file could not be written.
      */
-    public static void openCSVFile(String filePath) {
-        // Open the file
-        file = new File(filePath);
+    public long saveAll(Stream<? extends T> objects) throws IOException {
         try {
-            // Create the file if it doesn't exist
-            if (!file.exists()) {
-                file.createNewFile();
+            return objects.mapToLong(object -> {
+                try {
+                    saveObject(object);
+                    return 1;
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }).sum();
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
+            throw e;
+        }
+    }
 
-            // If the file already exists
-            boolean appendMode = file.length() == 0;
 
-            // Opens the file
-            writer = new FileWriter(file, appendMode);
-            System.out.println("Opened file: " + filePath);
+    /**
+     * Moves a stripe's lines to the writer's queue. The caller holds the stripe.
+     */
+    private void handOff(Stripe stripe) {
+        if (stripe.lines.length() == 0) {
+            return;
+        }
+        pending.add(ByteBuffer.wrap(stripe.lines.toString().getBytes(StandardCharsets.UTF_8)));
+        stripe.lines.setLength(0);
+    }
+
+
+    /**
+     * Writes the queued buffers to the file.
+     * @param wait Whether to wait for another thread that is writing, instead of leaving the queue to it.
+     */
+    private void drain(boolean wait) throws IOException {
+        do {
+            if (wait) {
+                writerLock.lock();
+            } else if (!writerLock.tryLock()) {
+                // The thread holding the writer will see the buffer, since it checks the queue again after unlocking
+                return;
+            }
+            try {
+                ByteBuffer buffer;
+                while ((buffer = pending.poll()) != null) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            } finally {
+                writerLock.unlock();
+            }
+        } while (!pending.isEmpty());
+    }
 
-        } catch (IOException e) {
-            System.out.println("Error opening file for writing: " + e.getMessage());
-            e.printStackTrace();
+
+    /**
+     * Writes every line saved so far to the file.
+     * @throws IOException If the file could not be written.
+     */
+    public void flush() throws IOException {
+        checkOpen();
+        if (channel == null) {
+            return;
+        }
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                handOff(stripe);
+            }
+        }
+        drain(true);
+    }
+
+
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw new IOException("An earlier write to " + path + " failed", failure);
+        }
+        if (closed) {
+            throw new IOException("Saver for " + path + " is closed");
         }
     }
 
 
     /**
-     * Writes the column headers to the CSV file based on the fields of the class.
-     * @param objectClass The class of the objects being saved.
+     * @return The number of objects saved so far.
      */
-    public static void writeColumns(Class<?> objectClass){
-        StringBuilder columns = new StringBuilder();
-        try {
-            // Append each field name as a column header
-            for (Field field : objectClass.getDeclaredFields()) {
-                columns.append(field.getName()).append(",");
+    public long getRowCount() {
+        if (binaryWriter != null) {
+            return binaryWriter.getRowCount();
+        } else if (compressedWriter != null) {
+            return compressedWriter.getRowCount();
+        }
+        long rows = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                rows += stripe.rows;
             }
+        }
+        return rows;
+    }
 
-            // Remove the trailing comma
-            if (columns.length() > 0) {
-                columns.setLength(columns.length() - 1);
+
+    /**
+     * @return The file being saved to.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+
+    /**
+     * Writes the remaining lines and closes the file. Objects still being saved by other threads may be lost,
+     * so close it once they are done.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (channel != null && failure == null) {
+                flush();
+            }
+        } finally {
+            closed = true;
+            if (binaryWriter != null) {
+                binaryWriter.close();
+            } else if (compressedWriter != null) {
+                compressedWriter.close();
+            } else {
+                channel.close();
             }
+        }
+    }
 
-            // Write the column headers to the file
-            writer.write(columns.toString() + "\n");
 
-        } catch (IOException e) {
-            System.out.println("Error writing columns to file: " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * Saves an array of objects to a CSV file named after their class (e.g. Vehicles.csv).
+     * This is the main method to call for saving objects.
+     *
+     * @param objects The array of objects to save.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static <T> void saveObjects(T[] objects) throws IOException {
+        // Check if the array is empty or null
+        if (objects == null || objects.length == 0) {
+            System.out.println("No objects to save.");
+            return;
         }
+
+        // Save to the pluralized class name
+        saveObjects(objects, objects[0].getClass().getSimpleName() + "s.csv");
     }
 
 
     /**
-     * Saves a single object to the CSV file.
-     * @param <T> The type of the object.
-     * @param object The object to save.
+     * Saves an array of objects to a file, as CSV, in the binary format if the file name ends in ".bin",
+     * or as block compressed CSV if it ends in ".csv.gz". The file is replaced if it exists.
+     *
+     * @param objects The array of objects to save.
+     * @param filePath The path to the file.
+     * @throws IOException If an I/O error occurs.
      */
-    public static <T> void saveObject(T object) {
+    @SuppressWarnings("unchecked")
+    public static <T> void saveObjects(T[] objects, String filePath) throws IOException {
+        // Check if the array is empty or null
+        if (objects == null || objects.length == 0) {
+            System.out.println("No objects to save.");
+            return;
+        }
+
+        try (ClassSaver<T> saver = new ClassSaver<>(filePath, (Class<T>) objects[0].getClass())) {
+            long rows = saver.saveAll(Arrays.asList(objects));
+            System.out.println("Saved " + rows + " objects to " + filePath);
+        }
+    }
+
+
+    /**
+     * Saves several lists of objects to their own files at the same time, one file per thread.
+     * Each list's objects must all be of the same class, and each file is replaced if it exists.
+     * @param exports The objects to save in each file, by file path.
+     * @return The number of objects saved in each file, by file path.
+     * @throws IOException If any of the files could not be written (the others are still saved).
+     */
+    public static Map<String, Long> saveAllParallel(Map<String, ? extends List<?>> exports) throws IOException {
+        int threads = Math.max(1, Math.min(exports.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
         try {
-            writer.write(convertObjectToCSVString(object) + "\n");
-            System.out.println("   Saving object: " + convertObjectToCSVString(object));
+            Map<String, Future<Long>> futures = new LinkedHashMap<>();
+            for (Map.Entry<String, ? extends List<?>> export : exports.entrySet()) {
+                futures.put(export.getKey(), pool.submit(() -> saveList(export.getKey(), export.getValue())));
+            }
 
-        } catch (IOException e) {
-            System.out.println("Error writing object data to file: " + e.getMessage());
-            e.printStackTrace();
+            Map<String, Long> counts = new LinkedHashMap<>();
+            List<Throwable> failures = new ArrayList<>();
+            for (Map.Entry<String, Future<Long>> future : futures.entrySet()) {
+                try {
+                    counts.put(future.getKey(), future.getValue().get());
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while saving " + future.getKey(), e);
+                }
+            }
+
+            if (!failures.isEmpty()) {
+                IOException failure = new IOException("Could not save " + failures.size() + " of " + exports.size() + " files");
+                for (Throwable cause : failures) {
+                    failure.addSuppressed(cause);
+                }
+                throw failure;
+            }
+            return counts;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <T> long saveList(String filePath, List<T> objects) throws IOException {
+        if (objects.isEmpty()) {
+            // Without an object there is no class to write the columns of
+            System.out.println("No objects to save to " + filePath);
+            return 0;
+        }
+        try (ClassSaver<T> saver = new ClassSaver<>(filePath, (Class<T>) objects.get(0).getClass())) {
+            return saver.saveAll(objects);
         }
     }
 
+
     /**
      * Converts an object to a CSV string format.
      * @param <T> The type of the object.
      * @param object The object to convert.
      * @return The CSV string representation of the object.
      */
+    @SuppressWarnings("unchecked")
     public static <T> String convertObjectToCSVString(T object) {
-        StringBuilder sb = new StringBuilder();
-        try {
-            // Append each field value as a CSV value
-            for (Field field : object.getClass().getDeclaredFields()) {
-                field.setAccessible(true);
-                Object value = field.get(object);
-                sb.append(value != null ? value.toString() : "").append(",");
-            }
+        return ClassCodec.forClass((Class<T>) object.getClass()).toCsv(object);
+    }
 
-            // Remove the trailing comma
-            if (sb.length() > 0) {
-                sb.setLength(sb.length() - 1);
-            }
-        
-        } catch (IllegalAccessException e) {
-            System.out.println("Error converting object to CSV string: " + e.getMessage());
-            e.printStackTrace();
-        }
 
-        return sb.toString();
+    private static int nextPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
     }
 
 
     /**
-     * Closes the CSV file.
+     * The lines saved by the threads that map to one stripe, waiting to be handed to the writer.
      */
-    public static void closeCSVFile() {
-        try {
-            if (writer != null) {
-                writer.close();
-                System.out.println("Closed vehicles.csv file successfully.\n");
-            }
-        } catch (IOException e) {
-            System.out.println("Error closing vehicles.csv file: " + e.getMessage());
-            e.printStackTrace();
-        }
+    private static class Stripe {
+        final StringBuilder lines = new StringBuilder(BUFFER_SIZE + 256);
+        long rows;
     }
 }
@@ -0,0 +1,647 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+
+/**
+ * ColumnarTable.java
+ * An in-memory table of objects stored column by column, for filtering the same data many times without a database.
+ *
+ * Functionality:
+ * - Stores each field in its own primitive array: double[] and int[] for numbers, boolean[] for booleans,
+ *   and byte[] ordinals for enums (e.g. Vehicle's weight and engineSize, make and size).
+ * - Keeps a bitmap per enum constant, so equality filters are ORs of long words.
+ * - Range filters are branch-free loops over the primitive arrays.
+ * - Filters return a Selection (the matching row numbers in order), which later filters can narrow down.
+ * - Loads from a stream of objects, a csv file written by ClassSaver, or a database table.
+ *
+ * e.g. the Vehicles weighing more than 2500 pounds that are Chevys or Toyotas:
+ *    table.selectGreaterThan(table.selectEquals("make", Make.CHEVY, Make.TOYOTA), "weight", 2500)
+ *
+ * Columns are found by field name, ignoring case. Adding rows is not thread-safe, but filtering a table
+ * that is no longer changing is.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class ColumnarTable<T> {
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final ClassCodec<T> codec;
+    private final Column[] columns;
+    private final Map<String, Column> columnsByName = new HashMap<>();
+    private int size;
+    private int capacity;
+
+    /**
+     * Creates an empty table for a class.
+     * @param cls The class of the rows.
+     * @param initialCapacity The number of rows to make room for up front.
+     */
+    public ColumnarTable(Class<T> cls, int initialCapacity) {
+        this.codec = ClassCodec.forClass(cls);
+        this.capacity = Math.max(initialCapacity, 64);
+
+        List<ClassCodec.FieldCodec> fields = codec.getFields();
+        this.columns = new Column[fields.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = Column.create(fields.get(i), capacity);
+            columnsByName.put(fields.get(i).getName().toUpperCase(), columns[i]);
+        }
+    }
+
+
+    /**
+     * Creates an empty table for a class.
+     * @param cls The class of the rows.
+     */
+    public ColumnarTable(Class<T> cls) {
+        this(cls, DEFAULT_CAPACITY);
+    }
+
+
+    /**
+     * Builds a table from a stream of objects.
+     * @param objects The objects, which are not kept.
+     * @param cls The class of the objects.
+     * @return The table.
+     */
+    public static <T> ColumnarTable<T> fromStream(Stream<T> objects, Class<T> cls) {
+        ColumnarTable<T> table = new ColumnarTable<>(cls);
+        objects.forEachOrdered(table::add);
+        return table;
+    }
+
+
+    /**
+     * Builds a table from a csv file written by ClassSaver, reading it through ObjectLoader.stream.
+     * @param file The csv file.
+     * @param cls The class the file was saved from.
+     * @return The table.
+     * @throws IOException If the file could not be read.
+     */
+    public static <T> ColumnarTable<T> fromCsv(File file, Class<T> cls) throws IOException {
+        try (Stream<T> objects = ObjectLoader.stream(file, cls)) {
+            return fromStream(objects, cls);
+        }
+    }
+
+
+    /**
+     * Builds a table from every row of the database table for a class, streaming the rows with Database.queryStream.
+     * @param database The database.
+     * @param cls The class of the table (e.g. Vehicle for the Vehicles table).
+     * @return The table.
+     */
+    public static <T> ColumnarTable<T> fromDatabase(Database database, Class<T> cls) {
+        String query = QueryBuilder.buildSelectQuery(DatabaseUtils.buildTableName(cls), "*", "");
+        try (Stream<T> objects = database.queryStream(query, cls)) {
+            return fromStream(objects, cls);
+        }
+    }
+
+
+    /**
+     * Adds a row, copying the object's fields into the columns.
+     * @param object The object.
+     */
+    public void add(T object) {
+        if (size == capacity) {
+            capacity = capacity + (capacity >> 1);
+            for (Column column : columns) {
+                column.grow(capacity);
+            }
+        }
+        for (Column column : columns) {
+            column.read(size, object);
+        }
+        size++;
+    }
+
+
+    /**
+     * @return The number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Rebuilds the object stored in a row.
+     * @param row The row number.
+     * @return A new object with the row's values.
+     */
+    public T get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        T object = codec.newInstance();
+        for (Column column : columns) {
+            column.write(row, object);
+        }
+        return object;
+    }
+
+
+    /**
+     * Rebuilds the objects stored in the selected rows.
+     * @param selection The rows.
+     * @return New objects with the rows' values, in row order.
+     */
+    public List<T> get(Selection selection) {
+        List<T> objects = new ArrayList<>(selection.size());
+        for (int i = 0; i < selection.size(); i++) {
+            objects.add(get(selection.getRow(i)));
+        }
+        return objects;
+    }
+
+
+    /**
+     * @return A selection of every row.
+     */
+    public Selection all() {
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        return new Selection(rows, size);
+    }
+
+
+    /**
+     * Selects the rows whose enum column holds any of the given constants (e.g. Make = 'CHEVY' OR Make = 'TOYOTA').
+     * @param column The enum column.
+     * @param values The constants to match.
+     * @return The matching rows.
+     */
+    public Selection selectEquals(String column, Object... values) {
+        EnumColumn enumColumn = enumColumn(column);
+        int words = (size + 63) >>> 6;
+        long[] matches = new long[words];
+        for (Object value : values) {
+            long[] bitmap = enumColumn.bitmapOf(value);
+            for (int w = 0; w < words; w++) {
+                matches[w] |= bitmap[w];
+            }
+        }
+        return Selection.fromBitmap(matches, words);
+    }
+
+
+    /**
+     * Narrows a selection to the rows whose enum column holds any of the given constants.
+     * @param within The rows to check.
+     * @param column The enum column.
+     * @param values The constants to match.
+     * @return The matching rows.
+     */
+    public Selection selectEquals(Selection within, String column, Object... values) {
+        EnumColumn enumColumn = enumColumn(column);
+        boolean[] wanted = new boolean[enumColumn.constants.length];
+        for (Object value : values) {
+            wanted[enumColumn.ordinalOf(value)] = true;
+        }
+
+        byte[] ordinals = enumColumn.ordinals;
+        int[] rows = new int[within.size()];
+        int n = 0;
+        for (int i = 0; i < within.size(); i++) {
+            int row = within.rows[i];
+            int ordinal = ordinals[row];
+            rows[n] = row;
+            n += ordinal >= 0 && wanted[ordinal] ? 1 : 0;
+        }
+        return new Selection(rows, n);
+    }
+
+
+    /**
+     * Selects the rows whose number column is greater than a value (e.g. Weight > 2500).
+     */
+    public Selection selectGreaterThan(String column, double value) {
+        return numberColumn(column).select(null, value, Double.POSITIVE_INFINITY, false, true, size);
+    }
+
+
+    /**
+     * Narrows a selection to the rows whose number column is greater than a value.
+     */
+    public Selection selectGreaterThan(Selection within, String column, double value) {
+        return numberColumn(column).select(within, value, Double.POSITIVE_INFINITY, false, true, size);
+    }
+
+
+    /**
+     * Selects the rows whose number column is less than a value.
+     */
+    public Selection selectLessThan(String column, double value) {
+        return numberColumn(column).select(null, Double.NEGATIVE_INFINITY, value, true, false, size);
+    }
+
+
+    /**
+     * Narrows a selection to the rows whose number column is less than a value.
+     */
+    public Selection selectLessThan(Selection within, String column, double value) {
+        return numberColumn(column).select(within, Double.NEGATIVE_INFINITY, value, true, false, size);
+    }
+
+
+    /**
+     * Selects the rows whose number column is between two values, inclusive.
+     */
+    public Selection selectBetween(String column, double low, double high) {
+        return numberColumn(column).select(null, low, high, true, true, size);
+    }
+
+
+    /**
+     * Narrows a selection to the rows whose number column is between two values, inclusive.
+     */
+    public Selection selectBetween(Selection within, String column, double low, double high) {
+        return numberColumn(column).select(within, low, high, true, true, size);
+    }
+
+
+    private Column column(String name) {
+        Column column = columnsByName.get(name.toUpperCase());
+        if (column == null) {
+            throw new IllegalArgumentException(codec.getType().getSimpleName() + " has no column " + name);
+        }
+        return column;
+    }
+
+
+    private EnumColumn enumColumn(String name) {
+        Column column = column(name);
+        if (!(column instanceof EnumColumn)) {
+            throw new IllegalArgumentException("Column " + name + " is not an enum column");
+        }
+        return (EnumColumn) column;
+    }
+
+
+    private NumberColumn numberColumn(String name) {
+        Column column = column(name);
+        if (!(column instanceof NumberColumn)) {
+            throw new IllegalArgumentException("Column " + name + " is not a number column");
+        }
+        return (NumberColumn) column;
+    }
+
+
+    @Override
+    public String toString() {
+        return "ColumnarTable[" + codec.getType().getSimpleName() + ", " + size + " rows]";
+    }
+
+
+    /**
+     * The rows matched by a filter, in increasing order.
+     */
+    public static final class Selection {
+        private final int[] rows;
+        private final int size;
+
+        Selection(int[] rows, int size) {
+            this.rows = rows;
+            this.size = size;
+        }
+
+        static Selection fromBitmap(long[] bitmap, int words) {
+            int count = 0;
+            for (int w = 0; w < words; w++) {
+                count += Long.bitCount(bitmap[w]);
+            }
+
+            int[] rows = new int[count];
+            int n = 0;
+            for (int w = 0; w < words; w++) {
+                long word = bitmap[w];
+                while (word != 0) {
+                    rows[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return new Selection(rows, count);
+        }
+
+        /**
+         * @return The number of rows selected.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param index The position in the selection, from 0 to size() - 1.
+         * @return The row number at that position.
+         */
+        public int getRow(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+            }
+            return rows[index];
+        }
+
+        /**
+         * @return The selected row numbers.
+         */
+        public int[] toArray() {
+            return Arrays.copyOf(rows, size);
+        }
+
+        @Override
+        public String toString() {
+            return "Selection[" + size + " rows]";
+        }
+    }
+
+
+    /**
+     * The storage for one field.
+     */
+    private abstract static class Column {
+        final ClassCodec.FieldCodec field;
+
+        Column(ClassCodec.FieldCodec field) {
+            this.field = field;
+        }
+
+        static Column create(ClassCodec.FieldCodec field, int capacity) {
+            switch (field.getKind()) {
+                case DOUBLE:
+                    return new DoubleColumn(field, capacity);
+                case INT:
+                    return new IntColumn(field, capacity);
+                case BOOLEAN:
+                    return new BooleanColumn(field, capacity);
+                case ENUM:
+                    return new EnumColumn(field, capacity);
+                default:
+                    return new ObjectColumn(field, capacity);
+            }
+        }
+
+        abstract void grow(int capacity);
+
+        /**
+         * Copies the field from an object into a row.
+         */
+        abstract void read(int row, Object object);
+
+        /**
+         * Copies a row into the field of an object.
+         */
+        abstract void write(int row, Object object);
+    }
+
+
+    /**
+     * A column that range filters can scan.
+     */
+    private abstract static class NumberColumn extends Column {
+        NumberColumn(ClassCodec.FieldCodec field) {
+            super(field);
+        }
+
+        /**
+         * Selects the rows (of the whole column, or within a selection) whose value is in a range.
+         */
+        abstract Selection select(Selection within, double low, double high, boolean includeLow, boolean includeHigh, int size);
+    }
+
+
+    private static final class DoubleColumn extends NumberColumn {
+        double[] values;
+
+        DoubleColumn(ClassCodec.FieldCodec field, int capacity) {
+            super(field);
+            values = new double[capacity];
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void read(int row, Object object) {
+            values[row] = field.getDouble(object);
+        }
+
+        @Override
+        void write(int row, Object object) {
+            field.setDouble(object, values[row]);
+        }
+
+        @Override
+        Selection select(Selection within, double low, double high, boolean includeLow, boolean includeHigh, int size) {
+            // Exclusive bounds become the next representable value, so every scan is one inclusive comparison pair
+            double min = includeLow ? low : Math.nextUp(low);
+            double max = includeHigh ? high : Math.nextDown(high);
+            double[] values = this.values;
+
+            // Branch-free: every row is written, and the count only moves past it when it matches
+            if (within == null) {
+                int[] rows = new int[size];
+                int n = 0;
+                for (int i = 0; i < size; i++) {
+                    double value = values[i];
+                    rows[n] = i;
+                    n += (value >= min) & (value <= max) ? 1 : 0;
+                }
+                return new Selection(rows, n);
+            }
+
+            int[] selected = within.rows;
+            int[] rows = new int[within.size];
+            int n = 0;
+            for (int i = 0; i < within.size; i++) {
+                int row = selected[i];
+                double value = values[row];
+                rows[n] = row;
+                n += (value >= min) & (value <= max) ? 1 : 0;
+            }
+            return new Selection(rows, n);
+        }
+    }
+
+
+    private static final class IntColumn extends NumberColumn {
+        int[] values;
+
+        IntColumn(ClassCodec.FieldCodec field, int capacity) {
+            super(field);
+            values = new int[capacity];
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void read(int row, Object object) {
+            values[row] = field.getInt(object);
+        }
+
+        @Override
+        void write(int row, Object object) {
+            field.setInt(object, values[row]);
+        }
+
+        @Override
+        Selection select(Selection within, double low, double high, boolean includeLow, boolean includeHigh, int size) {
+            // Turn the double bounds into inclusive int bounds
+            double lowBound = includeLow ? Math.ceil(low) : Math.floor(low) + 1;
+            double highBound = includeHigh ? Math.floor(high) : Math.ceil(high) - 1;
+            if (lowBound > highBound || lowBound > Integer.MAX_VALUE || highBound < Integer.MIN_VALUE) {
+                return new Selection(new int[0], 0);
+            }
+            int min = (int) Math.max(lowBound, Integer.MIN_VALUE);
+            int max = (int) Math.min(highBound, Integer.MAX_VALUE);
+            int[] values = this.values;
+
+            if (within == null) {
+                int[] rows = new int[size];
+                int n = 0;
+                for (int i = 0; i < size; i++) {
+                    int value = values[i];
+                    rows[n] = i;
+                    n += (value >= min) & (value <= max) ? 1 : 0;
+                }
+                return new Selection(rows, n);
+            }
+
+            int[] selected = within.rows;
+            int[] rows = new int[within.size];
+            int n = 0;
+            for (int i = 0; i < within.size; i++) {
+                int row = selected[i];
+                int value = values[row];
+                rows[n] = row;
+                n += (value >= min) & (value <= max) ? 1 : 0;
+            }
+            return new Selection(rows, n);
+        }
+    }
+
+
+    private static final class BooleanColumn extends Column {
+        boolean[] values;
+
+        BooleanColumn(ClassCodec.FieldCodec field, int capacity) {
+            super(field);
+            values = new boolean[capacity];
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void read(int row, Object object) {
+            values[row] = field.getBoolean(object);
+        }
+
+        @Override
+        void write(int row, Object object) {
+            field.setBoolean(object, values[row]);
+        }
+    }
+
+
+    /**
+     * Enum ordinals (-1 for null) with a bitmap of the rows holding each constant.
+     */
+    private static final class EnumColumn extends Column {
+        final Object[] constants;
+        byte[] ordinals;
+        long[][] bitmaps;
+
+        EnumColumn(ClassCodec.FieldCodec field, int capacity) {
+            super(field);
+            constants = field.getType().getEnumConstants();
+            if (constants.length > Byte.MAX_VALUE) {
+                throw new UnsupportedOperationException("Enum " + field.getType().getSimpleName()
+                        + " has too many constants for a byte column: " + constants.length);
+            }
+            ordinals = new byte[capacity];
+            bitmaps = new long[constants.length][(capacity + 63) >>> 6];
+        }
+
+        @Override
+        void grow(int capacity) {
+            ordinals = Arrays.copyOf(ordinals, capacity);
+            for (int i = 0; i < bitmaps.length; i++) {
+                bitmaps[i] = Arrays.copyOf(bitmaps[i], (capacity + 63) >>> 6);
+            }
+        }
+
+        @Override
+        void read(int row, Object object) {
+            Object constant = field.get(object);
+            if (constant == null) {
+                ordinals[row] = -1;
+                return;
+            }
+            int ordinal = ((Enum<?>) constant).ordinal();
+            ordinals[row] = (byte) ordinal;
+            bitmaps[ordinal][row >>> 6] |= 1L << row;
+        }
+
+        @Override
+        void write(int row, Object object) {
+            int ordinal = ordinals[row];
+            field.set(object, ordinal < 0 ? null : constants[ordinal]);
+        }
+
+        int ordinalOf(Object value) {
+            if (!(value instanceof Enum) || ((Enum<?>) value).getDeclaringClass() != field.getType()) {
+                throw new IllegalArgumentException(value + " is not a " + field.getType().getSimpleName());
+            }
+            return ((Enum<?>) value).ordinal();
+        }
+
+        long[] bitmapOf(Object value) {
+            return bitmaps[ordinalOf(value)];
+        }
+    }
+
+
+    /**
+     * Values with no primitive storage (Strings and boxed numbers), which are kept but can't be filtered on.
+     */
+    private static final class ObjectColumn extends Column {
+        Object[] values;
+
+        ObjectColumn(ClassCodec.FieldCodec field, int capacity) {
+            super(field);
+            values = new Object[capacity];
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void read(int row, Object object) {
+            values[row] = field.get(object);
+        }
+
+        @Override
+        void write(int row, Object object) {
+            field.set(object, values[row]);
+        }
+    }
+}
@@ -0,0 +1,523 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * ConnectionPool.java
+ * A bounded pool of database connections, used behind SimpleDataSource.
+ *
+ * Functionality:
+ * - Hands out at most maxSize connections at once, waiting up to the acquire timeout for one to free up.
+ * - Keeps at least minSize connections open, and closes extra connections that sit idle past the idle timeout.
+ * - Validates idle connections (with the validation query, if one is set) before handing them out.
+ * - Caches prepared statements per connection, so preparing the same SQL again reuses the compiled statement.
+ *   A cached statement is only handed to one caller at a time, and is never closed under a caller that holds it.
+ * - Tracks metrics: active and idle connections, number of acquires, and time spent waiting.
+ *
+ * The connections handed out are proxies; closing one returns the real connection to the pool.
+ *
+ * Configured with these properties (defaults in parentheses):
+ *   pool.minSize (1), pool.maxSize (10), pool.idleTimeout in ms (60000),
+ *   pool.acquireTimeout in ms (30000), pool.validationQuery (none), pool.statementCacheSize (32)
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class ConnectionPool {
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long acquireTimeoutMillis;
+    private final String validationQuery;
+    private final int statementCacheSize;
+
+    // One permit per connection that may be checked out
+    private final Semaphore permits;
+    // Idle connections, most recently used first. Guarded by "this".
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private int openCount;
+    private volatile boolean closed;
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+
+    /**
+     * Creates a pool and opens its minimum number of connections.
+     * @param url The JDBC URL of the database.
+     * @param username The database username.
+     * @param password The database password.
+     * @param props The pool settings (see the class comment for the property names).
+     * @throws SQLException If the initial connections could not be opened.
+     */
+    public ConnectionPool(String url, String username, String password, Properties props) throws SQLException {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+
+        this.minSize = Integer.parseInt(props.getProperty("pool.minSize", "1").trim());
+        this.maxSize = Integer.parseInt(props.getProperty("pool.maxSize", "10").trim());
+        this.idleTimeoutMillis = Long.parseLong(props.getProperty("pool.idleTimeout", "60000").trim());
+        this.acquireTimeoutMillis = Long.parseLong(props.getProperty("pool.acquireTimeout", "30000").trim());
+        this.statementCacheSize = Integer.parseInt(props.getProperty("pool.statementCacheSize", "32").trim());
+        String query = props.getProperty("pool.validationQuery", "").trim();
+        this.validationQuery = query.isEmpty() ? null : query;
+
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min " + minSize + ", max " + maxSize);
+        }
+        this.permits = new Semaphore(maxSize, true);
+
+        // Open the minimum number of connections up front
+        for (int i = 0; i < minSize; i++) {
+            PooledConnection pooled = open();
+            synchronized (this) {
+                idle.push(pooled);
+            }
+        }
+    }
+
+
+    /**
+     * Gets a connection from the pool, opening a new one if none are idle.
+     * Closing the returned connection gives it back to the pool.
+     * @return The database connection.
+     * @throws SQLException If no connection freed up within the acquire timeout, or one could not be opened.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("The connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + acquireTimeoutMillis + " ms waiting for a connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeIdle();
+            while (pooled != null && !isValid(pooled)) {
+                discard(pooled);
+                pooled = takeIdle();
+            }
+            if (pooled == null) {
+                pooled = open();
+            }
+
+            activeCount.incrementAndGet();
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Returns a connection to the pool. Called when a connection handle is closed.
+     * @param pooled The connection being returned.
+     */
+    private void release(PooledConnection pooled) {
+        activeCount.decrementAndGet();
+        try {
+            // Undo anything the last user left behind
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+
+            if (closed) {
+                discard(pooled);
+            } else {
+                pooled.lastUsed = System.currentTimeMillis();
+                synchronized (this) {
+                    idle.push(pooled);
+                }
+                evictIdle();
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+
+    /**
+     * Closes idle connections that have been unused longer than the idle timeout, keeping at least minSize open.
+     */
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        Deque<PooledConnection> expired = new ArrayDeque<>();
+
+        synchronized (this) {
+            // The oldest idle connections are at the end of the deque
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && openCount - expired.size() > minSize) {
+                PooledConnection pooled = it.next();
+                if (pooled.lastUsed >= cutoff) {
+                    break;
+                }
+                it.remove();
+                expired.add(pooled);
+            }
+        }
+
+        for (PooledConnection pooled : expired) {
+            discard(pooled);
+        }
+    }
+
+
+    /**
+     * Checks that an idle connection still works before it is handed out.
+     */
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            if (validationQuery == null) {
+                return !pooled.connection.isClosed();
+            }
+            try (Statement statement = pooled.connection.createStatement()) {
+                statement.execute(validationQuery);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+
+    private synchronized PooledConnection takeIdle() {
+        return idle.poll();
+    }
+
+
+    private PooledConnection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, username, password);
+        synchronized (this) {
+            openCount++;
+        }
+        return new PooledConnection(connection);
+    }
+
+
+    private void discard(PooledConnection pooled) {
+        synchronized (this) {
+            openCount--;
+        }
+        pooled.closeQuietly();
+    }
+
+
+    private void recordWait(long nanos) {
+        acquireCount.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+
+    /**
+     * @return The number of connections currently checked out.
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+
+    /**
+     * @return The number of open connections waiting in the pool.
+     */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+
+    /**
+     * @return The number of connections handed out since the pool was created.
+     */
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+
+    /**
+     * @return The average time spent waiting for a connection, in milliseconds.
+     */
+    public double getAverageWaitMillis() {
+        long count = acquireCount.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / (count * 1_000_000.0);
+    }
+
+
+    /**
+     * @return The longest time spent waiting for a connection, in milliseconds.
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+
+    /**
+     * @return A one line summary of the pool metrics.
+     */
+    public String getStats() {
+        return String.format("active=%d idle=%d acquired=%d avgWait=%.3fms maxWait=%.3fms",
+                getActiveCount(), getIdleCount(), getAcquireCount(), getAverageWaitMillis(), getMaxWaitMillis());
+    }
+
+
+    /**
+     * Closes the idle connections. Connections still checked out are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = takeIdle()) != null) {
+            discard(pooled);
+        }
+    }
+
+
+    /**
+     * Unwraps the exception thrown by a reflective call to the real connection or statement.
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+
+    /**
+     * A real connection owned by the pool, along with its statement cache.
+     */
+    private class PooledConnection {
+        private final Connection connection;
+        // Guarded by this PooledConnection, since a checked out connection can be used from several threads
+        private final Map<String, PreparedStatement> statements;
+        // The cached statements a caller holds through a StatementHandle
+        private final Set<PreparedStatement> checkedOut = Collections.newSetFromMap(new IdentityHashMap<>());
+        private long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+
+            // Least recently used statements are closed once the cache is full, or when their holder closes them
+            this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= statementCacheSize) {
+                        return false;
+                    }
+                    if (!checkedOut.contains(eldest.getValue())) {
+                        closeStatement(eldest.getValue());
+                    }
+                    return true;
+                }
+            };
+        }
+
+        /**
+         * Creates a new handle for one checkout of this connection.
+         */
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new ConnectionHandle(this));
+        }
+
+        /**
+         * Returns the cached statement for the SQL and checks it out, preparing it if it isn't cached yet.
+         * While another caller holds the cached one, a new statement that isn't cached is returned instead.
+         */
+        synchronized PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement != null && checkedOut.contains(statement)) {
+                return connection.prepareStatement(sql);
+            }
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql);
+                if (statementCacheSize == 0) {
+                    return statement;
+                }
+                statements.put(sql, statement);
+            }
+            checkedOut.add(statement);
+            return statement;
+        }
+
+        synchronized boolean isCheckedOut(PreparedStatement statement) {
+            return checkedOut.contains(statement);
+        }
+
+        /**
+         * Checks a statement back in, clearing it for the next caller, or closes it if the cache dropped it meanwhile.
+         */
+        synchronized void release(String sql, PreparedStatement statement) throws SQLException {
+            checkedOut.remove(statement);
+            if (statements.get(sql) != statement) {
+                closeStatement(statement);
+                return;
+            }
+            statement.clearParameters();
+            statement.clearBatch();
+        }
+
+        private void closeStatement(PreparedStatement statement) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // The statement is being dropped anyway
+            }
+        }
+
+        synchronized void closeQuietly() {
+            try {
+                for (PreparedStatement statement : statements.values()) {
+                    statement.close();
+                }
+                // Including the ones the cache already dropped that a caller never closed
+                for (PreparedStatement statement : checkedOut) {
+                    statement.close();
+                }
+                statements.clear();
+                checkedOut.clear();
+                connection.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing pooled connection: " + e.getMessage());
+            }
+        }
+    }
+
+
+    /**
+     * The connection given to a caller. Closing it returns the real connection to the pool,
+     * and it cannot be used after that.
+     */
+    private class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        ConnectionHandle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + pooled.connection;
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+
+            // Only the plain prepareStatement(String) is cached
+            if (method.getName().equals("prepareStatement") && args.length == 1) {
+                String sql = (String) args[0];
+                PreparedStatement statement = pooled.prepare(sql);
+                if (!pooled.isCheckedOut(statement)) {
+                    return statement;
+                }
+                return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+                        new StatementHandle(pooled, sql, statement, (Connection) proxy));
+            }
+            return ConnectionPool.invoke(pooled.connection, method, args);
+        }
+    }
+
+
+    /**
+     * A cached prepared statement given to a caller, which holds it until it closes the handle. Closing it clears it
+     * and leaves it open in the cache, or closes it if the cache dropped it in the meantime.
+     */
+    private static class StatementHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final String sql;
+        private final PreparedStatement statement;
+        private final Connection connection;
+        private boolean closed;
+
+        StatementHandle(PooledConnection pooled, String sql, PreparedStatement statement, Connection connection) {
+            this.pooled = pooled;
+            this.sql = sql;
+            this.statement = statement;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        pooled.release(sql, statement);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || statement.isClosed();
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            return ConnectionPool.invoke(statement, method, args);
+        }
+    }
+}
@@ -0,0 +1,518 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * CsvPipelineLoader.java
+ * Loads a CSV file into the table for its class through a pipeline of threads, so reading the file,
+ * parsing the rows and inserting them into the database all happen at the same time.
+ *
+ * Stages:
+ * - Reader (1 thread): reads the file in chunks of whole lines (1 MB by default).
+ * - Parsers (N threads): convert the lines of a chunk into objects (see CsvRowDecoder).
+ * - Writers (M threads): insert the objects in batches, each through its own pooled connection (see BatchInserter).
+ *
+ * The stages are connected by bounded queues, so a fast stage waits for a slow one (backpressure)
+ * instead of filling up memory. Each stage records how long it spent working, waiting for input and
+ * waiting for room to put its output, and each queue records how full it was; getStats reports them.
+ * A stage that is busy nearly all of the time while the others wait is the bottleneck, and adding threads
+ * to it (or taking them from the others) balances the pipeline.
+ *
+ * Rows are inserted in no particular order, and each writer commits its own batches,
+ * so if the load fails part way the rows committed before the failure stay in the table.
+ * The writers' connections come from SimpleDataSource, so pool.maxSize must leave room for them.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class CsvPipelineLoader<T> {
+    private static final byte[] END = new byte[0];
+
+    private final Class<T> cls;
+    private int parsers = 2;
+    private int writers = 2;
+    private int chunkSize = 1024 * 1024;
+    private int queueCapacity = 8;
+    private int batchSize = BatchInserter.DEFAULT_BATCH_SIZE;
+
+    private Stage reader;
+    private Stage parse;
+    private Stage write;
+    private QueueStats chunkQueue;
+    private QueueStats rowQueue;
+    private List<Thread> threads;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final AtomicLong committedRows = new AtomicLong();
+    private long elapsedNanos;
+
+    /**
+     * @param cls The class the file was saved from, whose table the rows are inserted into. The table must exist.
+     */
+    public CsvPipelineLoader(Class<T> cls) {
+        this.cls = cls;
+    }
+
+
+    /**
+     * @param parsers The number of parser threads (default 2).
+     * @return This loader.
+     */
+    public CsvPipelineLoader<T> setParsers(int parsers) {
+        this.parsers = positive("parsers", parsers);
+        return this;
+    }
+
+
+    /**
+     * @param writers The number of writer threads, each with its own connection (default 2).
+     * @return This loader.
+     */
+    public CsvPipelineLoader<T> setWriters(int writers) {
+        this.writers = positive("writers", writers);
+        return this;
+    }
+
+
+    /**
+     * @param chunkSize The number of bytes the reader reads at a time (default 1 MB). Chunks are cut on line ends.
+     * @return This loader.
+     */
+    public CsvPipelineLoader<T> setChunkSize(int chunkSize) {
+        this.chunkSize = positive("chunk size", chunkSize);
+        return this;
+    }
+
+
+    /**
+     * @param queueCapacity The number of chunks each queue holds before the stage feeding it has to wait (default 8).
+     * @return This loader.
+     */
+    public CsvPipelineLoader<T> setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = positive("queue capacity", queueCapacity);
+        return this;
+    }
+
+
+    /**
+     * @param batchSize The number of rows each writer sends to the database per batch (default 1000).
+     * @return This loader.
+     */
+    public CsvPipelineLoader<T> setBatchSize(int batchSize) {
+        this.batchSize = positive("batch size", batchSize);
+        return this;
+    }
+
+
+    private static int positive(String name, int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("The number of " + name + " must be at least 1: " + value);
+        }
+        return value;
+    }
+
+
+    /**
+     * Loads a CSV file written by ClassSaver, waiting until every row is inserted.
+     * @param csv The file, with a header line and the columns in the class's field order.
+     * @return The number of rows inserted.
+     * @throws SQLException If a writer could not insert its rows (or get a connection).
+     * @throws IOException If the file could not be read or a line could not be parsed.
+     * @throws InterruptedException If the calling thread was interrupted while waiting.
+     */
+    public synchronized long load(Path csv) throws SQLException, IOException, InterruptedException {
+        reader = new Stage("reader", 1);
+        parse = new Stage("parsers", parsers);
+        write = new Stage("writers", writers);
+        chunkQueue = new QueueStats("chunk queue", new ArrayBlockingQueue<>(queueCapacity));
+        rowQueue = new QueueStats("row queue", new ArrayBlockingQueue<>(queueCapacity));
+        CsvRowDecoder<T> decoder = CsvRowDecoder.forClass(cls);
+        AtomicInteger parsersLeft = new AtomicInteger(parsers);
+        threads = new ArrayList<>();
+        failure.set(null);
+        committedRows.set(0);
+
+        threads.add(new Thread(() -> read(csv), "CsvPipeline-reader"));
+        for (int i = 1; i <= parsers; i++) {
+            threads.add(new Thread(() -> parse(decoder, parsersLeft), "CsvPipeline-parser-" + i));
+        }
+        for (int i = 1; i <= writers; i++) {
+            threads.add(new Thread(this::write, "CsvPipeline-writer-" + i));
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.setUncaughtExceptionHandler((failed, e) -> fail(e));
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            fail(e);
+            throw e;
+        } finally {
+            elapsedNanos = System.nanoTime() - start;
+        }
+
+        Throwable cause = failure.get();
+        if (cause instanceof SQLException) {
+            throw (SQLException) cause;
+        } else if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause != null) {
+            throw new IOException("The pipeline failed: " + cause, cause);
+        }
+        return committedRows.get();
+    }
+
+
+    /**
+     * @return The number of rows the writers of the last load committed, including the ones committed
+     *         before it failed.
+     */
+    public long getRowsCommitted() {
+        return committedRows.get();
+    }
+
+
+    /**
+     * Remembers the first failure and interrupts every stage, so none are left waiting on a queue.
+     */
+    private void fail(Throwable e) {
+        if (failure.compareAndSet(null, e)) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+    }
+
+
+    /**
+     * Reads the file in chunks that end on a line end, skipping the header line, then tells every parser it's done.
+     */
+    private void read(Path csv) {
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+            byte[] array = buffer.array();
+            boolean header = true;
+            boolean atEnd = false;
+            while (!atEnd) {
+                long started = System.nanoTime();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        atEnd = true;
+                        break;
+                    }
+                }
+
+                // Keep the unfinished last line for the next chunk (the file's last line may not end with a newline)
+                int length = buffer.position();
+                int cut = length;
+                if (!atEnd) {
+                    while (cut > 0 && array[cut - 1] != '\n') {
+                        cut--;
+                    }
+                    if (cut == 0) {
+                        // A line longer than a chunk
+                        buffer = resize(buffer, buffer.capacity() * 2);
+                        array = buffer.array();
+                        continue;
+                    }
+                }
+
+                int from = 0;
+                if (header) {
+                    while (from < cut && array[from] != '\n') {
+                        from++;
+                    }
+                    from = Math.min(from + 1, cut);
+                    header = false;
+                }
+                byte[] chunk = Arrays.copyOfRange(array, from, cut);
+
+                buffer.limit(length).position(cut);
+                buffer.compact();
+                if (buffer.capacity() > chunkSize && buffer.position() < chunkSize) {
+                    buffer = resize(buffer, chunkSize);
+                    array = buffer.array();
+                }
+                reader.worked(started, 0, chunk.length);
+
+                if (chunk.length > 0) {
+                    chunkQueue.put(chunk, reader);
+                }
+            }
+
+            for (int i = 0; i < parsers; i++) {
+                chunkQueue.put(END, reader);
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            // The pipeline failed
+        }
+    }
+
+
+    private static ByteBuffer resize(ByteBuffer buffer, int capacity) {
+        ByteBuffer resized = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        return resized.put(buffer);
+    }
+
+
+    /**
+     * Converts chunks of lines into lists of objects. The last parser to finish tells every writer it's done.
+     */
+    private void parse(CsvRowDecoder<T> decoder, AtomicInteger parsersLeft) {
+        try {
+            while (true) {
+                byte[] chunk = (byte[]) chunkQueue.take(parse);
+                if (chunk == END) {
+                    break;
+                }
+
+                long started = System.nanoTime();
+                ByteBuffer wrapped = ByteBuffer.wrap(chunk);
+                List<T> rows = new ArrayList<>(chunk.length / 32);
+                int lineStart = 0;
+                for (int i = 0; i <= chunk.length; i++) {
+                    if (i == chunk.length || chunk[i] == '\n') {
+                        int lineEnd = i > lineStart && chunk[i - 1] == '\r' ? i - 1 : i;
+                        if (lineEnd > lineStart) {
+                            rows.add(decoder.decode(wrapped, lineStart, lineEnd));
+                        }
+                        lineStart = i + 1;
+                    }
+                }
+                parse.worked(started, rows.size(), chunk.length);
+                rowQueue.put(rows, parse);
+            }
+
+            if (parsersLeft.decrementAndGet() == 0) {
+                for (int i = 0; i < writers; i++) {
+                    rowQueue.put(END, parse);
+                }
+            }
+        } catch (InterruptedException e) {
+            // The pipeline failed
+        } catch (RuntimeException e) {
+            fail(new IOException("Error parsing a row: " + e.getMessage(), e));
+        }
+    }
+
+
+    /**
+     * Inserts lists of objects through a connection of its own, adding the rows it committed to committedRows.
+     */
+    @SuppressWarnings("unchecked")
+    private void write() {
+        BatchInserter<T> committed = null;
+        try (Connection conn = SimpleDataSource.getConnection();
+             BatchInserter<T> inserter = new BatchInserter<>(conn, cls, batchSize)) {
+            committed = inserter;
+            while (true) {
+                Object item = rowQueue.take(write);
+                if (item == END) {
+                    break;
+                }
+
+                long started = System.nanoTime();
+                List<T> rows = (List<T>) item;
+                for (T row : rows) {
+                    inserter.add(row);
+                }
+                write.worked(started, rows.size(), 0);
+            }
+            long started = System.nanoTime();
+            inserter.flush();
+            write.busyNanos.addAndGet(System.nanoTime() - started);
+        } catch (SQLException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            // The pipeline failed
+        } finally {
+            if (committed != null) {
+                committedRows.addAndGet(committed.getRowsInserted());
+            }
+        }
+    }
+
+
+    /**
+     * @return How long each stage of the last load spent working and waiting, how full the queues were,
+     *         and which stage was the bottleneck.
+     */
+    public synchronized String getStats() {
+        if (reader == null) {
+            return "No load yet";
+        }
+        double seconds = elapsedNanos / 1e9;
+        Stage bottleneck = reader;
+        for (Stage stage : Arrays.asList(parse, write)) {
+            if (stage.busyFraction(elapsedNanos) > bottleneck.busyFraction(elapsedNanos)) {
+                bottleneck = stage;
+            }
+        }
+        return String.format("Pipeline load took %.3f s (%.0f rows/sec)%n", seconds, write.rows.get() / Math.max(seconds, 1e-9))
+                + reader.describe(elapsedNanos) + parse.describe(elapsedNanos) + write.describe(elapsedNanos)
+                + chunkQueue.describe() + rowQueue.describe()
+                + "Bottleneck: " + bottleneck.name + "\n";
+    }
+
+
+    /**
+     * @return The stats of the reader stage.
+     */
+    public Stage getReader() {
+        return reader;
+    }
+
+
+    /**
+     * @return The stats of the parser stage (all its threads together).
+     */
+    public Stage getParse() {
+        return parse;
+    }
+
+
+    /**
+     * @return The stats of the writer stage (all its threads together).
+     */
+    public Stage getWrite() {
+        return write;
+    }
+
+
+    /**
+     * Counts what a stage's threads did and how long they spent working, waiting for input and waiting for room.
+     * Updated by the stage's threads as they go, so it can be read while a load is running.
+     */
+    public static class Stage {
+        private final String name;
+        private final int threads;
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicLong inputWaitNanos = new AtomicLong();
+        private final AtomicLong outputWaitNanos = new AtomicLong();
+
+        Stage(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        void worked(long startNanos, int rowCount, int byteCount) {
+            busyNanos.addAndGet(System.nanoTime() - startNanos);
+            items.incrementAndGet();
+            rows.addAndGet(rowCount);
+            bytes.addAndGet(byteCount);
+        }
+
+        /** @return The chunks handled so far. */
+        public long getItems() {
+            return items.get();
+        }
+
+        /** @return The rows handled so far (0 for the reader, which only sees bytes). */
+        public long getRows() {
+            return rows.get();
+        }
+
+        /** @return The bytes handled so far (0 for the writers). */
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        /** @return The time its threads spent working, in nanoseconds, added up. */
+        public long getBusyNanos() {
+            return busyNanos.get();
+        }
+
+        /** @return The time its threads spent waiting for the stage before them, in nanoseconds, added up. */
+        public long getInputWaitNanos() {
+            return inputWaitNanos.get();
+        }
+
+        /** @return The time its threads spent waiting for the stage after them, in nanoseconds, added up. */
+        public long getOutputWaitNanos() {
+            return outputWaitNanos.get();
+        }
+
+        double busyFraction(long elapsedNanos) {
+            return busyNanos.get() / (double) Math.max(1, elapsedNanos * threads);
+        }
+
+        String describe(long elapsedNanos) {
+            double busySeconds = busyNanos.get() / 1e9;
+            StringBuilder sb = new StringBuilder(String.format("  %-8s (%d thread%s) busy %3.0f%%: %d chunks",
+                    name, threads, threads == 1 ? "" : "s", busyFraction(elapsedNanos) * 100, items.get()));
+            if (rows.get() > 0) {
+                sb.append(String.format(", %d rows (%.0f rows/sec busy)", rows.get(), rows.get() / Math.max(busySeconds, 1e-9)));
+            }
+            if (bytes.get() > 0) {
+                sb.append(String.format(", %.1f MB (%.1f MB/sec busy)", bytes.get() / 1e6, bytes.get() / 1e6 / Math.max(busySeconds, 1e-9)));
+            }
+            return sb.append(String.format(", waited %.3f s for input and %.3f s for room%n",
+                    inputWaitNanos.get() / 1e9, outputWaitNanos.get() / 1e9)).toString();
+        }
+    }
+
+
+    /**
+     * A bounded queue between two stages, which samples how many items are in it whenever one is added.
+     */
+    private static class QueueStats {
+        private final String name;
+        private final BlockingQueue<Object> queue;
+        private final AtomicLong samples = new AtomicLong();
+        private final AtomicLong depthSum = new AtomicLong();
+        private final AtomicInteger maxDepth = new AtomicInteger();
+
+        QueueStats(String name, BlockingQueue<Object> queue) {
+            this.name = name;
+            this.queue = queue;
+        }
+
+        void put(Object item, Stage from) throws InterruptedException {
+            int depth = queue.size();
+            samples.incrementAndGet();
+            depthSum.addAndGet(depth);
+            maxDepth.accumulateAndGet(depth, Math::max);
+
+            long start = System.nanoTime();
+            queue.put(item);
+            from.outputWaitNanos.addAndGet(System.nanoTime() - start);
+        }
+
+        Object take(Stage to) throws InterruptedException {
+            long start = System.nanoTime();
+            Object item = queue.take();
+            to.inputWaitNanos.addAndGet(System.nanoTime() - start);
+            return item;
+        }
+
+        String describe() {
+            int capacity = queue.size() + queue.remainingCapacity();
+            return String.format("  %-11s average depth %.1f, max %d of %d%n", name,
+                    depthSum.get() / (double) Math.max(1, samples.get()), maxDepth.get(), capacity);
+        }
+    }
+}
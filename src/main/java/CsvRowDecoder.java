@@ -0,0 +1,431 @@
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * CsvRowDecoder.java
+ * Converts a line of a CSV file into an object, reading the values straight out of a byte buffer.
+ * Used by ObjectLoader for every way of loading a file.
+ *
+ * Functionality:
+ * - Parses int, double and boolean values from the bytes of a line, without creating a String first.
+ * - Looks up enum constants through a precomputed table keyed on the bytes of their names.
+ * - Writes primitive values into the fields through the class's ClassCodec, without boxing them.
+ *
+ * Once warmed up, the only objects created per row are the row object itself and any String field values.
+ * Doubles are parsed with the Eisel-Lemire algorithm, which is exact; the few values it can't decide
+ * (more than 19 significant digits, NaN, Infinity, subnormals) fall back to Double.parseDouble.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class CsvRowDecoder<T> {
+    private final ClassCodec<T> codec;
+    private final ClassCodec.FieldCodec[] fields;
+    private final EnumLookup[] enums;
+
+    /**
+     * Gets the decoder for a class, building it the first time the class is loaded.
+     * @param cls The class of the objects to decode.
+     * @return The decoder.
+     */
+    public static <T> CsvRowDecoder<T> forClass(Class<T> cls) {
+        return ClassCodec.forClass(cls).getDecoder();
+    }
+
+
+    /**
+     * Builds a decoder over the fields of a codec. Use forClass (or ClassCodec.getDecoder) to get the cached one.
+     * @param codec The codec of the class to decode.
+     */
+    CsvRowDecoder(ClassCodec<T> codec) {
+        this.codec = codec;
+        this.fields = codec.getFields().toArray(new ClassCodec.FieldCodec[0]);
+        this.enums = new EnumLookup[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].getKind() == ClassCodec.Kind.ENUM) {
+                enums[i] = new EnumLookup(fields[i].getType());
+            }
+        }
+    }
+
+
+    /**
+     * Creates an object from the line in [start, end) of the buffer.
+     * The values are in the same order as the codec's fields; missing trailing values leave their fields unset.
+     * @param buffer The buffer holding the line.
+     * @param start The index of the first byte of the line.
+     * @param end The index just past the last byte of the line (without the line ending).
+     * @return The created object.
+     * @throws IllegalArgumentException If a value can't be converted to its field's type.
+     */
+    public T decode(ByteBuffer buffer, int start, int end) {
+        T obj = codec.newInstance();
+        int position = start;
+        for (int i = 0; i < fields.length && position <= end; i++) {
+            int comma = position;
+            while (comma < end && buffer.get(comma) != ',') {
+                comma++;
+            }
+            decodeField(obj, i, buffer, position, comma);
+            position = comma + 1;
+        }
+        return obj;
+    }
+
+
+    /**
+     * Converts one value and writes it into its field.
+     */
+    private void decodeField(T obj, int index, ByteBuffer buffer, int start, int end) {
+        // Trim spaces around the value
+        while (start < end && buffer.get(start) == ' ') {
+            start++;
+        }
+        while (end > start && buffer.get(end - 1) == ' ') {
+            end--;
+        }
+
+        ClassCodec.FieldCodec field = fields[index];
+        switch (field.getKind()) {
+            case INT:
+                field.setInt(obj, parseInt(buffer, start, end));
+                break;
+            case DOUBLE:
+                field.setDouble(obj, parseDouble(buffer, start, end));
+                break;
+            case BOOLEAN:
+                field.setBoolean(obj, parseBoolean(buffer, start, end));
+                break;
+            case STRING:
+                field.set(obj, decodeString(buffer, start, end));
+                break;
+            case ENUM:
+                field.set(obj, start == end ? null : enums[index].get(buffer, start, end));
+                break;
+            default:
+                field.set(obj, start == end ? null : parseBoxed(field.getType(), buffer, start, end));
+                break;
+        }
+    }
+
+
+    private static Object parseBoxed(Class<?> type, ByteBuffer buffer, int start, int end) {
+        if (type == Integer.class) {
+            return parseInt(buffer, start, end);
+        } else if (type == Double.class) {
+            return parseDouble(buffer, start, end);
+        } else {
+            return parseBoolean(buffer, start, end);
+        }
+    }
+
+
+    /**
+     * Parses a decimal int from the bytes in [start, end).
+     * @throws NumberFormatException If the bytes are not a valid int.
+     */
+    public static int parseInt(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException("For input string: \"" + decodeString(buffer, start, end) + "\"");
+        }
+
+        // Accumulate as a negative number, which has room for Integer.MIN_VALUE
+        int result = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || result < (Integer.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("For input string: \"" + decodeString(buffer, start, end) + "\"");
+            }
+            result = result * 10 - digit;
+        }
+
+        if (!negative) {
+            if (result == Integer.MIN_VALUE) {
+                throw new NumberFormatException("For input string: \"" + decodeString(buffer, start, end) + "\"");
+            }
+            return -result;
+        }
+        return result;
+    }
+
+
+    /**
+     * Parses a boolean from the bytes in [start, end), the same way Boolean.parseBoolean does.
+     */
+    public static boolean parseBoolean(ByteBuffer buffer, int start, int end) {
+        return end - start == 4
+                && (buffer.get(start) | 0x20) == 't'
+                && (buffer.get(start + 1) | 0x20) == 'r'
+                && (buffer.get(start + 2) | 0x20) == 'u'
+                && (buffer.get(start + 3) | 0x20) == 'e';
+    }
+
+
+    /**
+     * Parses a double from the bytes in [start, end), giving the same result as Double.parseDouble.
+     * @throws NumberFormatException If the bytes are not a valid double.
+     */
+    public static double parseDouble(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+
+        // Read up to 19 significant digits into the mantissa, and track the decimal exponent
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigits = false;
+        boolean seenPoint = false;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                anyDigits = true;
+                if (mantissa == 0 && b == '0') {
+                    // Leading zeros don't count toward the significant digits
+                    if (seenPoint) {
+                        exponent--;
+                    }
+                } else if (significantDigits < 19) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    significantDigits++;
+                    if (seenPoint) {
+                        exponent--;
+                    }
+                } else {
+                    return parseDoubleSlow(buffer, start, end);
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+
+        if (i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E') && anyDigits) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                negativeExponent = buffer.get(i) == '-';
+                i++;
+            }
+            int exponentStart = i;
+            int written = 0;
+            for (; i < end && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++) {
+                if (written < 10000) {
+                    written = written * 10 + (buffer.get(i) - '0');
+                }
+            }
+            if (i == exponentStart) {
+                return parseDoubleSlow(buffer, start, end);
+            }
+            exponent += negativeExponent ? -written : written;
+        }
+
+        // Anything else (NaN, Infinity, hex, trailing type suffixes, bad input) goes to the JDK parser
+        if (i != end || !anyDigits) {
+            return parseDoubleSlow(buffer, start, end);
+        }
+
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        long bits = eiselLemire(mantissa, exponent);
+        if (bits < 0) {
+            return parseDoubleSlow(buffer, start, end);
+        }
+        return Double.longBitsToDouble(negative ? bits | Long.MIN_VALUE : bits);
+    }
+
+
+    private static double parseDoubleSlow(ByteBuffer buffer, int start, int end) {
+        return Double.parseDouble(decodeString(buffer, start, end));
+    }
+
+
+    // 128-bit approximations (rounded down) of the powers of ten from 10^-348 to 10^347,
+    // stored as {low, high} pairs with the high bit of the high word set.
+    private static final int MIN_POWER = -348;
+    private static final int MAX_POWER = 347;
+    private static final long[] POWERS_OF_TEN = buildPowersOfTen();
+
+    private static long[] buildPowersOfTen() {
+        long[] table = new long[(MAX_POWER - MIN_POWER + 1) * 2];
+        BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        for (int power = MIN_POWER; power <= MAX_POWER; power++) {
+            BigInteger value;
+            if (power >= 0) {
+                value = BigInteger.TEN.pow(power);
+            } else {
+                // Scale 2^k / 10^-power so the quotient has well over 128 bits
+                BigInteger divisor = BigInteger.TEN.pow(-power);
+                value = BigInteger.ONE.shiftLeft(divisor.bitLength() + 192).divide(divisor);
+            }
+
+            int shift = value.bitLength() - 128;
+            value = shift > 0 ? value.shiftRight(shift) : value.shiftLeft(-shift);
+            int index = (power - MIN_POWER) * 2;
+            table[index] = value.and(mask).longValue();
+            table[index + 1] = value.shiftRight(64).longValue();
+        }
+        return table;
+    }
+
+
+    /**
+     * Converts mantissa * 10^exponent to the bits of the nearest double, using the Eisel-Lemire algorithm.
+     * @param mantissa The decimal mantissa, non-zero and read as unsigned.
+     * @param exponent The decimal exponent.
+     * @return The bits of the positive double, or -1 if the result can't be decided this way.
+     */
+    private static long eiselLemire(long mantissa, int exponent) {
+        if (exponent < MIN_POWER || exponent > MAX_POWER) {
+            return -1;
+        }
+
+        // Normalize so the mantissa's high bit is set
+        int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        mantissa <<= leadingZeros;
+        long exponent2 = ((217706L * exponent) >> 16) + 64 + 1023 - leadingZeros;
+
+        // Multiply by the 128-bit power of ten, keeping the high 128 bits of the product
+        int index = (exponent - MIN_POWER) * 2;
+        long powerLow = POWERS_OF_TEN[index];
+        long powerHigh = POWERS_OF_TEN[index + 1];
+        long high = unsignedMultiplyHigh(mantissa, powerHigh);
+        long low = mantissa * powerHigh;
+
+        // If the low bits are all ones the truncated power might matter, so include its low half
+        if ((high & 0x1FF) == 0x1FF && Long.compareUnsigned(low + mantissa, mantissa) < 0) {
+            long productHigh = unsignedMultiplyHigh(mantissa, powerLow);
+            long productLow = mantissa * powerLow;
+            long mergedHigh = high;
+            long mergedLow = low + productHigh;
+            if (Long.compareUnsigned(mergedLow, low) < 0) {
+                mergedHigh++;
+            }
+            if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0
+                    && Long.compareUnsigned(productLow + mantissa, mantissa) < 0) {
+                return -1;
+            }
+            high = mergedHigh;
+            low = mergedLow;
+        }
+
+        // Shift down to 54 bits
+        long topBit = high >>> 63;
+        long result = high >>> (topBit + 9);
+        exponent2 -= 1 ^ topBit;
+
+        // Exactly half way between two doubles: let the slow path decide
+        if (low == 0 && (high & 0x1FF) == 0 && (result & 3) == 1) {
+            return -1;
+        }
+
+        // Round from 54 to 53 bits
+        result += result & 1;
+        result >>>= 1;
+        if ((result >>> 53) > 0) {
+            result >>>= 1;
+            exponent2++;
+        }
+
+        // Subnormal, infinite or NaN results
+        if (exponent2 <= 0 || exponent2 >= 0x7FF) {
+            return -1;
+        }
+        return (exponent2 << 52) | (result & 0x000FFFFFFFFFFFFFL);
+    }
+
+
+    private static long unsignedMultiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+
+
+    private static String decodeString(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Looks up the constants of an enum by the bytes of their names, without creating a String.
+     */
+    static final class EnumLookup {
+        private final Class<?> type;
+        private final byte[][] names;
+        private final Object[] constants;
+        private final int mask;
+
+        EnumLookup(Class<?> type) {
+            this.type = type;
+            Object[] values = type.getEnumConstants();
+
+            // Open addressing table, at most a quarter full
+            int size = Integer.highestOneBit(Math.max(values.length, 1) * 4 - 1) << 1;
+            this.names = new byte[size][];
+            this.constants = new Object[size];
+            this.mask = size - 1;
+
+            for (Object value : values) {
+                byte[] name = ((Enum<?>) value).name().getBytes(StandardCharsets.UTF_8);
+                int slot = hash(ByteBuffer.wrap(name), 0, name.length) & mask;
+                while (names[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                names[slot] = name;
+                constants[slot] = value;
+            }
+        }
+
+        /**
+         * @return The constant whose name is the bytes in [start, end).
+         * @throws IllegalArgumentException If no constant has that name.
+         */
+        Object get(ByteBuffer buffer, int start, int end) {
+            int slot = hash(buffer, start, end) & mask;
+            while (names[slot] != null) {
+                if (matches(names[slot], buffer, start, end)) {
+                    return constants[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            throw new IllegalArgumentException("No enum constant " + type.getCanonicalName() + "."
+                    + decodeString(buffer, start, end));
+        }
+
+        private static int hash(ByteBuffer buffer, int start, int end) {
+            int h = end - start;
+            for (int i = start; i < end; i++) {
+                h = h * 31 + buffer.get(i);
+            }
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean matches(byte[] name, ByteBuffer buffer, int start, int end) {
+            if (name.length != end - start) {
+                return false;
+            }
+            for (int i = 0; i < name.length; i++) {
+                if (name[i] != buffer.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
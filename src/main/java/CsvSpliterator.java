@@ -0,0 +1,292 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+
+/**
+ * CsvSpliterator.java
+ * Spliterator that reads the rows in a byte range of a CSV file one line at a time.
+ * Used by ObjectLoader.stream to load objects lazily.
+ *
+ * Functionality:
+ * - Reads the file through a fixed size buffer, so memory stays bounded no matter how big the file is.
+ * - Converts each line into an object as it is reached, decoding the values straight from the buffer.
+ * - Splits its range in half on a line boundary, so the rows can be parsed in parallel.
+ *
+ * Every range starts at the beginning of a line and ends at the beginning of a line (or the end of the file).
+ * A line that can't be decoded stops the stream with the decoder's exception, unless a BadLineHandler is set,
+ * in which case the line is handed to it and skipped.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class CsvSpliterator<T> implements Spliterator<T> {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MIN_SPLIT_SIZE = 1024 * 1024;
+
+    private final Path path;
+    private final CsvRowDecoder<T> decoder;
+    private final Queue<FileChannel> openChannels;
+    private final long end;
+    private BadLineHandler badLines;
+
+    private FileChannel channel;
+    private long readPosition;
+    private byte[] buffer;
+    private ByteBuffer wrapped;
+    private int bufferPosition;
+    private int bufferLimit;
+
+    // The bounds of the line most recently read by nextLine
+    private int lineStart;
+    private int lineEnd;
+
+    /**
+     * Creates a spliterator over the lines in [start, end) of a file.
+     * @param path The CSV file.
+     * @param start The offset of the first line to read.
+     * @param end The offset to stop reading at.
+     * @param decoder Converts a line of the file into an object.
+     * @param openChannels Collects the channels opened by this spliterator and its splits, so they can be closed together.
+     */
+    public CsvSpliterator(Path path, long start, long end, CsvRowDecoder<T> decoder, Queue<FileChannel> openChannels) {
+        this.path = path;
+        this.readPosition = start;
+        this.end = end;
+        this.decoder = decoder;
+        this.openChannels = openChannels;
+    }
+
+
+    /**
+     * Skips the lines that can't be decoded instead of failing, handing each one to a handler.
+     * Also applies to the spliterators split off afterwards.
+     * @param badLines The handler.
+     * @return This spliterator.
+     */
+    public CsvSpliterator<T> setBadLineHandler(BadLineHandler badLines) {
+        this.badLines = badLines;
+        return this;
+    }
+
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (readPosition >= end && bufferPosition == bufferLimit) {
+            closeChannel();
+            return false;
+        }
+
+        while (true) {
+            do {
+                if (!nextLine()) {
+                    closeChannel();
+                    return false;
+                }
+            } while (lineStart == lineEnd);
+
+            if (badLines == null) {
+                action.accept(decoder.decode(wrapped, lineStart, lineEnd));
+                return true;
+            }
+            T row;
+            try {
+                row = decoder.decode(wrapped, lineStart, lineEnd);
+            } catch (IllegalArgumentException e) {
+                // The buffer's end lines up with readPosition in the file
+                long offset = readPosition - bufferLimit + lineStart;
+                badLines.skipped(offset, new String(buffer, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8), e);
+                continue;
+            }
+            action.accept(row);
+            return true;
+        }
+    }
+
+
+    /**
+     * Splits off the first half of the remaining range, ending on a line boundary.
+     * Only splits before this spliterator has started reading.
+     */
+    @Override
+    public Spliterator<T> trySplit() {
+        if (buffer != null || end - readPosition < MIN_SPLIT_SIZE) {
+            return null;
+        }
+
+        long middle = findLineStart(readPosition + (end - readPosition) / 2);
+        if (middle <= readPosition || middle >= end) {
+            return null;
+        }
+
+        CsvSpliterator<T> prefix = new CsvSpliterator<>(path, readPosition, middle, decoder, openChannels);
+        prefix.badLines = badLines;
+        readPosition = middle;
+        return prefix;
+    }
+
+
+    /**
+     * Estimates the size as the number of unread bytes, which is proportional to the number of rows left.
+     */
+    @Override
+    public long estimateSize() {
+        return end - readPosition + (bufferLimit - bufferPosition);
+    }
+
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+
+    /**
+     * Finds the next line of the range in the buffer, and sets lineStart and lineEnd to its bounds
+     * (without the line ending).
+     * @return False if the range has been fully read.
+     */
+    private boolean nextLine() {
+        if (buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+            wrapped = ByteBuffer.wrap(buffer);
+        }
+
+        int scan = bufferPosition;
+        while (true) {
+            for (; scan < bufferLimit; scan++) {
+                if (buffer[scan] == '\n') {
+                    setLine(bufferPosition, scan);
+                    bufferPosition = scan + 1;
+                    return true;
+                }
+            }
+
+            // The last line of the file may not end with a newline
+            if (readPosition >= end) {
+                if (bufferPosition == bufferLimit) {
+                    return false;
+                }
+                setLine(bufferPosition, bufferLimit);
+                bufferPosition = bufferLimit;
+                return true;
+            }
+
+            scan -= bufferPosition;
+            fill();
+        }
+    }
+
+
+    /**
+     * Moves the unread bytes to the front of the buffer and reads more of the range after them.
+     * The buffer grows if a single line doesn't fit in it.
+     */
+    private void fill() {
+        int remaining = bufferLimit - bufferPosition;
+        if (remaining == buffer.length) {
+            byte[] larger = new byte[buffer.length * 2];
+            System.arraycopy(buffer, bufferPosition, larger, 0, remaining);
+            buffer = larger;
+            wrapped = ByteBuffer.wrap(buffer);
+        } else {
+            System.arraycopy(buffer, bufferPosition, buffer, 0, remaining);
+        }
+        bufferPosition = 0;
+        bufferLimit = remaining;
+
+        int toRead = (int) Math.min(buffer.length - remaining, end - readPosition);
+        try {
+            int read = channel().read(ByteBuffer.wrap(buffer, remaining, toRead), readPosition);
+            if (read < 0) {
+                // The file shrank while it was being read
+                readPosition = end;
+                return;
+            }
+            bufferLimit += read;
+            readPosition += read;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading " + path, e);
+        }
+    }
+
+
+    /**
+     * Finds the offset of the first line that starts at or after the given offset.
+     */
+    private long findLineStart(long offset) {
+        ByteBuffer scan = ByteBuffer.allocate(4096);
+        long position = offset - 1;
+        try {
+            while (position < end) {
+                scan.clear();
+                int read = channel().read(scan, position);
+                if (read < 0) {
+                    return end;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (scan.get(i) == '\n') {
+                        return position + i + 1;
+                    }
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading " + path, e);
+        }
+        return end;
+    }
+
+
+    private void setLine(int from, int to) {
+        if (to > from && buffer[to - 1] == '\r') {
+            to--;
+        }
+        lineStart = from;
+        lineEnd = to;
+    }
+
+
+    /**
+     * Receives the lines that couldn't be decoded.
+     */
+    public interface BadLineHandler {
+        /**
+         * @param offset The offset of the line in the file.
+         * @param line The line, without its line ending.
+         * @param error Why it couldn't be decoded.
+         */
+        void skipped(long offset, String line, IllegalArgumentException error);
+    }
+
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            openChannels.add(channel);
+        }
+        return channel;
+    }
+
+
+    private void closeChannel() {
+        if (channel != null) {
+            openChannels.remove(channel);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("Error closing " + path + ": " + e.getMessage());
+            }
+            channel = null;
+        }
+        buffer = null;
+        wrapped = null;
+    }
+}
@@ -0,0 +1,408 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * CsvTailIngester.java
+ * Keeps a table up to date with CSV files that are being appended to (e.g. by a ClassSaver opened in append mode),
+ * inserting only the rows added since the last time it looked.
+ *
+ * Functionality:
+ * - Ingests one CSV file, or every ".csv" file in a directory.
+ * - Remembers how far into each file it has ingested (a byte offset) in a checkpoint file,
+ *   so a restarted ingester picks up where the last one stopped.
+ * - Only reads the bytes after the checkpoint, so each pass costs as much as the new data, not the whole file.
+ * - Only ingests complete lines; a row that is still being written is left for the next pass.
+ * - Inserts the new rows in batches through a BatchInserter, streaming them straight from the file.
+ * - Watches for changes with a WatchService (ingestNew can also be called directly, e.g. from a scheduler).
+ *
+ * Each pass is inserted in one transaction and the checkpoint is saved after it commits, so a pass that fails is
+ * retried from the same place without duplicating rows. If the program stops between the commit and the checkpoint,
+ * those rows are inserted again on restart (at least once, never skipped).
+ * A line that can't be decoded (e.g. an unknown enum constant) is logged and skipped, so it doesn't hold back
+ * the lines after it.
+ * A file that is shorter than its checkpoint was replaced or truncated, and is ingested again from the start.
+ *
+ * Each pass takes a pooled connection of its own (SimpleDataSource, so pool.maxSize must leave room for it)
+ * instead of the Database's shared one. Its transaction therefore never takes in, commits or rolls back what the
+ * caller does on the Database while start()'s thread is ingesting. The Database's result cache and statement
+ * metrics are still updated for the table.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class CsvTailIngester<T> implements Closeable {
+    // The most new data ingested before saving a checkpoint, so a large backlog isn't redone after a failure
+    private static final long MAX_PASS_BYTES = 64L * 1024 * 1024;
+    private static final long POLL_MILLIS = 1000;
+
+    private final Database database;
+    private final Class<T> cls;
+    private final Path directory;
+    private final String fileName;
+    private final Path checkpointFile;
+    private final Properties checkpoints = new Properties();
+
+    private volatile WatchService watcher;
+    private volatile boolean closed;
+    private Thread thread;
+    private long rowsIngested;
+    private long linesSkipped;
+
+    /**
+     * Creates an ingester, reading the checkpoint file if it exists, and creates the class's table if it doesn't exist.
+     * @param database The database to insert into.
+     * @param csv A CSV file, or a directory whose ".csv" files are all ingested.
+     * @param cls The class the files were saved from, whose table the rows are inserted into.
+     * @param checkpointFile The file the offsets ingested so far are kept in.
+     * @throws IOException If the checkpoint file could not be read.
+     */
+    public CsvTailIngester(Database database, Path csv, Class<T> cls, Path checkpointFile) throws IOException {
+        this.database = database;
+        this.cls = cls;
+        this.checkpointFile = checkpointFile;
+
+        Path absolute = csv.toAbsolutePath();
+        if (Files.isDirectory(absolute)) {
+            this.directory = absolute;
+            this.fileName = null;
+        } else {
+            this.directory = absolute.getParent();
+            this.fileName = absolute.getFileName().toString();
+        }
+
+        if (Files.exists(checkpointFile)) {
+            try (InputStream in = Files.newInputStream(checkpointFile)) {
+                checkpoints.load(in);
+            }
+        }
+        database.createTable(cls);
+    }
+
+
+    /**
+     * Ingests the rows added to the watched files since the last pass.
+     * @return The number of rows inserted.
+     */
+    public synchronized long ingestNew() {
+        long rows = 0;
+        if (fileName != null) {
+            Path file = directory.resolve(fileName);
+            return Files.exists(file) ? ingest(file) : 0;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.csv")) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    rows += ingest(file);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error listing " + directory + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        return rows;
+    }
+
+
+    /**
+     * Ingests the rows added to one file since its checkpoint, a pass of up to 64 MB at a time,
+     * saving the checkpoint after each pass.
+     * If there is an issue, the checkpoint stays after the last pass that was inserted.
+     * @return The number of rows inserted.
+     */
+    private long ingest(Path file) {
+        String key = file.getFileName().toString();
+        long offset = Long.parseLong(checkpoints.getProperty(key, "0"));
+        long rows = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < offset) {
+                database.dbLog.log(file + " is shorter than its checkpoint (" + size + " < " + offset
+                        + "), so it is being ingested again from the start");
+                offset = 0;
+            }
+
+            while (offset < size) {
+                long end = findLastLineEnd(channel, offset, Math.min(size, offset + MAX_PASS_BYTES));
+                if (end < 0) {
+                    // A line longer than a pass, or one that isn't finished yet
+                    end = findLastLineEnd(channel, offset, size);
+                    if (end < 0) {
+                        break;
+                    }
+                }
+
+                long start = offset;
+                if (start == 0) {
+                    // Skip the header line
+                    start = ObjectLoader.findHeaderEnd(file);
+                }
+
+                long inserted = insertRange(file, start, end);
+                if (inserted < 0) {
+                    return rows;
+                }
+                rows += inserted;
+                rowsIngested += inserted;
+                offset = end;
+                checkpoints.setProperty(key, Long.toString(offset));
+                saveCheckpoints();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Kept from the watch thread, which would otherwise die; the next pass retries from the checkpoint
+            System.out.println("Error ingesting " + file + ": " + e.getMessage());
+            e.printStackTrace();
+            return rows;
+        }
+
+        if (rows > 0) {
+            database.dbLog.log("Ingested " + rows + " new rows from " + file + " (up to byte " + offset + ")");
+        }
+        return rows;
+    }
+
+
+    /**
+     * Inserts the lines in [start, end) of a file in one transaction, skipping the ones that can't be decoded.
+     * @return The number of rows inserted, or -1 if there was an issue inserting them (none were inserted).
+     */
+    private long insertRange(Path file, long start, long end) {
+        if (start >= end) {
+            return 0;
+        }
+
+        Queue<FileChannel> openChannels = new ConcurrentLinkedQueue<>();
+        CsvSpliterator<T> lines = new CsvSpliterator<>(file, start, end, CsvRowDecoder.forClass(cls), openChannels)
+                .setBadLineHandler((offset, line, error) -> {
+                    linesSkipped++;
+                    database.dbLog.log("Skipped the line at byte " + offset + " of " + file + " (" + error.getMessage()
+                            + "): " + line);
+                });
+        String tableName = DatabaseUtils.buildTableName(cls);
+        StatementMetrics.Shape shape = BatchInserter.shapeFor(cls);
+        long started = System.nanoTime();
+        try (Connection conn = SimpleDataSource.getConnection();
+             BatchInserter<T> inserter = new BatchInserter<>(conn, cls, database.getBatchSize()).setCommitEachBatch(false);
+             Stream<T> rows = StreamSupport.stream(lines, false)) {
+            rows.forEachOrdered(row -> {
+                try {
+                    inserter.add(row);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            inserter.commit();
+            long inserted = inserter.getRowsInserted();
+            database.getMetrics().record(shape, System.nanoTime() - started, inserted, false);
+            database.invalidateCachedResults(tableName);
+            return inserted;
+        } catch (SQLException | RuntimeException e) {
+            // Nothing was committed, so the table is as it was
+            database.getMetrics().record(shape, System.nanoTime() - started, 0, true);
+            database.dbLog.log("There was an issue inserting bytes " + start + "-" + end + " of " + file + " into "
+                    + tableName + "; none of them were inserted\n");
+            e.printStackTrace();
+            return -1;
+        } finally {
+            FileChannel channel;
+            while ((channel = openChannels.poll()) != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.out.println("Error closing " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Finds the end of the last complete line in [from, to), reading backwards from to.
+     * @return The offset just past the line's newline, or -1 if there is no newline in the range.
+     */
+    private static long findLastLineEnd(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(64 * 1024);
+        long position = to;
+        while (position > from) {
+            int length = (int) Math.min(scan.capacity(), position - from);
+            scan.clear().limit(length);
+            long chunkStart = position - length;
+            while (scan.hasRemaining()) {
+                if (channel.read(scan, chunkStart + scan.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = scan.position() - 1; i >= 0; i--) {
+                if (scan.get(i) == '\n') {
+                    return chunkStart + i + 1;
+                }
+            }
+            position = chunkStart;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Writes the checkpoints to a temporary file and moves it over the checkpoint file,
+     * so a crash never leaves a half written checkpoint.
+     */
+    private void saveCheckpoints() throws IOException {
+        Path absolute = checkpointFile.toAbsolutePath();
+        Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            checkpoints.store(out, "Bytes of each file ingested into " + DatabaseUtils.buildTableName(cls));
+        }
+        try {
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+
+    /**
+     * Ingests what is already there, then watches for changes and ingests new rows as they are appended,
+     * until the ingester is closed or the thread is interrupted. Also checks every second,
+     * since some platforms' watch services are slow to report changes.
+     * @throws IOException If the directory could not be watched.
+     */
+    public void watch() throws IOException {
+        try (WatchService service = directory.getFileSystem().newWatchService()) {
+            watcher = service;
+            if (closed) {
+                return;
+            }
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            ingestNew();
+
+            while (!closed && !Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    ingestNew();
+                    continue;
+                }
+
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || (context instanceof Path && isWatched((Path) context));
+                }
+                key.reset();
+                if (changed) {
+                    ingestNew();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Closed by close
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            watcher = null;
+        }
+    }
+
+
+    private boolean isWatched(Path changed) {
+        String name = changed.toString();
+        return fileName != null ? fileName.equals(name) : name.endsWith(".csv");
+    }
+
+
+    /**
+     * Starts watching on a background thread.
+     * @return This ingester.
+     */
+    public synchronized CsvTailIngester<T> start() {
+        if (thread != null) {
+            throw new IllegalStateException("The ingester is already started");
+        }
+        thread = new Thread(() -> {
+            try {
+                watch();
+            } catch (IOException e) {
+                System.out.println("Error watching " + directory + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }, "CsvTailIngester-" + directory.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+
+    /**
+     * @return The number of rows inserted so far.
+     */
+    public synchronized long getRowsIngested() {
+        return rowsIngested;
+    }
+
+
+    /**
+     * @return The number of lines skipped so far because they couldn't be decoded.
+     */
+    public synchronized long getLinesSkipped() {
+        return linesSkipped;
+    }
+
+
+    /**
+     * @param file A watched file.
+     * @return The offset it has been ingested up to.
+     */
+    public synchronized long getCheckpoint(Path file) {
+        return Long.parseLong(checkpoints.getProperty(file.getFileName().toString(), "0"));
+    }
+
+
+    /**
+     * Stops watching, waiting for a pass that is in progress to finish.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        WatchService service = watcher;
+        if (service != null) {
+            service.close();
+        }
+
+        Thread running;
+        synchronized (this) {
+            running = thread;
+        }
+        if (running != null && running != Thread.currentThread()) {
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -2,28 +2,99 @@
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.CallableStatement;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetProvider;
 
 /**
    Database.java
    Main class for managing database operations.
-   - Initializes the database connection.
+   - Initializes the database connection on a background thread, so Derby boots while the caller works,
+     and prepares the statements of known classes while it's at it.
    - Executes SQL commands.
+   - Inserts lists of objects in batches.
+   - Bulk imports csv files written by ClassSaver with Derby's import procedure.
+   - Maps query results back into objects, as a list or a stream.
+   - Writes query results to a Writer, OutputStream or channel as they are read (text, CSV or JSON lines).
+   - Optionally caches query results until a statement changes their tables (QueryResultCache).
+   - Creates the indexes a class declares (Indexed), recommends indexes for frequently filtered columns
+     (IndexAdvisor), and optionally creates them and refreshes the table statistics after bulk loads.
+   - Times every statement, and the startup (StatementMetrics, also exposed through JMX).
    - Closes database connections.
    - Logs database operations.
 
    @author Elijah Reyna
-   Last Edited 9/21/25
+   Last Edited 10/18/26
 */
 public class Database{
+   // Set by the boot thread; use conn() and stat(), which wait for the boot
    private Connection conn;
-   private static Statement stat;
-   DatabaseLog dbLog = new DatabaseLog();
+   private Statement stat;
+   private final CompletableFuture<Void> boot;
+   private int batchSize = BatchInserter.DEFAULT_BATCH_SIZE;
+   private int fetchSize;
+   private volatile QueryResultCache resultCache;
+   private static final RowSetFactory ROW_SETS = newRowSetFactory();
+   private final StatementMetrics metrics = new StatementMetrics();
+   private final IndexAdvisor indexAdvisor = new IndexAdvisor();
+   private volatile boolean autoIndexing;
+   private final AtomicBoolean indexCheckDue = new AtomicBoolean();
+   // Creates the recommended indexes off the query threads, on a connection of its own
+   private ExecutorService indexer;
+   // Inserting at least this many rows at once refreshes the table's statistics when auto indexing
+   private static final long STATISTICS_REFRESH_ROWS = 10_000;
+   private static final String IMPORT_DATA = "CALL SYSCS_UTIL.SYSCS_IMPORT_DATA(null, ?, null, null, ?, null, null, 'UTF-8', ?)";
+   private static final String UPDATE_STATISTICS = "CALL SYSCS_UTIL.SYSCS_UPDATE_STATISTICS(?, ?, null)";
+   private static final String BACKUP_DATABASE = "CALL SYSCS_UTIL.SYSCS_BACKUP_DATABASE(?)";
+   // Their metrics shapes, so recording them doesn't normalize the SQL every time
+   private static final StatementMetrics.Shape IMPORT_DATA_SHAPE = StatementMetrics.Shape.of(IMPORT_DATA);
+   private static final StatementMetrics.Shape UPDATE_STATISTICS_SHAPE = StatementMetrics.Shape.of(UPDATE_STATISTICS);
+   private static final StatementMetrics.Shape BACKUP_DATABASE_SHAPE = StatementMetrics.Shape.of(BACKUP_DATABASE);
+   private ScheduledExecutorService metricsReporter;
+   DatabaseLog dbLog = DatabaseLog.async();
+
+   private static RowSetFactory newRowSetFactory(){
+      try {
+         return RowSetProvider.newFactory();
+      } catch (SQLException e) {
+         throw new ExceptionInInitializerError(e);
+      }
+   }
+
 
    /**
     * Default constructor that initializes the database with a default configuration file.
@@ -33,18 +104,57 @@ public class Database{
    }
 
    /**
-    * Constructor that initializes the database with a specified configuration file.
+    * Constructor that initializes the database with a specified configuration file, in the background.
     * @param filename The name of the configuration file.
     */
    public Database(String filename){
+      this(filename, new Class<?>[0]);
+   }
+
+   /**
+    * Constructor that initializes the database with a specified configuration file.
+    * Derby boots on a background thread, so the caller can get on with other work (e.g. generating or
+    * parsing data) in the meantime; the first call that needs the database waits for the boot to finish.
+    * @param filename The name of the configuration file.
+    * @param warmUpClasses Classes whose insert and select statements are prepared during the boot
+    *                      (if their tables exist), so the first real statements don't pay to compile them.
+    */
+   public Database(String filename, Class<?>... warmUpClasses){
+      metrics.register();
+      System.out.println("Initializing database with " + filename + " in the background");
+      boot = CompletableFuture.runAsync(() -> boot(filename, warmUpClasses), runnable -> {
+         Thread thread = new Thread(runnable, "Database-boot");
+         thread.setDaemon(true);
+         thread.start();
+      });
+   }
+
+
+   /**
+    * Initializes the data source (loading the driver, opening the database and recovering its log),
+    * then prepares the warm-up classes' statements. Runs on the boot thread.
+    */
+   private void boot(String filename, Class<?>[] warmUpClasses){
+      long start = System.nanoTime();
       try {
          initializeDataSource(filename);
-      } catch (ClassNotFoundException | SQLException | IOException e) {
+      } catch (ClassNotFoundException | SQLException | IOException | RuntimeException e) {
          System.out.println("There was an issue initializing the database");
          e.printStackTrace();
+         throw new IllegalStateException("The database could not be initialized", e);
+      }
+      long booted = System.nanoTime();
+
+      int prepared = 0;
+      for (Class<?> cls : warmUpClasses) {
+         prepared += warmUp(cls);
       }
-      
+      long warmedUp = System.nanoTime();
+
+      metrics.recordBoot(booted - start, warmedUp - booted);
       System.out.println("Database initialized successfully");
+      dbLog.log(String.format("Booted the database in %.1f ms and prepared %d warm-up statements in %.1f ms%n",
+            (booted - start) / 1e6, prepared, (warmedUp - booted) / 1e6));
    }
 
 
@@ -56,11 +166,79 @@ public class Database{
     * @throws ClassNotFoundException 
     */
    private void initializeDataSource(String filename) throws SQLException, ClassNotFoundException, IOException{
-      System.out.print("Initializing database with " + filename + "...   ");
-
       SimpleDataSource.init(filename);
       conn = SimpleDataSource.getConnection();
       stat = conn.createStatement();
+      dbLog.log("Storage: " + SimpleDataSource.getStorageProfile() + " (" + SimpleDataSource.getUrl() + ")");
+   }
+
+
+   /**
+    * Prepares a class's insert and select-all statements, which leaves them compiled in Derby's statement cache
+    * and in this connection's cache (see ConnectionPool).
+    * @return The number of statements prepared (0 if the class's table doesn't exist yet).
+    */
+   private int warmUp(Class<?> cls){
+      String tableName = DatabaseUtils.buildTableName(cls);
+      String[] statements = {
+         QueryBuilder.buildPreparedInsertQuery(tableName, DatabaseUtils.buildColumnNames(cls),
+               ClassCodec.forClass(cls).getFields().size()),
+         QueryBuilder.buildSelectQuery(tableName, "*", "")
+      };
+      try {
+         // The boot isn't finished yet, so this uses the connection directly instead of through conn()
+         if (!tableExists(conn, tableName)) {
+            return 0;
+         }
+         for (String sql : statements) {
+            conn.prepareStatement(sql).close();
+         }
+         return statements.length;
+      } catch (SQLException e) {
+         dbLog.log("There was an issue warming up the statements of " + tableName + "\n");
+         e.printStackTrace();
+         return 0;
+      }
+   }
+
+
+   /**
+    * Waits for the database to finish booting.
+    * @return Whether it booted successfully.
+    */
+   public boolean awaitBoot(){
+      if (!boot.isDone()) {
+         long start = System.nanoTime();
+         try {
+            boot.join();
+         } catch (RuntimeException e) {
+            // Reported by the boot thread
+         }
+         metrics.recordBootWait(System.nanoTime() - start);
+      }
+      return !boot.isCompletedExceptionally();
+   }
+
+
+   /**
+    * @return The connection, once the database has booted.
+    * @throws SQLException If the database could not be booted.
+    */
+   private Connection conn() throws SQLException{
+      if (!awaitBoot()) {
+         throw new SQLException("The database could not be initialized");
+      }
+      return conn;
+   }
+
+
+   /**
+    * @return The statement for unprepared commands, once the database has booted.
+    * @throws SQLException If the database could not be booted.
+    */
+   private Statement stat() throws SQLException{
+      conn();
+      return stat;
    }
 
 
@@ -72,19 +250,31 @@ public class Database{
    private ResultSet executeCommand(String command){
    ResultSet result = null;
    dbLog.log("Executing command: " + command);
+   long start = System.nanoTime();
+   StatementMetrics.Shape shape = metrics.shapeOf(command);
+   boolean isQuery = shape.getType() == StatementMetrics.StatementType.SELECT;
+   QueryResultCache cache = resultCache;
    try {
-      String cmdType = command.trim().split("\\s+")[0].toUpperCase();
-
-      if (cmdType.equals("SELECT")) {
-         result = stat.executeQuery(command);
+      if (isQuery && cache != null) {
+         result = executeCachedQuery(command, cache);
+         metrics.record(shape, System.nanoTime() - start, 0, false);
+      } else if (isQuery) {
+         result = countingRows(stat().executeQuery(command), command);
+         metrics.record(shape, System.nanoTime() - start, 0, false);
          dbLog.log("Command executed successfully (query)\n");
       } else {
-         int count = stat.executeUpdate(command);
+         int count = stat().executeUpdate(command);
+         metrics.record(shape, System.nanoTime() - start, count, false);
          dbLog.log("Command executed successfully (update), affected rows: " + count + "\n");
       }
    } catch (SQLException e) {
+      metrics.record(shape, System.nanoTime() - start, 0, true);
       dbLog.log("There was an issue executing the command\n");
       e.printStackTrace();
+   } finally {
+      if (!isQuery && cache != null) {
+         cache.invalidateFor(command);
+      }
    }
 
    return result;
@@ -92,83 +282,1056 @@ public class Database{
 
 
    /**
-    * Closes the database connections.
+    * Wraps the result of a query so the index advisor learns how many rows it had once the caller has read
+    * all of them (or that the number isn't known, if the caller closes it before that).
     */
-   public void closeConnections(){
+   private ResultSet countingRows(ResultSet result, String sql){
+      InvocationHandler handler = new InvocationHandler() {
+         private long rows;
+         private boolean recorded;
+
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+               case "equals":
+                  return proxy == args[0];
+               case "hashCode":
+                  return System.identityHashCode(proxy);
+               default:
+                  break;
+            }
+
+            Object value;
+            try {
+               value = method.invoke(result, args);
+            } catch (InvocationTargetException e) {
+               throw e.getCause();
+            }
+            if (method.getName().equals("next")) {
+               if ((Boolean) value) {
+                  rows++;
+               } else {
+                  record(rows);
+               }
+            } else if (method.getName().equals("close")) {
+               record(-1);
+            }
+            return value;
+         }
+
+         private void record(long count) {
+            if (!recorded) {
+               recorded = true;
+               recordFilters(sql, count);
+            }
+         }
+      };
+      return (ResultSet) Proxy.newProxyInstance(Database.class.getClassLoader(),
+            new Class<?>[] { ResultSet.class }, handler);
+   }
+
+
+   /**
+    * Runs a query through the result cache. The cached copy is a disconnected row set,
+    * and each caller gets its own cursor over it.
+    */
+   private ResultSet executeCachedQuery(String command, QueryResultCache cache) throws SQLException{
+      QueryResultCache.Key key = QueryResultCache.keyFor(command, ResultSet.class);
+      CachedRowSet cached = (CachedRowSet) cache.get(key);
+      if (cached != null) {
+         dbLog.log("Command answered from the result cache (query)\n");
+         return cached.createShared();
+      }
+
+      long version = cache.getVersion();
+      CachedRowSet rows = ROW_SETS.createCachedRowSet();
+      try (ResultSet result = stat().executeQuery(command)) {
+         rows.populate(result);
+      }
+      recordFilters(command, rows.size());
+      // About 24 bytes per value, for the value and its slot in the row
+      long bytes = (long) rows.size() * rows.getMetaData().getColumnCount() * 24;
+      cache.put(key, rows, rows.size(), bytes, version);
+      dbLog.log("Command executed successfully (query)\n");
+      return rows.createShared();
+   }
+
+
+   /**
+    * Runs a query and maps every row of its result into an object of a class, matching columns to fields by name.
+    * @param <T> The type of the objects.
+    * @param sql The SELECT query.
+    * @param cls The class to map the rows into (e.g. Vehicle).
+    * @return The objects, or the ones read before an issue with the query.
+    *         With the result cache enabled, the objects may be shared with other callers and should not be changed.
+    */
+   public <T> List<T> query(String sql, Class<T> cls){
+      return query(sql, metrics.shapeOf(sql), Collections.emptyList(), cls);
+   }
+
+
+   /**
+    * Runs a parameterized query and maps every row of its result into an object of a class, matching columns
+    * to fields by name. The query's SQL is the same whatever its values, so its prepared statement is reused.
+    * @param <T> The type of the objects.
+    * @param query The query, built with QueryBuilder.select.
+    * @param cls The class to map the rows into (e.g. Vehicle).
+    * @return The objects, or the ones read before an issue with the query.
+    *         With the result cache enabled, the objects may be shared with other callers and should not be changed.
+    */
+   public <T> List<T> query(SelectQuery query, Class<T> cls){
+      return query(query.getSql(), query.getShape(), query.getBinds(), cls);
+   }
+
+
+   private <T> List<T> query(String sql, StatementMetrics.Shape shape, List<Object> binds, Class<T> cls){
+      QueryResultCache cache = resultCache;
+      QueryResultCache.Key key = null;
+      long version = 0;
+      if (cache != null) {
+         key = QueryResultCache.keyFor(sql, cls, binds.toArray());
+         long start = System.nanoTime();
+         @SuppressWarnings("unchecked")
+         List<T> cached = (List<T>) cache.get(key);
+         if (cached != null) {
+            metrics.record(shape, System.nanoTime() - start, cached.size(), false);
+            dbLog.log("Query answered from the result cache: " + sql + "\n");
+            return new ArrayList<>(cached);
+         }
+         version = cache.getVersion();
+      }
+
+      List<T> results = new ArrayList<>();
+      // The whole result is read here, so the connection's cached statement can be used
+      try (Stream<T> rows = openQuery(sql, shape, binds, cls, true)) {
+         rows.forEachOrdered(results::add);
+      } catch (IllegalStateException e) {
+         e.printStackTrace();
+         return results;
+      }
+
+      if (cache != null) {
+         cache.put(key, Collections.unmodifiableList(new ArrayList<>(results)), results.size(),
+               QueryResultCache.estimateBytes(cls, results.size()), version);
+      }
+      return results;
+   }
+
+
+   /**
+    * Runs a query and streams its rows as objects of a class, fetching the rows as the stream is consumed,
+    * so a large result is never held in memory at once. The stream must be closed (e.g. with try-with-resources).
+    * @param <T> The type of the objects.
+    * @param sql The SELECT query.
+    * @param cls The class to map the rows into (e.g. Vehicle).
+    * @return The stream of objects, which is empty if there was an issue running the query.
+    */
+   public <T> Stream<T> queryStream(String sql, Class<T> cls){
+      // A stream can stay open while other queries run, so it gets its own statement instead of the cached one
+      return openQuery(sql, metrics.shapeOf(sql), Collections.emptyList(), cls, false);
+   }
+
+
+   /**
+    * Runs a parameterized query and streams its rows as objects of a class, fetching the rows as the stream
+    * is consumed. The stream must be closed (e.g. with try-with-resources).
+    * @param <T> The type of the objects.
+    * @param query The query, built with QueryBuilder.select.
+    * @param cls The class to map the rows into (e.g. Vehicle).
+    * @return The stream of objects, which is empty if there was an issue running the query.
+    */
+   public <T> Stream<T> queryStream(SelectQuery query, Class<T> cls){
+      // The stream gets its own statement, but Derby still reuses the plan it compiled for the same SQL
+      return openQuery(query.getSql(), query.getShape(), query.getBinds(), cls, false);
+   }
+
+
+   private <T> Stream<T> openQuery(String sql, StatementMetrics.Shape shape, List<Object> binds, Class<T> cls,
+         boolean cachedStatement){
+      dbLog.log("Executing query: " + sql + (binds.isEmpty() ? "" : " " + binds));
+      long start = System.nanoTime();
+      PreparedStatement statement = null;
+      ResultSet resultSet = null;
+      ResultSetSpliterator<T> rows;
       try {
-         if (stat != null) stat.close();
-         if (conn != null) conn.close();
+         statement = cachedStatement ? conn().prepareStatement(sql)
+               : conn().prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+         statement.setFetchSize(fetchSize);
+         SelectQuery.bind(statement, binds);
+         resultSet = statement.executeQuery();
+         rows = new ResultSetSpliterator<>(resultSet, ResultSetMapper.forResultSet(resultSet, cls));
       } catch (SQLException e) {
-         System.out.println("There was an issue closing the database resources");
+         closeQuietly(resultSet, statement);
+         metrics.record(shape, System.nanoTime() - start, 0, true);
+         dbLog.log("There was an issue executing the query\n");
          e.printStackTrace();
+         return Stream.empty();
       }
+
+      ResultSet openResult = resultSet;
+      PreparedStatement openStatement = statement;
+      return StreamSupport.stream(rows, false).onClose(() -> {
+         closeQuietly(openResult, openStatement);
+         metrics.record(shape, System.nanoTime() - start, rows.getRowCount(), rows.hasFailed());
+         // A stream closed early hasn't seen all of its rows, so their number isn't known
+         recordFilters(sql, rows.isFinished() && !rows.hasFailed() ? rows.getRowCount() : -1);
+         dbLog.log(rows.hasFailed() ? "There was an issue reading the query results\n"
+               : "Query returned " + rows.getRowCount() + " rows\n");
+      });
    }
 
 
+   /**
+    * Runs a query and writes its rows to a writer as they are read, so the result is never held in memory.
+    * @param sql The SELECT query.
+    * @param renderer The renderer, which sets the format and row limit.
+    * @param out The writer, which is flushed but not closed.
+    * @return The number of rows written, or -1 if there was an issue running the query or writing its rows.
+    */
+   public long renderQuery(String sql, ResultSetRenderer renderer, Writer out){
+      return renderQuery(sql, resultSet -> renderer.render(resultSet, out));
+   }
 
-//================== Main Function ===================//
 
-   public static void main(String[] args) throws Exception{  
-	   System.out.println("Program Start");
+   /**
+    * Runs a query and writes its rows to a stream in UTF-8 as they are read, so the result is never held in memory.
+    * @param sql The SELECT query.
+    * @param renderer The renderer, which sets the format and row limit.
+    * @param out The stream (e.g. System.out), which is flushed but not closed.
+    * @return The number of rows written, or -1 if there was an issue running the query or writing its rows.
+    */
+   public long renderQuery(String sql, ResultSetRenderer renderer, OutputStream out){
+      return renderQuery(sql, resultSet -> renderer.render(resultSet, out));
+   }
+
+
+   /**
+    * Runs a query and writes its rows to a channel in UTF-8 as they are read, so the result is never held in memory.
+    * @param sql The SELECT query.
+    * @param renderer The renderer, which sets the format and row limit.
+    * @param out The channel (e.g. a FileChannel), which is not closed.
+    * @return The number of rows written, or -1 if there was an issue running the query or writing its rows.
+    */
+   public long renderQuery(String sql, ResultSetRenderer renderer, WritableByteChannel out){
+      return renderQuery(sql, resultSet -> renderer.render(resultSet, out));
+   }
+
+
+   /**
+    * Writes a query result somewhere.
+    */
+   private interface RenderCall {
+      long render(ResultSet resultSet) throws SQLException, IOException;
+   }
 
-      // Create Vehicle instances and write them to "Vehicles.csv"
-      System.out.println("Creating 10 random vehicles and saving them to Vehicles.csv");
-      Vehicle[] vehicles = new Vehicle[10];
 
-      for (int i = 0; i < vehicles.length; i++) {
-         vehicles[i] = VehicleFactory.createRandomVehicle();  // Generates a random vehicle
+   private long renderQuery(String sql, RenderCall call){
+      dbLog.log("Rendering query: " + sql);
+      long start = System.nanoTime();
+      long rows;
+      try (PreparedStatement statement = conn().prepareStatement(sql)) {
+         statement.setFetchSize(fetchSize);
+         try (ResultSet resultSet = statement.executeQuery()) {
+            rows = call.render(resultSet);
+         }
+      } catch (SQLException | IOException e) {
+         metrics.record(sql, System.nanoTime() - start, 0, true);
+         dbLog.log("There was an issue rendering the query\n");
+         e.printStackTrace();
+         return -1;
       }
 
-      ClassSaver.saveObjects(vehicles);
+      metrics.record(sql, System.nanoTime() - start, rows, false);
+      // A row limit may have stopped the rendering early, so the number of rows isn't known
+      recordFilters(sql, -1);
+      dbLog.log("Rendered " + rows + " rows\n");
+      return rows;
+   }
 
 
-      // Initialize the database connection
-      Database myDatabase = new Database("database.properties");
-      System.out.println("Connected to database successfully\n");
+   private static void closeQuietly(ResultSet resultSet, Statement statement){
+      try {
+         if (resultSet != null) {
+            resultSet.close();
+         }
+         if (statement != null) {
+            statement.close();
+         }
+      } catch (SQLException e) {
+         System.out.println("Error closing query: " + e.getMessage());
+      }
+   }
+
+
+   /**
+    * Caches the results of query and of SELECT commands, until a statement run through this Database
+    * changes a table they read. Streamed and rendered queries are not cached.
+    * @param maxRows The most rows to keep cached.
+    * @param maxBytes The most (approximate) bytes to keep cached.
+    * @param ttlMillis How long a result stays cached, or 0 for no time limit.
+    */
+   public void enableResultCache(long maxRows, long maxBytes, long ttlMillis){
+      resultCache = new QueryResultCache(maxRows, maxBytes, ttlMillis);
+   }
+
+
+   /**
+    * Stops caching query results, dropping the cached ones.
+    */
+   public void disableResultCache(){
+      resultCache = null;
+   }
+
+
+   /**
+    * @return The result cache, for its counters, or null if it isn't enabled.
+    */
+   public QueryResultCache getResultCache(){
+      return resultCache;
+   }
+
+
+   /**
+    * Drops the cached results reading a table, after this Database (or a CsvTailIngester writing
+    * through its own connection) changed it outside of executeCommand.
+    */
+   void invalidateCachedResults(String tableName){
+      QueryResultCache cache = resultCache;
+      if (cache != null) {
+         cache.invalidateTable(tableName);
+      }
+   }
+
+
+   /**
+    * Sets the number of rows the driver fetches at a time for query and queryStream.
+    * @param fetchSize The fetch size, or 0 to let the driver decide.
+    */
+   public void setFetchSize(int fetchSize){
+      if (fetchSize < 0) {
+         throw new IllegalArgumentException("Fetch size can't be negative: " + fetchSize);
+      }
+      this.fetchSize = fetchSize;
+   }
+
+
+   /**
+    * Inserts a list of objects into the table for their class, using one prepared statement
+    * and sending the rows in batches of the configured batch size.
+    * @param <T> The type of the objects.
+    * @param objects The objects to insert.
+    * @return The number of rows inserted, or 0 if there was an issue inserting them.
+    */
+   public <T> long insertAll(List<T> objects){
+      if (objects == null || objects.isEmpty()) {
+         return 0;
+      }
+
+      @SuppressWarnings("unchecked")
+      Class<T> cls = (Class<T>) objects.get(0).getClass();
+      return insertAll(objects.stream(), cls);
+   }
+
+
+   /**
+    * Inserts a stream of objects into the table for their class as the stream produces them,
+    * so rows are inserted while the rest are still being read (e.g. from ObjectLoader.stream).
+    * A parallel stream is produced in parallel, but its rows are inserted one batch at a time, in order.
+    * @param <T> The type of the objects.
+    * @param objects The objects to insert.
+    * @param cls The class of the objects.
+    * @return The number of rows inserted, or 0 if there was an issue inserting or producing them
+    *         (the batches committed before the issue stay in the table, and their rows are logged).
+    */
+   public <T> long insertAll(Stream<T> objects, Class<T> cls){
+      String tableName = DatabaseUtils.buildTableName(cls);
+      dbLog.log("Inserting rows into " + tableName + " (batch size " + batchSize + ")");
+
+      StatementMetrics.Shape shape = BatchInserter.shapeFor(cls);
+      long start = System.nanoTime();
+      long count;
+      BatchInserter<T> inserter = null;
+      try (BatchInserter<T> open = new BatchInserter<>(conn(), cls, batchSize)) {
+         inserter = open;
+         objects.forEachOrdered(object -> {
+            try {
+               open.add(object);
+            } catch (SQLException e) {
+               throw new IllegalStateException(e);
+            }
+         });
+         open.commit();
+         count = open.getRowsInserted();
+      } catch (SQLException | RuntimeException e) {
+         // Also the stream's own errors, e.g. a line ObjectLoader.stream couldn't parse
+         metrics.record(shape, System.nanoTime() - start, 0, true);
+         dbLog.log("There was an issue inserting into " + tableName + "; the "
+               + (inserter == null ? 0 : inserter.getRowsInserted()) + " rows committed before it are in the table\n");
+         e.printStackTrace();
+         return 0;
+      } finally {
+         // Batches committed before an issue are in the table too
+         invalidateCachedResults(tableName);
+      }
+
+      long elapsed = System.nanoTime() - start;
+      metrics.record(shape, elapsed, count, false);
+      double seconds = elapsed / 1_000_000_000.0;
+      dbLog.log(String.format("Inserted %d rows into %s in %.3f s (%.0f rows/sec)%n",
+            count, tableName, seconds, count / Math.max(seconds, 1e-9)));
+      if (autoIndexing && count >= STATISTICS_REFRESH_ROWS) {
+         updateStatistics(tableName);
+      }
+      return count;
+   }
+
+
+   /**
+    * Loads a csv file written by ClassSaver into the table for its class through a CsvPipelineLoader,
+    * which reads, parses and inserts at the same time on separate threads. The table is created first if it
+    * doesn't exist, and the stats of each stage are logged afterwards to show which one held the load back.
+    * @param <T> The type of the objects.
+    * @param csv The csv file.
+    * @param cls The class the file was saved from.
+    * @param parsers The number of parser threads.
+    * @param writers The number of writer threads, each with its own pooled connection.
+    * @return The number of rows inserted, or 0 if there was an issue loading them.
+    */
+   public <T> long loadPipelined(File csv, Class<T> cls, int parsers, int writers){
+      String tableName = DatabaseUtils.buildTableName(cls);
+      createTable(cls);
+      dbLog.log("Loading " + csv + " into " + tableName + " with " + parsers + " parsers and " + writers + " writers");
+
+      CsvPipelineLoader<T> loader = new CsvPipelineLoader<>(cls).setParsers(parsers).setWriters(writers)
+            .setBatchSize(batchSize);
+      String shape = "PIPELINE LOAD " + tableName;
+      long start = System.nanoTime();
+      long count;
+      try {
+         count = loader.load(csv.toPath());
+      } catch (SQLException | IOException | InterruptedException e) {
+         if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+         }
+         metrics.record(shape, System.nanoTime() - start, 0, true);
+         dbLog.log("There was an issue loading " + csv + " into " + tableName + "; the " + loader.getRowsCommitted()
+               + " rows committed before it are in the table\n");
+         e.printStackTrace();
+         return 0;
+      } finally {
+         // Batches committed before an issue are in the table too
+         invalidateCachedResults(tableName);
+      }
+
+      metrics.record(shape, System.nanoTime() - start, count, false);
+      dbLog.log(loader.getStats());
+      if (autoIndexing && count >= STATISTICS_REFRESH_ROWS) {
+         updateStatistics(tableName);
+      }
+      return count;
+   }
+
+
+   /**
+    * Loads a csv file written by ClassSaver straight into the table for its class with Derby's bulk import,
+    * without building any objects. The table is created first if it doesn't exist.
+    * @param csv The csv file, with a header line and the columns in the class's field order.
+    * @param cls The class the file was saved from.
+    * @return The number of rows imported, or 0 if there was an issue importing them.
+    */
+   public long bulkImport(File csv, Class<?> cls){
+      return bulkImport(csv, cls, true);
+   }
+
+
+   /**
+    * Loads a csv file written by ClassSaver straight into the table for its class with Derby's bulk import,
+    * without building any objects. The table is created first if it doesn't exist.
+    * @param csv The csv file, with a header line and the columns in the class's field order.
+    * @param cls The class the file was saved from.
+    * @param deferIndexes Whether to create the indexes after the load, which is faster than maintaining them during it.
+    * @param indexColumns The columns to create an index on (one index per column), besides the ones the class
+    *                     declares with Indexed. Columns that are already indexed are skipped.
+    * @return The number of rows imported, or 0 if there was an issue importing them.
+    */
+   public long bulkImport(File csv, Class<?> cls, boolean deferIndexes, String... indexColumns){
+      String tableName = DatabaseUtils.buildTableName(cls);
+      indexColumns = withDeclaredIndexes(cls, indexColumns);
+      dbLog.log("Bulk importing " + csv + " into " + tableName);
+
+      long start = System.nanoTime();
+      long count;
+      Path rows = null;
+      try {
+         long before = 0;
+         if (tableExists(tableName)) {
+            before = countRows(tableName);
+         } else {
+            executeCommand(QueryBuilder.buildCreateTableQuery(tableName, DatabaseUtils.buildColumnInfo(cls)));
+         }
+         if (!deferIndexes) {
+            createIndexes(tableName, indexColumns);
+         }
+
+         start = System.nanoTime();
+         rows = copyWithoutHeader(csv.toPath());
+         try (CallableStatement importData = conn().prepareCall(IMPORT_DATA)) {
+            // Derby looks the table up by its stored (upper case) name
+            importData.setString(1, tableName.toUpperCase());
+            importData.setString(2, rows.toAbsolutePath().toString());
+            // Replace mode into an empty table lets Derby use its bulk insert path (no per-row logging)
+            importData.setShort(3, (short) (before == 0 ? 1 : 0));
+            importData.execute();
+         }
+         count = countRows(tableName) - before;
+      } catch (SQLException | IOException e) {
+         metrics.record(IMPORT_DATA_SHAPE, System.nanoTime() - start, 0, true);
+         dbLog.log("There was an issue importing " + csv + " into " + tableName + "\n");
+         e.printStackTrace();
+         return 0;
+      } finally {
+         deleteQuietly(rows);
+         invalidateCachedResults(tableName);
+      }
+
+      long elapsed = System.nanoTime() - start;
+      metrics.record(IMPORT_DATA_SHAPE, elapsed, count, false);
+      double seconds = elapsed / 1_000_000_000.0;
+      dbLog.log(String.format("Imported %d rows into %s in %.3f s (%.0f rows/sec)%n",
+            count, tableName, seconds, count / Math.max(seconds, 1e-9)));
+      if (deferIndexes) {
+         createIndexes(tableName, indexColumns);
+      }
+      if (autoIndexing) {
+         updateStatistics(tableName);
+      }
+      return count;
+   }
+
+
+   /**
+    * Copies the rows of a csv file, without its header line, to a temporary file.
+    * Derby 10.12's import has no option to skip a header, and the copy is done by the OS without decoding the rows.
+    */
+   private static Path copyWithoutHeader(Path csv) throws IOException{
+      Path rows = Files.createTempFile("import-", ".csv");
+      try (FileChannel in = FileChannel.open(csv, StandardOpenOption.READ);
+           FileChannel out = FileChannel.open(rows, StandardOpenOption.WRITE)) {
+         long position = ObjectLoader.findHeaderEnd(csv);
+         long size = in.size();
+         while (position < size) {
+            position += in.transferTo(position, size - position, out);
+         }
+      } catch (IOException e) {
+         deleteQuietly(rows);
+         throw e;
+      }
+      return rows;
+   }
+
+
+   private static void deleteQuietly(Path path){
+      if (path == null) {
+         return;
+      }
+      try {
+         Files.deleteIfExists(path);
+      } catch (IOException e) {
+         System.out.println("Could not delete " + path + ": " + e.getMessage());
+      }
+   }
+
 
+   /**
+    * Creates the table for a class, with the indexes it declares with Indexed, unless it already exists.
+    * @param cls The class to create the table for.
+    */
+   public void createTable(Class<?> cls){
+      String tableName = DatabaseUtils.buildTableName(cls);
+      try {
+         if (tableExists(tableName)) {
+            return;
+         }
+      } catch (SQLException e) {
+         dbLog.log("There was an issue checking for table " + tableName + "\n");
+         e.printStackTrace();
+         return;
+      }
+      executeCommand(QueryBuilder.buildCreateTableQuery(tableName, DatabaseUtils.buildColumnInfo(cls)));
+      createIndexes(tableName, DatabaseUtils.buildIndexedColumns(cls));
+   }
 
-      // Create a SQL command to create the database table, then issue that command
-      Class<?> cls = vehicles[0].getClass();
-      String command = QueryBuilder.buildCreateTableQuery("Vehicles", DatabaseUtils.buildColumnInfo(cls));
-      myDatabase.executeCommand(command);
 
+   /**
+    * Adds the columns a class declares with Indexed to a list of columns, leaving out repeats.
+    */
+   private static String[] withDeclaredIndexes(Class<?> cls, String... columns){
+      Map<String, String> all = new LinkedHashMap<>();
+      for (String column : DatabaseUtils.buildIndexedColumns(cls)) {
+         all.put(column.toUpperCase(), column);
+      }
+      for (String column : columns) {
+         all.putIfAbsent(column.toUpperCase(), column);
+      }
+      return all.values().toArray(new String[0]);
+   }
 
-      // Read the 10 vehicles from "Vehicles.csv" and insert them into the database
-      List<Vehicle> loadedVehicles = ObjectLoader.loadObjectsFromFile(new File("Vehicles.csv"), Vehicle.class);
 
-      for (Vehicle v : loadedVehicles) {
-         String tableName = v.getClass().getSimpleName() + "s";
-         String columnInfo = DatabaseUtils.buildColumnNames(v.getClass());
-         String values = "";
-         for (Field field : v.getClass().getDeclaredFields()) {
-            values += DatabaseUtils.convertFieldToSQL(field, v) + ", ";
+   /**
+    * Creates one index per column, named IDX_table_column, skipping the columns that are already indexed.
+    */
+   private void createIndexes(String tableName, String... columns){
+      try {
+         createIndexes(conn(), tableName, columns);
+      } catch (SQLException e) {
+         dbLog.log("There was an issue creating the indexes of " + tableName + "\n");
+         e.printStackTrace();
+      }
+   }
+
+
+   private void createIndexes(Connection connection, String tableName, String... columns){
+      for (String column : columns) {
+         try {
+            if (isIndexed(connection, tableName, column)) {
+               continue;
+            }
+         } catch (SQLException e) {
+            System.out.println("Could not read the indexes of " + tableName + ": " + e.getMessage());
          }
+         executeUpdate(connection, QueryBuilder.buildCreateIndexQuery("IDX_" + tableName + "_" + column, tableName, column));
+      }
+   }
+
 
-         // Remove the trailing comma and space
-            if (values.length() > 0) {
-               values = values.substring(0, values.length() - 2);
+   /**
+    * Executes an update command in a statement of its own, so it doesn't close a result that is still open
+    * on the shared statement.
+    */
+   private void executeUpdate(Connection connection, String command){
+      dbLog.log("Executing command: " + command);
+      long start = System.nanoTime();
+      StatementMetrics.Shape shape = metrics.shapeOf(command);
+      try (Statement statement = connection.createStatement()) {
+         int count = statement.executeUpdate(command);
+         metrics.record(shape, System.nanoTime() - start, count, false);
+         dbLog.log("Command executed successfully (update), affected rows: " + count + "\n");
+      } catch (SQLException e) {
+         metrics.record(shape, System.nanoTime() - start, 0, true);
+         dbLog.log("There was an issue executing the command\n");
+         e.printStackTrace();
+      }
+   }
+
+
+   /**
+    * Checks whether an index of a table starts with a column.
+    */
+   private static boolean isIndexed(Connection connection, String tableName, String column) throws SQLException{
+      try (ResultSet indexes = connection.getMetaData().getIndexInfo(null, connection.getSchema(), tableName.toUpperCase(), false, true)) {
+         while (indexes.next()) {
+            if (indexes.getShort("ORDINAL_POSITION") == 1 && column.equalsIgnoreCase(indexes.getString("COLUMN_NAME"))) {
+               return true;
             }
+         }
+      }
+      return false;
+   }
+
+
+   /**
+    * Records the columns a query filtered on with the index advisor, and when auto indexing is on and a check
+    * is due, has the indexer thread create the recommended indexes, so the query never waits for them.
+    * @param rows The number of rows the query returned, or -1 if it isn't known.
+    */
+   private void recordFilters(String sql, long rows){
+      if (indexAdvisor.record(sql, rows)) {
+         indexCheckDue.set(true);
+      }
+      if (autoIndexing && indexCheckDue.compareAndSet(true, false)) {
+         try {
+            indexer().execute(this::createRecommendedIndexes);
+         } catch (RejectedExecutionException e) {
+            // The database is closing
+         }
+      }
+   }
+
+
+   private synchronized ExecutorService indexer(){
+      if (indexer == null) {
+         indexer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Database-indexer");
+            thread.setDaemon(true);
+            return thread;
+         });
+      }
+      return indexer;
+   }
+
 
-         command = QueryBuilder.buildInsertQuery(tableName, columnInfo, values);
-         myDatabase.executeCommand(command);
+   /**
+    * Recommends indexes for the columns the queries run so far filtered on most (see IndexAdvisor).
+    * @return The recommendations, most used column first, or none if the tables could not be read.
+    */
+   public List<IndexAdvisor.Recommendation> recommendIndexes(){
+      try {
+         return recommendIndexes(conn());
+      } catch (SQLException e) {
+         System.out.println("There was an issue recommending indexes");
+         e.printStackTrace();
+         return Collections.emptyList();
       }
+   }
+
+
+   private List<IndexAdvisor.Recommendation> recommendIndexes(Connection connection) throws SQLException{
+      return indexAdvisor.recommend(new IndexAdvisor.TableInfo() {
+         @Override
+         public long countRows(String tableName) throws SQLException {
+            return Database.countRows(connection, tableName);
+         }
+
+         @Override
+         public boolean isIndexed(String tableName, String columnName) throws SQLException {
+            return Database.isIndexed(connection, tableName, columnName);
+         }
+      });
+   }
 
-      // Query the database to retrieve and print all vehicles
-      command = QueryBuilder.buildSelectQuery("Vehicles", "*", "");
-      ResultSet result = myDatabase.executeCommand(command);
-      System.out.println("Vehicles in database:\n" + DatabaseUtils.printResultSet(result));
 
+   /**
+    * Creates the indexes recommendIndexes recommends, and refreshes the statistics of their tables.
+    * This is the maintenance call auto indexing makes on its indexer thread; it uses a pooled connection
+    * of its own, so it can also be called while queries are running.
+    * @return The number of indexes created.
+    */
+   public int createRecommendedIndexes(){
+      if (!awaitBoot()) {
+         return 0;
+      }
+      try (Connection connection = SimpleDataSource.getConnection()) {
+         List<IndexAdvisor.Recommendation> recommendations = recommendIndexes(connection);
+         Set<String> tables = new LinkedHashSet<>();
+         for (IndexAdvisor.Recommendation recommendation : recommendations) {
+            dbLog.log("Creating recommended index: " + recommendation);
+            createIndexes(connection, recommendation.getTable(), recommendation.getColumn());
+            tables.add(recommendation.getTable());
+         }
+         for (String table : tables) {
+            updateStatistics(connection, table);
+         }
+         return recommendations.size();
+      } catch (SQLException e) {
+         dbLog.log("There was an issue creating the recommended indexes\n");
+         e.printStackTrace();
+         return 0;
+      }
+   }
+
+
+   /**
+    * Turns auto indexing on or off. While it is on, the index advisor's recommendations are created every so often
+    * (see IndexAdvisor.setCheckInterval) on a background thread, and a table's statistics are refreshed after a bulk import
+    * or a large insertAll, so Derby's optimizer knows how selective its indexes are.
+    * @param autoIndexing Whether to create indexes and refresh statistics automatically.
+    */
+   public void setAutoIndexing(boolean autoIndexing){
+      this.autoIndexing = autoIndexing;
+   }
+
+
+   /**
+    * @return The index advisor, for its settings and the columns it has seen.
+    */
+   public IndexAdvisor getIndexAdvisor(){
+      return indexAdvisor;
+   }
+
+
+   /**
+    * Refreshes the statistics Derby keeps for the indexes of a table, which it only updates on its own
+    * when an index is created, so they are out of date after a bulk load.
+    * @param tableName The table.
+    * @return Whether the statistics were refreshed.
+    */
+   public boolean updateStatistics(String tableName){
+      try {
+         return updateStatistics(conn(), tableName);
+      } catch (SQLException e) {
+         dbLog.log("There was an issue updating the statistics of " + tableName + "\n");
+         e.printStackTrace();
+         return false;
+      }
+   }
+
+
+   private boolean updateStatistics(Connection connection, String tableName){
+      long start = System.nanoTime();
+      try (CallableStatement update = connection.prepareCall(UPDATE_STATISTICS)) {
+         update.setString(1, connection.getSchema());
+         update.setString(2, tableName.toUpperCase());
+         update.execute();
+      } catch (SQLException e) {
+         metrics.record(UPDATE_STATISTICS_SHAPE, System.nanoTime() - start, 0, true);
+         dbLog.log("There was an issue updating the statistics of " + tableName + "\n");
+         e.printStackTrace();
+         return false;
+      }
+      metrics.record(UPDATE_STATISTICS_SHAPE, System.nanoTime() - start, 0, false);
+      dbLog.log("Updated the statistics of " + tableName + "\n");
+      return true;
+   }
 
-      // Query the database to retrieve and print all Chevys and Toyotas
-      command = QueryBuilder.buildSelectQuery("Vehicles", "*", "Make = 'CHEVY' OR Make = 'TOYOTA'");
-      result = stat.executeQuery(command);
-      System.out.println("Chevys and Toyotas in database:\n" + DatabaseUtils.printResultSet(result));
+
+   /**
+    * Snapshots the database to the storage profile's snapshot directory (storage.snapshotDirectory).
+    * @return Whether the snapshot was taken.
+    */
+   public boolean snapshot(){
+      try {
+         String directory = SimpleDataSource.getStorageProfile().getSnapshotDirectory();
+         if (directory == null) {
+            dbLog.log("There is no storage.snapshotDirectory to snapshot the database to\n");
+            return false;
+         }
+         return snapshot(directory);
+      } catch (SQLException e) {
+         e.printStackTrace();
+         return false;
+      }
+   }
+
+
+   /**
+    * Copies the whole database, including an in-memory one, into a directory on disk with Derby's online backup,
+    * while it stays open. The copy is in a folder named after the database inside the directory, and a database
+    * can be created from it later with storage.restoreFrom.
+    * @param directory The directory to put the snapshot in. An older snapshot of the same database there is replaced.
+    * @return Whether the snapshot was taken.
+    */
+   public boolean snapshot(String directory){
+      String path = new File(directory).getAbsolutePath();
+      long start = System.nanoTime();
+      try (CallableStatement backup = conn().prepareCall(BACKUP_DATABASE)) {
+         backup.setString(1, path);
+         backup.execute();
+      } catch (SQLException e) {
+         metrics.record(BACKUP_DATABASE_SHAPE, System.nanoTime() - start, 0, true);
+         dbLog.log("There was an issue snapshotting the database to " + path + "\n");
+         e.printStackTrace();
+         return false;
+      }
+      long elapsed = System.nanoTime() - start;
+      metrics.record(BACKUP_DATABASE_SHAPE, elapsed, 0, false);
+      dbLog.log(String.format("Snapshotted the database to %s in %.3f s%n", path, elapsed / 1_000_000_000.0));
+      return true;
+   }
+
+
+   private boolean tableExists(String tableName) throws SQLException{
+      return tableExists(conn(), tableName);
+   }
+
+
+   static boolean tableExists(Connection connection, String tableName) throws SQLException{
+      try (ResultSet tables = connection.getMetaData().getTables(null, null, tableName.toUpperCase(), new String[] { "TABLE" })) {
+         return tables.next();
+      }
+   }
+
+
+   private long countRows(String tableName) throws SQLException{
+      return countRows(conn(), tableName);
+   }
+
+
+   private static long countRows(Connection connection, String tableName) throws SQLException{
+      try (Statement count = connection.createStatement();
+           ResultSet result = count.executeQuery("SELECT COUNT(*) FROM " + tableName)) {
+         result.next();
+         return result.getLong(1);
+      }
+   }
+
+
+   /**
+    * Sets the number of rows sent to the database per batch by insertAll.
+    * @param batchSize The batch size, at least 1.
+    */
+   public void setBatchSize(int batchSize){
+      if (batchSize < 1) {
+         throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+      }
+      this.batchSize = batchSize;
+   }
+
+
+   /**
+    * @return The number of rows sent to the database per batch by insertAll.
+    */
+   public int getBatchSize(){
+      return batchSize;
+   }
+
+
+   /**
+    * @return The statement timings for this database.
+    */
+   public StatementMetrics getMetrics(){
+      return metrics;
+   }
+
+
+   /**
+    * Writes a summary of the statement metrics to the log every so often.
+    * @param intervalSeconds The time between summaries, or 0 to stop them.
+    */
+   public synchronized void setMetricsSummaryInterval(long intervalSeconds){
+      if (metricsReporter != null) {
+         metricsReporter.shutdownNow();
+         metricsReporter = null;
+      }
+      if (intervalSeconds <= 0) {
+         return;
+      }
+
+      metricsReporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+         Thread thread = new Thread(runnable, "Database-metrics");
+         thread.setDaemon(true);
+         return thread;
+      });
+      metricsReporter.scheduleAtFixedRate(() -> dbLog.log(metrics.getSummary() + "\n"),
+            intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+   }
+
+
+   /**
+    * Closes the database connections, returning the connection to the pool.
+    * The final statement metrics are written to the log.
+    */
+   public void closeConnections(){
+      boolean booted = awaitBoot();
+      setMetricsSummaryInterval(0);
+      stopIndexer();
+      dbLog.log(metrics.getSummary() + "\n");
+      metrics.unregister();
+      QueryResultCache cache = resultCache;
+      if (cache != null) {
+         dbLog.log("Result cache: " + cache.getStats());
+      }
+      dbLog.log(indexAdvisor.getStats());
+      try {
+         if (booted && SimpleDataSource.getStorageProfile().isSnapshotOnClose()) {
+            snapshot();
+         }
+         if (stat != null) stat.close();
+         if (conn != null) conn.close();
+         dbLog.log("Connection pool: " + SimpleDataSource.getPool().getStats());
+      } catch (SQLException e) {
+         System.out.println("There was an issue closing the database resources");
+         e.printStackTrace();
+      }
+   }
+
+
+   /**
+    * Lets a running index check finish, and stops the indexer thread.
+    */
+   private void stopIndexer(){
+      ExecutorService running;
+      synchronized (this) {
+         running = indexer;
+      }
+      if (running == null) {
+         return;
+      }
+      running.shutdown();
+      try {
+         if (!running.awaitTermination(1, TimeUnit.MINUTES)) {
+            System.out.println("Gave up waiting for the index check to finish");
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+
+
+   /**
+    * Lists objects one per line, for printing query results.
+    */
+   private static String toLines(List<?> objects){
+      StringBuilder sb = new StringBuilder();
+      for (Object object : objects) {
+         sb.append(object).append("\n");
+      }
+      return sb.toString();
+   }
+
+
+
+//================== Main Function ===================//
+
+   private static final int SHOWN_ROWS = 20;
+
+   public static void main(String[] args) throws Exception{  
+	   System.out.println("Program Start");
+
+      // Start booting the database in the background (warming up the Vehicle statements if the table exists),
+      // so it boots while the vehicles are generated
+      Database myDatabase = new Database("database.properties", Vehicle.class);
+
+      // Generate random vehicles in parallel and write them to "Vehicles.csv".
+      // The number of vehicles (default 10) and a seed to repeat a run can be given as arguments
+      long vehicleCount = args.length > 0 ? Long.parseLong(args[0]) : 10;
+      VehicleGenerator generator = args.length > 1 ? new VehicleGenerator(Long.parseLong(args[1])) : new VehicleGenerator();
+      System.out.println("Creating " + vehicleCount + " random vehicles (seed " + generator.getSeed()
+            + ") and saving them to Vehicles.csv");
+      generator.saveTo("Vehicles.csv", vehicleCount);
+
+      // Wait for the boot, if it isn't done yet
+      if (!myDatabase.awaitBoot()) {
+         return;
+      }
+      System.out.println("Connected to database successfully\n");
+
+      // Cache up to 100,000 rows (or 64 MB) of query results for a minute
+      myDatabase.enableResultCache(100_000, 64L * 1024 * 1024, 60_000);
+
+
+      // Create the Vehicles table and load the vehicles from "Vehicles.csv" into it with Derby's bulk import,
+      // creating the index Vehicle declares on make once they're loaded
+      myDatabase.bulkImport(new File("Vehicles.csv"), Vehicle.class);
+
+      // Query the database to retrieve and print the vehicles, showing at most SHOWN_ROWS of each query
+      String command = QueryBuilder.buildSelectQuery("Vehicles", "*", "");
+      System.out.println("Vehicles in database:");
+      myDatabase.renderQuery(command, new ResultSetRenderer(ResultSetRenderer.Format.TEXT, SHOWN_ROWS), System.out);
+      System.out.println();
+
+
+      // Query the database to retrieve and print all Chevys and Toyotas, binding the makes as parameters
+      SelectQuery query = QueryBuilder.select("*").from("Vehicles").where("Make").in(Vehicle.Make.CHEVY, Vehicle.Make.TOYOTA)
+            .limit(SHOWN_ROWS);
+      System.out.println("Chevys and Toyotas in database:\n" + toLines(myDatabase.query(query, Vehicle.class)));
+
+
+      // Query the database to retrieve and print all vehicles weighing more than 2500 pounds, streaming the rows
+      query = QueryBuilder.select("*").from("Vehicles").where("Weight").gt(2500).limit(SHOWN_ROWS);
+      System.out.println("Vehicles weighing more than 2500 pounds in database:");
+      try (Stream<Vehicle> heavyVehicles = myDatabase.queryStream(query, Vehicle.class)) {
+         heavyVehicles.forEach(System.out::println);
+      }
+      System.out.println();
 
 
-      // Query the database to retrieve and print all vehicles weighing more than 2500 pounds
-      command = QueryBuilder.buildSelectQuery("Vehicles", "*", "Weight > 2500");
-      result = stat.executeQuery(command);
-      System.out.println("Vehicles weighing more than 2500 pounds in database:\n" + DatabaseUtils.printResultSet(result));
+      // Load the table into an in-memory columnar store and run the same filters there
+      ColumnarTable<Vehicle> columnar = ColumnarTable.fromDatabase(myDatabase, Vehicle.class);
+      ColumnarTable.Selection chevysAndToyotas = columnar.selectEquals("make", Vehicle.Make.CHEVY, Vehicle.Make.TOYOTA);
+      ColumnarTable.Selection heavy = columnar.selectGreaterThan("weight", 2500);
+      System.out.println("In memory: " + chevysAndToyotas.size() + " Chevys and Toyotas, "
+            + heavy.size() + " vehicles weighing more than 2500 pounds\n");
 
 
       // Drop the Vehicles table and close the database connection
@@ -184,6 +1347,7 @@ public class Database{
 
       myDatabase.closeConnections();
       myDatabase.dbLog.close();
+      SimpleDataSource.shutdown();
       System.out.println("Dropped Table Vehicles, closed connection and ending program");
    }
 }
@@ -1,37 +1,121 @@
 
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * DatabaseLog.java
  * Utility class for logging database operations to a file.
- * 
+ *
  * Functionality:
  * - Log messages to a file.
- * 
+ * - Optionally log asynchronously: callers push messages into a bounded lock-free ring buffer,
+ *   and a background thread writes them to the file in batches.
+ *
+ * In async mode the file is flushed every flushBatchSize messages, every flushIntervalMillis, and on close.
+ * The background thread sleeps until a message is logged or a flush is due, so an idle log costs nothing.
+ * Messages logged after close are dropped and counted.
+ * Every DatabaseLog writes to the same file: the first one opened empties it, and the last one closed closes it.
+ * When the ring buffer is full, messages either wait for room (BLOCK) or are dropped and counted (DROP).
+ *
  * @author Elijah Reyna
- * Last Edited 9/21/25
+ * Last Edited 10/18/26
  */
 public class DatabaseLog {
-    private StringBuilder log;
+    /**
+     * What log() does when the async ring buffer is full.
+     */
+    public enum OverflowPolicy { BLOCK, DROP }
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+    public static final int DEFAULT_FLUSH_BATCH_SIZE = 1024;
+
     private static File logFile = new File("database_log.txt");
-    private static FileWriter writer;
+    private static Writer writer;
+    // The number of DatabaseLog instances that are open, so the shared writer is only closed by the last one
+    private static int openLogs;
+    // Guards the shared writer, which every DatabaseLog instance writes through
+    private static final Object WRITE_LOCK = new Object();
+
+    private final LogRingBuffer buffer;
+    private final long flushIntervalNanos;
+    private final int flushBatchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final Thread flusher;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean closing;
+    // Set while the flusher is parked with nothing to write, so log knows to wake it
+    private volatile boolean idle;
+    private boolean closed;
+    private volatile long flushRequestedUpTo = -1;
+    private volatile long flushedUpTo;
 
     /**
-     * Default constructor that initializes the log file.
+     * Default constructor that initializes the log file. Messages are written and flushed as they are logged.
      */
     public DatabaseLog() {
-        log = new StringBuilder();
-        try {
-            if (!logFile.exists()) {
-                logFile.createNewFile();
+        openLogFile();
+        this.buffer = null;
+        this.flushIntervalNanos = 0;
+        this.flushBatchSize = 1;
+        this.overflowPolicy = OverflowPolicy.BLOCK;
+        this.flusher = null;
+    }
+
+
+    /**
+     * Constructor that initializes the log file in async mode.
+     * @param capacity The number of messages the ring buffer holds before the overflow policy applies.
+     * @param flushIntervalMillis The longest time a written message waits before the file is flushed (0 for no time limit).
+     * @param flushBatchSize The number of messages written between flushes (0 for no size limit).
+     * @param overflowPolicy What to do with messages when the ring buffer is full.
+     */
+    public DatabaseLog(int capacity, long flushIntervalMillis, int flushBatchSize, OverflowPolicy overflowPolicy) {
+        openLogFile();
+        this.buffer = new LogRingBuffer(capacity);
+        this.flushIntervalNanos = flushIntervalMillis * 1_000_000;
+        this.flushBatchSize = flushBatchSize;
+        this.overflowPolicy = overflowPolicy;
+
+        this.flusher = new Thread(this::drainLoop, "DatabaseLog-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+
+    /**
+     * Creates a log in async mode with the default capacity and flush policy, waiting for room when full.
+     * @return The async log.
+     */
+    public static DatabaseLog async() {
+        return new DatabaseLog(DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_FLUSH_BATCH_SIZE, OverflowPolicy.BLOCK);
+    }
+
+
+    /**
+     * Opens (and empties) the shared log file, unless another DatabaseLog already has it open.
+     */
+    private static void openLogFile() {
+        synchronized (WRITE_LOCK) {
+            if (openLogs++ > 0) {
+                return;
+            }
+            try {
+                if (!logFile.exists()) {
+                    logFile.createNewFile();
+                }
+                writer = new BufferedWriter(new FileWriter(logFile, false));
+            } catch (IOException e) {
+                System.out.println("Error initializing log file: " + e.getMessage());
             }
-            writer = new FileWriter(logFile, false);
-        } catch (IOException e) {
-            System.out.println("Error initializing log file: " + e.getMessage());
         }
     }
 
@@ -41,10 +125,156 @@ public class DatabaseLog {
      * @param message
      */
     public void log(String message) {
-        log.append(message).append(System.lineSeparator());
+        if (closing) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (buffer == null) {
+            synchronized (WRITE_LOCK) {
+                try {
+                    writer.write(message);
+                    writer.write(System.lineSeparator());
+                    writer.flush();
+                } catch (IOException e) {
+                    System.out.println("Error writing to log file: " + e.getMessage());
+                }
+            }
+            return;
+        }
+
+        if (buffer.offer(message)) {
+            wakeFlusher();
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP || closing) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        // Backpressure: wait for the flusher to make room
+        int spins = 0;
+        while (!buffer.offer(message)) {
+            if (closing) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(50_000);
+            }
+        }
+        wakeFlusher();
+    }
+
+
+    private void wakeFlusher() {
+        if (idle) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+
+    /**
+     * Waits until every message logged so far has been written and flushed to the file.
+     */
+    public void flush() {
+        if (buffer == null || !flusher.isAlive()) {
+            return;
+        }
+
+        long target = buffer.getOfferedCount();
+        flushRequestedUpTo = target;
+        LockSupport.unpark(flusher);
+        while (flushedUpTo < target && flusher.isAlive()) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+
+    /**
+     * @return The number of messages dropped because the ring buffer was full, or because they were logged after close.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+
+    /**
+     * The background thread in async mode: drains the ring buffer into the file in batches.
+     */
+    private void drainLoop() {
+        long written = 0;
+        long unflushed = 0;
+        long lastFlush = System.nanoTime();
+        long reportedDrops = 0;
+
+        while (true) {
+            boolean finished = closing;
+            int drained = 0;
+
+            synchronized (WRITE_LOCK) {
+                String message;
+                while (drained < DEFAULT_FLUSH_BATCH_SIZE && (message = buffer.poll()) != null) {
+                    write(message);
+                    drained++;
+                }
+
+                long drops = dropped.get();
+                if (drops != reportedDrops) {
+                    write("[" + (drops - reportedDrops) + " log messages dropped]");
+                    reportedDrops = drops;
+                }
+
+                written += drained;
+                unflushed += drained;
+                long now = System.nanoTime();
+                boolean flushDue = unflushed > 0
+                        && ((flushBatchSize > 0 && unflushed >= flushBatchSize)
+                            || (flushIntervalNanos > 0 && now - lastFlush >= flushIntervalNanos)
+                            || flushRequestedUpTo > flushedUpTo
+                            || finished);
+                if (flushDue) {
+                    flushWriter();
+                    unflushed = 0;
+                    lastFlush = now;
+                }
+            }
+
+            if (unflushed == 0) {
+                flushedUpTo = written;
+            }
+            if (finished && drained == 0) {
+                return;
+            }
+            if (drained == 0) {
+                // Checked again after idle is set, so a message logged before log could see it isn't missed
+                idle = true;
+                if (buffer.isEmpty() && !closing && flushRequestedUpTo <= flushedUpTo) {
+                    if (unflushed > 0 && flushIntervalNanos > 0) {
+                        LockSupport.parkNanos(this, lastFlush + flushIntervalNanos - System.nanoTime());
+                    } else {
+                        LockSupport.park(this);
+                    }
+                }
+                idle = false;
+            }
+        }
+    }
+
+
+    private static void write(String message) {
         try {
             writer.write(message);
             writer.write(System.lineSeparator());
+        } catch (IOException e) {
+            System.out.println("Error writing to log file: " + e.getMessage());
+        }
+    }
+
+
+    private static void flushWriter() {
+        try {
             writer.flush();
         } catch (IOException e) {
             System.out.println("Error writing to log file: " + e.getMessage());
@@ -56,6 +286,7 @@ public class DatabaseLog {
      * Displays the contents of the log file to the console
      */
     public void displayLog() {
+        flush();
         FileReader reader;
         try {
             System.out.println("//=============== LOG FILE CONTENTS ===============\\\\");
@@ -73,15 +304,36 @@ public class DatabaseLog {
 
 
     /**
-     * Closes the log and file writer.
+     * Closes the log, and the file writer if no other DatabaseLog is open (otherwise it is only flushed).
+     * In async mode, every message already logged is written first.
      */
     public void close() {
-        try {
-            if (writer != null) {
-                writer.close();
+        synchronized (WRITE_LOCK) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        closing = true;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (WRITE_LOCK) {
+            try {
+                if (--openLogs > 0) {
+                    writer.flush();
+                } else if (writer != null) {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                System.out.println("Error closing log file: " + e.getMessage());
             }
-        } catch (IOException e) {
-            System.out.println("Error closing log file: " + e.getMessage());
         }
     }
 }
@@ -1,7 +1,9 @@
-import java.lang.reflect.Field;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * DatabaseUtils.java
@@ -9,12 +11,14 @@ import java.sql.SQLException;
  * 
  * Functionality:
  * - Build SQL column definitions from class fields.
+ * - Find the columns a class declares indexes on.
  * - Print contents of a ResultSet.
  * - Find the length of the longest constant in an enum.
  * - Map Java types to SQL types.
+ * - Map Java types to JDBC type codes.
  * 
  * @author Elijah Reyna
- * Last Edited 9/21/25
+ * Last Edited 10/18/26
  */
 public class DatabaseUtils {
 
@@ -25,7 +29,7 @@ public class DatabaseUtils {
      */
     public static String buildColumnInfo(Class<?> cls){
         StringBuilder sb = new StringBuilder();
-        for (Field field : cls.getDeclaredFields()) {
+        for (ClassCodec.FieldCodec field : ClassCodec.forClass(cls).getFields()) {
             sb.append(field.getName() + " " + DatabaseUtils.getSQLType(field.getType()) + ", ");
         }
 
@@ -63,31 +67,38 @@ public class DatabaseUtils {
         }
     }
 
+
     /**
-     * Converts a field's value to its SQL representation.
-     * @param field The field to convert.
-     * @param obj The object containing the field.
-     * @param <T> The type of the object.
-     * @return The SQL representation of the field's value as a string.
+     * Maps Java types to JDBC type codes, matching the SQL types produced by getSQLType.
+     * @param type The Java type to map.
+     * @return The corresponding constant from java.sql.Types.
+     * @throws UnsupportedOperationException if the type is not supported.
      */
-    public static <T> String convertFieldToSQL(Field field, T obj) {
-        try {
-            field.setAccessible(true);
-
-            Object value = field.get(obj);
-            if (value instanceof String) {
-                return "'" + value + "'";
-            } else if(value instanceof Enum) {
-                return "'" + value + "'";
-            }else {
-                return value.toString();
-            }
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException("Failed to access field: " + field.getName(), e);
+    public static int getSQLTypeCode(Class<?> type) {
+        if (type.isEnum() || type == String.class) {
+            return Types.VARCHAR;
+        } else if (type == int.class || type == Integer.class) {
+            return Types.INTEGER;
+        } else if (type == boolean.class || type == Boolean.class) {
+            return Types.BOOLEAN;
+        } else if (type == double.class || type == Double.class) {
+            return Types.DOUBLE;
+        } else {
+            throw new UnsupportedOperationException("Unimplemented type in 'getSQLTypeCode': " + type.getName());
         }
     }
 
 
+    /**
+     * Builds the table name for a class (the pluralized simple name, e.g. Vehicle -> Vehicles).
+     * @param cls The class to build the table name for.
+     * @return The table name.
+     */
+    public static String buildTableName(Class<?> cls) {
+        return cls.getSimpleName() + "s";
+    }
+
+
     /**
      * Builds a comma-separated list of column names based on the fields of a given class.
      * @param cls The class to build the column names for.
@@ -95,7 +106,7 @@ public class DatabaseUtils {
      */
     public static String buildColumnNames(Class<?> cls){
         StringBuilder sb = new StringBuilder();
-        for (Field field : cls.getDeclaredFields()) {
+        for (ClassCodec.FieldCodec field : ClassCodec.forClass(cls).getFields()) {
             sb.append(field.getName() + ", ");
         }
 
@@ -107,8 +118,25 @@ public class DatabaseUtils {
     }
 
 
+    /**
+     * Finds the columns a class declares indexes on with the Indexed annotation.
+     * @param cls The class to find the indexed columns of.
+     * @return The column names, in column order (empty if none are declared).
+     */
+    public static String[] buildIndexedColumns(Class<?> cls){
+        List<String> columns = new ArrayList<>();
+        for (ClassCodec.FieldCodec field : ClassCodec.forClass(cls).getFields()) {
+            if (field.getField().isAnnotationPresent(Indexed.class)) {
+                columns.add(field.getName());
+            }
+        }
+        return columns.toArray(new String[0]);
+    }
+
+
     /**
     * Prints the contents of a ResultSet.
+    * The whole result is built into one String; ResultSetRenderer writes large results without holding them in memory.
     * @param resultSet The ResultSet to print.
     * @return A string representation of the ResultSet contents.
     */
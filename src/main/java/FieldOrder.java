@@ -0,0 +1,29 @@
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * FieldOrder.java
+ * Declares the order of a class's fields when it is saved to CSV, loaded back, or stored in a table.
+ * Every instance field of the class must be listed exactly once.
+ *
+ * Without this annotation, ClassCodec falls back to the order returned by getDeclaredFields,
+ * which the JVM doesn't guarantee.
+ *
+ * Example:
+ *   {@literal @}FieldOrder({"make", "size", "weight", "engineSize"})
+ *   public class Vehicle { ... }
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface FieldOrder {
+    /**
+     * @return The field names, in column order.
+     */
+    String[] value();
+}
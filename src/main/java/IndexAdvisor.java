@@ -0,0 +1,332 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * IndexAdvisor.java
+ * Watches the queries a Database runs and recommends indexes for the columns they filter on most.
+ *
+ * Process:
+ * - For each query on a single table, find the columns compared in its WHERE clause (col = ?, col > ?,
+ *   col LIKE ?, col IN (...), col BETWEEN ..., col IS NULL).
+ * - Count how often each table.column is filtered on, and the rows those queries returned.
+ * - When asked for recommendations, compare the average rows returned to the table's size. A column that is
+ *   filtered on often and selects a small share of its table (at most maxSelectivity) is worth an index;
+ *   one that selects most of the table is read faster by a table scan, so it isn't recommended.
+ * Queries joining several tables aren't counted, since their columns can't be told apart without the aliases.
+ * When a query filters on several columns, its rows are counted for each of them, so a column's selectivity
+ * is never estimated lower than it really is.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class IndexAdvisor {
+    // The WHERE clause of the outermost query
+    private static final Pattern WHERE_CLAUSE = Pattern.compile(
+            "\\bWHERE\\s+(.+?)(?=\\s+(?:GROUP|ORDER|HAVING|UNION|EXCEPT|INTERSECT|FETCH|OFFSET|FOR)\\b|$)");
+    // A column followed by a comparison (the shape is upper case, and literals are already '?')
+    private static final Pattern COMPARED_COLUMN = Pattern.compile(
+            "(?<![\\w.\"])(?:[\\w\"]+\\.)?\"?([A-Z_]\\w*)\"?\\s*(?:<>|!=|<=|>=|=|<|>|(?:NOT\\s+)?(?:LIKE|IN|BETWEEN)\\b|IS\\b)");
+    // Past this many distinct columns, new ones aren't tracked so the map stays bounded
+    private static final int MAX_COLUMNS = 1000;
+
+    /**
+     * What the advisor needs to know about the tables when it recommends indexes.
+     */
+    public interface TableInfo {
+        /**
+         * @param tableName The table.
+         * @return The number of rows in the table.
+         * @throws SQLException If the table could not be counted.
+         */
+        long countRows(String tableName) throws SQLException;
+
+        /**
+         * @param tableName The table.
+         * @param columnName The column.
+         * @return Whether an index already starts with the column.
+         * @throws SQLException If the indexes could not be read.
+         */
+        boolean isIndexed(String tableName, String columnName) throws SQLException;
+    }
+
+    private final Map<String, ColumnUsage> usage = new HashMap<>();
+    private int minUses = 10;
+    private double maxSelectivity = 0.2;
+    private long minTableRows = 1000;
+    private int checkInterval = 100;
+    private long queriesSinceCheck;
+
+
+    /**
+     * Records the columns a query filtered on.
+     * @param sql The query that was run.
+     * @param rows The number of rows it returned, or -1 if that isn't known (e.g. it wasn't read to the end).
+     * @return Whether checkInterval queries have been recorded since the last time this returned true,
+     *         so the caller can check for recommendations now and then instead of after every query.
+     */
+    public boolean record(String sql, long rows) {
+        String shape = StatementMetrics.normalize(sql);
+        if (StatementMetrics.typeOf(shape) != StatementMetrics.StatementType.SELECT) {
+            return false;
+        }
+        Set<String> tables = QueryResultCache.tablesReadBy(shape);
+        if (tables.size() != 1) {
+            return false;
+        }
+        Set<String> columns = filteredColumns(shape);
+        if (columns.isEmpty()) {
+            return false;
+        }
+
+        String table = tables.iterator().next();
+        synchronized (this) {
+            for (String column : columns) {
+                String key = table + "." + column;
+                ColumnUsage columnUsage = usage.get(key);
+                if (columnUsage == null) {
+                    if (usage.size() >= MAX_COLUMNS) {
+                        continue;
+                    }
+                    columnUsage = new ColumnUsage(table, column);
+                    usage.put(key, columnUsage);
+                }
+                columnUsage.uses++;
+                if (rows >= 0) {
+                    columnUsage.rowsReturned += rows;
+                    columnUsage.countedQueries++;
+                }
+            }
+
+            if (++queriesSinceCheck >= checkInterval) {
+                queriesSinceCheck = 0;
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Finds the columns compared in a query's WHERE clause.
+     * @param shape The normalized (upper case) query.
+     * @return The column names, without table qualifiers or quotes, in the order they appear.
+     */
+    static Set<String> filteredColumns(String shape) {
+        Set<String> columns = new LinkedHashSet<>();
+        Matcher where = WHERE_CLAUSE.matcher(shape);
+        if (!where.find()) {
+            return columns;
+        }
+        Matcher column = COMPARED_COLUMN.matcher(where.group(1));
+        while (column.find()) {
+            String name = column.group(1);
+            // Keywords aren't columns, even when a comparison follows them
+            if (!name.equals("NOT") && !name.equals("AND") && !name.equals("OR")) {
+                columns.add(name);
+            }
+        }
+        return columns;
+    }
+
+
+    /**
+     * Recommends indexes for the columns filtered on at least minUses times, on tables of at least minTableRows rows,
+     * whose queries return at most maxSelectivity of their table on average, and that aren't indexed already.
+     * Columns whose queries' row counts were never known aren't recommended, since their selectivity can't be told.
+     * @param tables The row counts and existing indexes of the tables.
+     * @return The recommendations, most used column first.
+     * @throws SQLException If a table could not be counted or its indexes read.
+     */
+    public List<Recommendation> recommend(TableInfo tables) throws SQLException {
+        List<ColumnUsage> candidates = new ArrayList<>();
+        int minUses;
+        double maxSelectivity;
+        long minTableRows;
+        synchronized (this) {
+            for (ColumnUsage columnUsage : usage.values()) {
+                candidates.add(columnUsage.copy());
+            }
+            minUses = this.minUses;
+            maxSelectivity = this.maxSelectivity;
+            minTableRows = this.minTableRows;
+        }
+
+        List<Recommendation> recommendations = new ArrayList<>();
+        Map<String, Long> tableRows = new HashMap<>();
+        for (ColumnUsage candidate : candidates) {
+            if (candidate.uses < minUses || candidate.countedQueries == 0) {
+                continue;
+            }
+            Long rows = tableRows.get(candidate.table);
+            if (rows == null) {
+                rows = tables.countRows(candidate.table);
+                tableRows.put(candidate.table, rows);
+            }
+            if (rows < minTableRows) {
+                continue;
+            }
+
+            double selectivity = (double) candidate.rowsReturned / candidate.countedQueries / rows;
+            if (selectivity <= maxSelectivity && !tables.isIndexed(candidate.table, candidate.column)) {
+                recommendations.add(new Recommendation(candidate.table, candidate.column, candidate.uses, selectivity));
+            }
+        }
+        recommendations.sort((a, b) -> Long.compare(b.getUses(), a.getUses()));
+        return recommendations;
+    }
+
+
+    /**
+     * Forgets the usage recorded for a table's columns, e.g. after an index was created for them.
+     * @param tableName The table.
+     */
+    public synchronized void forgetTable(String tableName) {
+        String table = tableName.replace("\"", "").toUpperCase();
+        usage.values().removeIf(columnUsage -> columnUsage.table.equals(table));
+    }
+
+
+    /**
+     * Forgets all recorded usage.
+     */
+    public synchronized void reset() {
+        usage.clear();
+        queriesSinceCheck = 0;
+    }
+
+
+    /**
+     * @param minUses How many times a column must be filtered on before it is recommended, at least 1.
+     */
+    public synchronized void setMinUses(int minUses) {
+        if (minUses < 1) {
+            throw new IllegalArgumentException("Minimum uses must be at least 1: " + minUses);
+        }
+        this.minUses = minUses;
+    }
+
+
+    /**
+     * @param maxSelectivity The largest share of its table (0 to 1) a column's queries may return on average
+     *                       for the column to be recommended.
+     */
+    public synchronized void setMaxSelectivity(double maxSelectivity) {
+        if (!(maxSelectivity > 0 && maxSelectivity <= 1)) {
+            throw new IllegalArgumentException("Maximum selectivity must be above 0 and at most 1: " + maxSelectivity);
+        }
+        this.maxSelectivity = maxSelectivity;
+    }
+
+
+    /**
+     * @param minTableRows The fewest rows a table must have for its columns to be recommended
+     *                     (a small table is scanned about as fast as it is searched).
+     */
+    public synchronized void setMinTableRows(long minTableRows) {
+        if (minTableRows < 0) {
+            throw new IllegalArgumentException("Minimum table rows can't be negative: " + minTableRows);
+        }
+        this.minTableRows = minTableRows;
+    }
+
+
+    /**
+     * @param checkInterval How many recorded queries record waits between returning true, at least 1.
+     */
+    public synchronized void setCheckInterval(int checkInterval) {
+        if (checkInterval < 1) {
+            throw new IllegalArgumentException("Check interval must be at least 1: " + checkInterval);
+        }
+        this.checkInterval = checkInterval;
+    }
+
+
+    /**
+     * @return A line per tracked column with its uses and average rows returned, most used first.
+     */
+    public synchronized String getStats() {
+        List<ColumnUsage> columns = new ArrayList<>(usage.values());
+        columns.sort((a, b) -> Long.compare(b.uses, a.uses));
+        StringBuilder sb = new StringBuilder("Filtered columns:");
+        for (ColumnUsage columnUsage : columns) {
+            sb.append(System.lineSeparator()).append("   ").append(columnUsage.table).append('.')
+                    .append(columnUsage.column).append(": uses=").append(columnUsage.uses);
+            if (columnUsage.countedQueries > 0) {
+                sb.append(String.format(" avgRows=%.1f", (double) columnUsage.rowsReturned / columnUsage.countedQueries));
+            }
+        }
+        if (columns.isEmpty()) {
+            sb.append(" none");
+        }
+        return sb.toString();
+    }
+
+
+    /**
+     * How often one column was filtered on.
+     */
+    private static class ColumnUsage {
+        final String table;
+        final String column;
+        long uses;
+        long rowsReturned;
+        long countedQueries;
+
+        ColumnUsage(String table, String column) {
+            this.table = table;
+            this.column = column;
+        }
+
+        ColumnUsage copy() {
+            ColumnUsage copy = new ColumnUsage(table, column);
+            copy.uses = uses;
+            copy.rowsReturned = rowsReturned;
+            copy.countedQueries = countedQueries;
+            return copy;
+        }
+    }
+
+
+    /**
+     * An index worth creating.
+     */
+    public static class Recommendation {
+        private final String table;
+        private final String column;
+        private final long uses;
+        private final double selectivity;
+
+        Recommendation(String table, String column, long uses, double selectivity) {
+            this.table = table;
+            this.column = column;
+            this.uses = uses;
+            this.selectivity = selectivity;
+        }
+
+        public String getTable() { return table; }
+        public String getColumn() { return column; }
+        public long getUses() { return uses; }
+        public double getSelectivity() { return selectivity; }
+
+        /**
+         * @return The index's name, IDX_table_column (the same names Database gives declared indexes).
+         */
+        public String getIndexName() {
+            return "IDX_" + table + "_" + column;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s -- filtered on %d times, returning %.2f%% of the table on average",
+                    QueryBuilder.buildCreateIndexQuery(getIndexName(), table, column), uses, selectivity * 100);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * Indexed.java
+ * Declares that a field's column should be indexed. Database creates one index per annotated field,
+ * named IDX_table_column, when it creates the class's table (e.g. in bulkImport).
+ *
+ * Example:
+ *   {@literal @}Indexed
+ *   public Make make;
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Indexed {
+}
@@ -0,0 +1,136 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * LatencyHistogram.java
+ * A low-overhead histogram of latencies in nanoseconds, safe to record into from many threads.
+ *
+ * Values are counted in log-linear buckets: each power of two is split into 16 buckets,
+ * so any percentile is reported within about 6% of the true value.
+ * Recording a value is a few atomic increments and never allocates.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one latency.
+     * @param nanos The latency in nanoseconds. Negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucketOf(nanos));
+        count.increment();
+        total.add(nanos);
+
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+
+    /**
+     * Finds the bucket of a value: values below 16 get their own bucket,
+     * larger values are bucketed by their highest bit and the 4 bits below it.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+
+    /**
+     * @return The largest value that lands in the bucket.
+     */
+    private static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long lower = (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+
+    /**
+     * @param percentile The percentile, from 0 to 100 (e.g. 99.9).
+     * @return The latency in nanoseconds at or below which that percent of recorded values fall.
+     */
+    public long getPercentile(double percentile) {
+        long recorded = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            recorded += snapshot[i];
+        }
+        if (recorded == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+
+    public long getCount() {
+        return count.sum();
+    }
+
+
+    public long getTotalNanos() {
+        return total.sum();
+    }
+
+
+    public long getMax() {
+        return max.get();
+    }
+
+
+    /**
+     * @return The mean latency in nanoseconds.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : total.sum() / (double) n;
+    }
+
+
+    /**
+     * Clears every recorded value.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+}
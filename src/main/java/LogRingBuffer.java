@@ -0,0 +1,115 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * LogRingBuffer.java
+ * A bounded, lock-free queue of log messages with many producers and a single consumer.
+ * Used by DatabaseLog in async mode.
+ *
+ * Each slot has a sequence number that tells producers when it is free and the consumer when it is filled,
+ * so producers only compete on one compare-and-set and never block each other.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class LogRingBuffer {
+    private final AtomicReferenceArray<String> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    // The next position producers will claim
+    private final AtomicLong tail = new AtomicLong();
+    // The next position the consumer will read. Only touched by the consumer thread.
+    private long head;
+
+    /**
+     * @param capacity The number of messages the buffer can hold, rounded up to a power of two.
+     */
+    public LogRingBuffer(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+
+    /**
+     * Adds a message if there is room. Safe to call from any number of threads.
+     * @param message The message.
+     * @return False if the buffer is full.
+     */
+    public boolean offer(String message) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                // The slot is free for this position; claim it
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, message);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // The consumer hasn't freed this slot yet, so the buffer is full
+                return false;
+            } else {
+                // Another producer claimed this position first
+                position = tail.get();
+            }
+        }
+    }
+
+
+    /**
+     * Removes the oldest message. Must only be called from the consumer thread.
+     * @return The message, or null if the buffer is empty.
+     */
+    public String poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+
+        String message = slots.get(index);
+        slots.lazySet(index, null);
+        // Free the slot for the producer that will wrap around to it
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+        return message;
+    }
+
+
+    /**
+     * Checks whether every message accepted so far has been removed. Must only be called from the consumer thread.
+     * @return Whether the buffer is empty.
+     */
+    public boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+
+    /**
+     * @return The number of messages accepted since the buffer was created.
+     */
+    public long getOfferedCount() {
+        return tail.get();
+    }
+
+
+    /**
+     * @return The number of messages the buffer can hold.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+}
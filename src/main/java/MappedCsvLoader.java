@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+
+/**
+ * MappedCsvLoader.java
+ * Loads the rows of a CSV file on several threads, reading the file through memory mapping.
+ * Used by ObjectLoader.loadObjectsParallel.
+ *
+ * Process:
+ * - Split the file (after the header) into byte ranges, moving each boundary to the start of a line.
+ * - Map each range with FileChannel.map and convert its lines into objects on a fork-join pool,
+ *   decoding the values straight from the mapped bytes.
+ * - Merge the per-range results, either in file order or in the order the ranges finish.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class MappedCsvLoader<T> {
+    private static final long MIN_CHUNK_SIZE = 1024 * 1024;
+    // A mapped buffer is indexed by int, so a range has to stay well under 2GB
+    private static final long MAX_CHUNK_SIZE = 256L * 1024 * 1024;
+
+    private final Path path;
+    private final CsvRowDecoder<T> decoder;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param path The CSV file.
+     * @param decoder Converts a line of the file into an object.
+     * @param pool The pool the ranges are parsed on.
+     */
+    public MappedCsvLoader(Path path, CsvRowDecoder<T> decoder, ForkJoinPool pool) {
+        this.path = path;
+        this.decoder = decoder;
+        this.pool = pool;
+    }
+
+
+    /**
+     * Loads every row after the header.
+     * @param start The offset of the first data row (just past the header).
+     * @param ordered Whether the objects must be in file order. Unordered loads merge each range
+     *                as soon as it finishes, instead of holding every range until all are done.
+     * @return The loaded objects.
+     * @throws IOException If the file could not be read.
+     */
+    public List<T> load(long start, boolean ordered) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<Long> boundaries = splitOnLines(channel, start, channel.size());
+
+            List<ForkJoinTask<List<T>>> tasks = new ArrayList<>();
+            List<T> objects = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.size(); i++) {
+                long from = boundaries.get(i);
+                long to = boundaries.get(i + 1);
+                tasks.add(pool.submit(() -> {
+                    List<T> chunk = parseRange(channel, from, to);
+                    if (!ordered) {
+                        synchronized (objects) {
+                            objects.addAll(chunk);
+                        }
+                        return null;
+                    }
+                    return chunk;
+                }));
+            }
+
+            // join() rethrows anything a range failed with
+            for (ForkJoinTask<List<T>> task : tasks) {
+                List<T> chunk = task.join();
+                if (ordered) {
+                    objects.addAll(chunk);
+                }
+            }
+            return objects;
+        }
+    }
+
+
+    /**
+     * Splits [start, end) into ranges of about equal size, each starting at the beginning of a line.
+     * @return The range boundaries, starting with start and ending with end.
+     */
+    private List<Long> splitOnLines(FileChannel channel, long start, long end) throws IOException {
+        long chunkSize = (end - start) / (pool.getParallelism() * 4L);
+        chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(start);
+        long position = start;
+        while (end - position > chunkSize) {
+            long next = findLineStart(channel, position + chunkSize, end);
+            if (next >= end) {
+                break;
+            }
+            boundaries.add(next);
+            position = next;
+        }
+        boundaries.add(end);
+        return boundaries;
+    }
+
+
+    /**
+     * Finds the offset of the first line that starts at or after the given offset.
+     */
+    private static long findLineStart(FileChannel channel, long offset, long end) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(4096);
+        long position = offset - 1;
+        while (position < end) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read < 0) {
+                return end;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return end;
+    }
+
+
+    /**
+     * Maps a range of the file and converts each of its lines into an object.
+     */
+    private List<T> parseRange(FileChannel channel, long from, long to) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        List<T> objects = new ArrayList<>();
+
+        int lineStart = 0;
+        int limit = buffer.limit();
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && buffer.get(i) != '\n') {
+                continue;
+            }
+
+            int lineEnd = i;
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd > lineStart) {
+                objects.add(decoder.decode(buffer, lineStart, lineEnd));
+            }
+            lineStart = i + 1;
+        }
+        return objects;
+    }
+}
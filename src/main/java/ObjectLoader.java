@@ -1,9 +1,17 @@
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileReader;
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -11,67 +19,135 @@ import java.util.List;
  * Utility class for loading objects from a CSV file.
  * Functionality:
  * - Load objects of a specified class from a CSV file.
+ * - Stream objects from a CSV file one row at a time, optionally in parallel.
+ * - Load objects from a memory mapped CSV file on several threads.
+ * - Values are decoded straight from the file's bytes (see CsvRowDecoder).
+ * - Files ending in ".bin" are loaded from the compact binary format instead (see BinaryRowFile).
+ * - Files ending in ".csv.gz" are decompressed and parsed a block at a time on several threads (see BlockCompressedCsv).
  * 
  * @author Elijah Reyna
- * Last Edited 9/25/25
+ * Last Edited 10/18/26
  */
 public class ObjectLoader {
     /**
-     * Loads objects of a specified class from a CSV file.
-     * @param file The CSV file to load objects from.
+     * Loads objects of a specified class from a CSV file, from a binary file if its name ends in ".bin",
+     * or from a block compressed CSV file if its name ends in ".csv.gz".
+     * @param file The CSV, binary or compressed file to load objects from.
      * @param cls The class of the objects to load.
      * @return A list of loaded objects.
      */
     public static <T> List<T> loadObjectsFromFile(File file, Class<T> cls) {
+        if (BinaryRowFile.isBinaryFile(file.getName()) || BlockCompressedCsv.isCompressedFile(file.getName())) {
+            try {
+                return readWhole(file, cls);
+            } catch (Exception e) {
+                System.out.println("Error loading objects from file: " + e.getMessage());
+                e.printStackTrace();
+                return new ArrayList<>();
+            }
+        }
+
         List<T> objects = new ArrayList<>();
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            reader.readLine(); // Skip the header line
+        // Read each line from the file and add the created object to the list
+        try (Stream<T> rows = stream(file, cls)) {
+            rows.forEach(objects::add);
+        } catch (Exception e) {
+            System.out.println("Error loading objects from file: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return objects;
+    }
+
+    /**
+     * Streams objects of a specified class from a CSV file, reading and converting one row at a time.
+     * Rows are only read as the stream consumes them, so the file never has to fit in memory.
+     * The stream can be made parallel, in which case the file is split on line boundaries.
+     * Close the stream (e.g. with try-with-resources) to release the file.
+     * Binary and compressed files can't be read a row at a time, so they are loaded whole and then streamed.
+     * @param file The CSV file to load objects from.
+     * @param cls The class of the objects to load.
+     * @return A stream of the loaded objects, in file order.
+     * @throws IOException If the file could not be opened.
+     */
+    public static <T> Stream<T> stream(File file, Class<T> cls) throws IOException {
+        if (BinaryRowFile.isBinaryFile(file.getName()) || BlockCompressedCsv.isCompressedFile(file.getName())) {
+            return readWhole(file, cls).stream();
+        }
 
-            // Read each line from the file
-            while ((line = reader.readLine()) != null) {
-                // Create a new instance of the class
-                T obj = cls.getDeclaredConstructor().newInstance();
+        Path path = file.toPath();
+        long start = findHeaderEnd(path);
+        long end = Files.size(path);
 
-                // Set each field of the object to the corresponding value from the line in the csv
-                String[] values = line.split(",");
-                Field[] fields = cls.getDeclaredFields();
-                for (int i = 0; i < fields.length && i < values.length; i++) {
-                    fields[i].setAccessible(true);
-                    fields[i].set(obj, convertSQLToValue(fields[i].getType(), values[i]));
+        Queue<FileChannel> openChannels = new ConcurrentLinkedQueue<>();
+        CsvSpliterator<T> spliterator = new CsvSpliterator<>(path, start, end, CsvRowDecoder.forClass(cls), openChannels);
+
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            FileChannel channel;
+            while ((channel = openChannels.poll()) != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.out.println("Error closing file: " + e.getMessage());
                 }
+            }
+        });
+    }
+
 
-                // Add the object to the list
-                objects.add(obj);
+    /**
+     * Loads objects of a specified class from a CSV file on several threads.
+     * The file is memory mapped and split into ranges on line boundaries, which are parsed on the common fork-join pool.
+     * @param file The CSV file to load objects from.
+     * @param cls The class of the objects to load.
+     * @param ordered Whether the objects must be in the same order as the file. Unordered loads are a little faster.
+     *                Binary and compressed files are always loaded in order.
+     * @return A list of loaded objects.
+     */
+    public static <T> List<T> loadObjectsParallel(File file, Class<T> cls, boolean ordered) {
+        try {
+            if (BinaryRowFile.isBinaryFile(file.getName()) || BlockCompressedCsv.isCompressedFile(file.getName())) {
+                return readWhole(file, cls);
             }
+            Path path = file.toPath();
+            MappedCsvLoader<T> loader = new MappedCsvLoader<>(path, CsvRowDecoder.forClass(cls), ForkJoinPool.commonPool());
+            return loader.load(findHeaderEnd(path), ordered);
         } catch (Exception e) {
             System.out.println("Error loading objects from file: " + e.getMessage());
             e.printStackTrace();
+            return new ArrayList<>();
         }
-        return objects;
     }
 
+
     /**
-     * Converts a SQL string value to the appropriate Java type based on the field's type.
-     * @param type The type of the field.
-     * @param string The SQL string value.
-     * @return The converted value.
+     * Loads a binary or block compressed CSV file, by its extension.
      */
-    @SuppressWarnings({ "unchecked", "rawtypes" })
-    private static Object convertSQLToValue(Class<?> type, String string) {
-        if (type == int.class || type == Integer.class) {
-            return Integer.parseInt(string);
-        } else if (type == double.class || type == Double.class) {
-            return Double.parseDouble(string);
-        } else if (type == boolean.class || type == Boolean.class) {
-            return Boolean.parseBoolean(string);
-        } else if (type == String.class) {
-            return string;
-        } else if (type.isEnum()) {
-            return Enum.valueOf((Class<Enum>) type.asSubclass(Enum.class), string.trim());
-        } else {
-            throw new UnsupportedOperationException("Unimplemented type in 'convertSQLToValue': " + type.getName());
+    private static <T> List<T> readWhole(File file, Class<T> cls) throws IOException {
+        if (BinaryRowFile.isBinaryFile(file.getName())) {
+            return BinaryRowFile.read(file.toPath(), cls);
+        }
+        return BlockCompressedCsv.read(file.toPath(), cls);
+    }
+
+
+    /**
+     * Finds the offset just past the header line of a CSV file.
+     * @param path The CSV file.
+     * @return The offset of the first data row.
+     * @throws IOException If the file could not be read.
+     */
+    static long findHeaderEnd(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            long offset = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b == '\n') {
+                    break;
+                }
+            }
+            return offset;
         }
     }
 }
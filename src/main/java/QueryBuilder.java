@@ -1,23 +1,37 @@
-
+import java.util.regex.Pattern;
 
 /**
  * QueryBuilder.java
  * Utility class for building SQL queries.
  * 
  * Functionality:
- * - Supports building queries for SELECT, INSERT, DELETE, CREATE TABLE, and DROP TABLE operations.
+ * - Supports building queries for SELECT, INSERT, DELETE, CREATE TABLE, CREATE INDEX, and DROP TABLE operations.
  *   - Takes in table name, columns, values, and conditions (wherever they apply) as parameters, and constructs the appropriate SQL query string.
  * - Includes basic SQL injection prevention.
+ * - Starts parameterized SELECT queries (select), which bind their values instead of writing them into the SQL.
  * 
  * @author Elijah Reyna
- * Last Edited 9/21/25
+ * Last Edited 10/18/26
  */
 public class QueryBuilder{
+    private static final Pattern UNSAFE = Pattern.compile("[;\"]");
+
     /**
      * A quick check to prevent injection attacks
     */
     public static boolean sqlSafe(String input){
-        return input != null && !input.trim().isEmpty() && !input.matches(".*[;\"]+.*");
+        return input != null && !input.trim().isEmpty() && !UNSAFE.matcher(input).find();
+    }
+
+
+    /**
+     * Starts a parameterized SELECT query, e.g. select("*").from("Vehicles").where("weight").gt(2500).
+     * Run it with Database.query or Database.queryStream.
+     * @param columns The columns to select, or "*" for all of them.
+     * @return The query, to be continued with from.
+     */
+    public static SelectQuery select(String... columns){
+        return new SelectQuery(columns);
     }
 
 
@@ -58,6 +72,21 @@ public class QueryBuilder{
     }
 
 
+    /**
+     * Builds a Create Index SQL query.
+     * @param indexName The name of the index to create.
+     * @param tableName The name of the table to index.
+     * @param columns The columns to index (comma-separated).
+     * @return The constructed SQL CREATE INDEX query.
+     */
+    public static String buildCreateIndexQuery(String indexName, String tableName, String columns){
+        if(!sqlSafe(indexName) || !sqlSafe(tableName) || !sqlSafe(columns)){
+            throw new IllegalArgumentException("Unsafe SQL input detected");
+        }
+        return "CREATE INDEX " + indexName + " ON " + tableName + " (" + columns + ")";
+    }
+
+
     public static String buildDropTableQuery(String tableName){
         if(!sqlSafe(tableName)){
             throw new IllegalArgumentException("Unsafe SQL input detected in the Table Name");
@@ -103,4 +132,24 @@ public class QueryBuilder{
         }
         return "INSERT INTO " + tableName + " (" + columns + ") VALUES (" + values + ")";
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Builds a parameterized Insert SQL query, with one '?' placeholder per column.
+     * @param tableName The name of the table to insert into.
+     * @param columns The columns to insert into (comma-separated).
+     * @param paramCount The number of columns, and so the number of placeholders.
+     * @return The constructed SQL INSERT query.
+     */
+    public static String buildPreparedInsertQuery(String tableName, String columns, int paramCount){
+        if(!sqlSafe(tableName) || !sqlSafe(columns) || paramCount < 1){
+            throw new IllegalArgumentException("Unsafe SQL input detected");
+        }
+
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < paramCount; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return "INSERT INTO " + tableName + " (" + columns + ") VALUES (" + placeholders + ")";
+    }
+}
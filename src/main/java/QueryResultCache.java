@@ -0,0 +1,389 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * QueryResultCache.java
+ * Caches the results of SELECT queries, so a query that repeats while its tables are unchanged skips the database.
+ * Used by Database when its result cache is enabled.
+ *
+ * Functionality:
+ * - Keys results on the normalized SQL plus its literal and bind values, so spacing and keyword case don't matter
+ *   but different values do (Make = 'CHEVY' and Make = 'TOYOTA' are cached separately).
+ * - Evicts the least recently used results once the cached rows or approximate bytes pass their limits.
+ * - Expires results after a time to live.
+ * - Drops every result that reads a table when a statement writes to it (INSERT, UPDATE, DELETE, DROP, ...).
+ * - Counts hits, misses, evictions, expirations and invalidations.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class QueryResultCache {
+    // Tables named after FROM or JOIN (a FROM list is split on commas separately)
+    private static final Pattern FROM_LIST = Pattern.compile(
+            "\\bFROM\\s+(.+?)(?=\\s+(?:WHERE|GROUP|ORDER|HAVING|UNION|EXCEPT|INTERSECT|FETCH|OFFSET|FOR|JOIN|INNER|LEFT|RIGHT|FULL|CROSS|NATURAL)\\b|\\)|$)");
+    private static final Pattern JOIN_TABLE = Pattern.compile("\\bJOIN\\s+([\\w.\"]+)");
+    // The table a statement writes to
+    private static final Pattern WRITTEN_TABLE = Pattern.compile(
+            "^(?:INSERT\\s+INTO|UPDATE|DELETE\\s+FROM|(?:DROP|ALTER|TRUNCATE|LOCK|RENAME)\\s+TABLE)\\s+([\\w.\"]+)");
+
+    private final long maxRows;
+    private final long maxBytes;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedRows;
+    private long cachedBytes;
+    // Bumped by every invalidation, so a result read before one can't be cached after it
+    private long version;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    /**
+     * @param maxRows The most rows to keep cached, across all results.
+     * @param maxBytes The most (approximate) bytes to keep cached, across all results.
+     * @param ttlMillis How long a result stays cached, or 0 to keep it until it is evicted or invalidated.
+     */
+    public QueryResultCache(long maxRows, long maxBytes, long ttlMillis) {
+        if (maxRows < 1 || maxBytes < 1 || ttlMillis < 0) {
+            throw new IllegalArgumentException("Invalid cache limits: maxRows=" + maxRows + ", maxBytes=" + maxBytes
+                    + ", ttlMillis=" + ttlMillis);
+        }
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlMillis * 1_000_000;
+    }
+
+
+    /**
+     * Builds the cache key for a query.
+     * @param sql The SQL.
+     * @param resultType What the result is cached as (e.g. the class rows are mapped into), since the same query
+     *                   can be cached in different forms.
+     * @param binds The values bound to the query's parameters, if it has any.
+     * @return The key.
+     */
+    public static Key keyFor(String sql, Class<?> resultType, Object... binds) {
+        List<String> literals = new ArrayList<>();
+        String shape = StatementMetrics.normalize(sql, literals);
+        return new Key(shape, literals, Arrays.asList(binds), resultType);
+    }
+
+
+    /**
+     * Finds a cached result.
+     * @param key The query's key.
+     * @return The result, or null if it isn't cached (or has expired).
+     */
+    public synchronized Object get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (ttlNanos > 0 && System.nanoTime() - entry.createdNanos > ttlNanos) {
+            remove(key, entry);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+
+    /**
+     * @return The current version, to pass to put for a result that is about to be read from the database.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+
+    /**
+     * Caches a result. It is not cached if it is larger than the cache, or if anything was invalidated
+     * since the version was taken (the result may already be out of date).
+     * @param key The query's key.
+     * @param value The result.
+     * @param rows The number of rows in the result.
+     * @param bytes The approximate size of the result in bytes.
+     * @param versionBeforeQuery The version taken before the query was run.
+     */
+    public synchronized void put(Key key, Object value, long rows, long bytes, long versionBeforeQuery) {
+        if (versionBeforeQuery != version || rows > maxRows || bytes > maxBytes) {
+            return;
+        }
+
+        Entry previous = entries.get(key);
+        if (previous != null) {
+            remove(key, previous);
+        }
+        entries.put(key, new Entry(value, rows, bytes, tablesReadBy(key.shape)));
+        cachedRows += rows;
+        cachedBytes += bytes;
+
+        // Evict the least recently used results until the cache is within its limits
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while ((cachedRows > maxRows || cachedBytes > maxBytes) && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            cachedRows -= evicted.rows;
+            cachedBytes -= evicted.bytes;
+            evictions++;
+        }
+    }
+
+
+    /**
+     * Drops the cached results a statement may have changed: the results reading the table it writes to,
+     * or every result if the table can't be told (e.g. for CALL).
+     * Queries invalidate nothing.
+     * @param sql The statement that was executed.
+     */
+    public void invalidateFor(String sql) {
+        String shape = StatementMetrics.normalize(sql);
+        StatementMetrics.StatementType type = StatementMetrics.typeOf(shape);
+        if (type == StatementMetrics.StatementType.SELECT) {
+            return;
+        }
+        if (type == StatementMetrics.StatementType.CREATE) {
+            // Creating a table, index or view doesn't change any rows a cached query read
+            return;
+        }
+
+        Matcher matcher = WRITTEN_TABLE.matcher(shape);
+        if (matcher.find()) {
+            invalidateTable(matcher.group(1));
+        } else {
+            invalidateAll();
+        }
+    }
+
+
+    /**
+     * Drops the cached results that read a table.
+     * @param tableName The table's name.
+     */
+    public synchronized void invalidateTable(String tableName) {
+        String table = tableKey(tableName);
+        version++;
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (entry.tables.contains(table)) {
+                iterator.remove();
+                cachedRows -= entry.rows;
+                cachedBytes -= entry.bytes;
+                invalidations++;
+            }
+        }
+    }
+
+
+    /**
+     * Drops every cached result.
+     */
+    public synchronized void invalidateAll() {
+        version++;
+        invalidations += entries.size();
+        entries.clear();
+        cachedRows = 0;
+        cachedBytes = 0;
+    }
+
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        cachedRows -= entry.rows;
+        cachedBytes -= entry.bytes;
+    }
+
+
+    /**
+     * Finds the tables a query reads, from its FROM lists and JOINs.
+     * @param shape The normalized (upper case) query.
+     * @return The table names, without schema or quotes.
+     */
+    static Set<String> tablesReadBy(String shape) {
+        Set<String> tables = new HashSet<>();
+        Matcher from = FROM_LIST.matcher(shape);
+        int position = 0;
+        // Search again from inside each FROM list, so subqueries in it are found too
+        while (from.find(position)) {
+            position = from.start(1);
+            for (String item : from.group(1).split(",")) {
+                String name = item.trim().split("\\s+")[0];
+                if (!name.isEmpty() && !name.startsWith("(")) {
+                    tables.add(tableKey(name));
+                }
+            }
+        }
+        Matcher join = JOIN_TABLE.matcher(shape);
+        while (join.find()) {
+            tables.add(tableKey(join.group(1)));
+        }
+        return Collections.unmodifiableSet(tables);
+    }
+
+
+    /**
+     * Compares tables by their name alone, without schema, quotes or case.
+     */
+    private static String tableKey(String tableName) {
+        String name = tableName.replace("\"", "").toUpperCase();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+
+    /**
+     * Estimates the memory a list of objects of a class takes, from the kinds of its fields.
+     * @param cls The class.
+     * @param rows The number of objects.
+     * @return The approximate size in bytes.
+     */
+    public static long estimateBytes(Class<?> cls, long rows) {
+        // Object header, plus the list's reference to the object
+        long rowBytes = 16 + 4;
+        for (ClassCodec.FieldCodec field : ClassCodec.forClass(cls).getFields()) {
+            switch (field.getKind()) {
+                case DOUBLE:
+                    rowBytes += 8;
+                    break;
+                case INT:
+                    rowBytes += 4;
+                    break;
+                case BOOLEAN:
+                    rowBytes += 1;
+                    break;
+                case ENUM:
+                    // Enum constants are shared, so only the reference
+                    rowBytes += 4;
+                    break;
+                case STRING:
+                    // The reference plus a typical short String
+                    rowBytes += 4 + 56;
+                    break;
+                default:
+                    rowBytes += 4 + 16;
+                    break;
+            }
+        }
+        return rows * ((rowBytes + 7) & ~7);
+    }
+
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+
+    public synchronized long getExpirationCount() {
+        return expirations;
+    }
+
+
+    public synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+
+    /**
+     * @return The number of results cached.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+
+    /**
+     * @return A summary of the cache's contents and counters.
+     */
+    public synchronized String getStats() {
+        long lookups = hits + misses;
+        return String.format("results=%d rows=%d bytes=%d hits=%d misses=%d hitRate=%.1f%% evictions=%d "
+                + "expirations=%d invalidations=%d", entries.size(), cachedRows, cachedBytes, hits, misses,
+                lookups == 0 ? 0.0 : 100.0 * hits / lookups, evictions, expirations, invalidations);
+    }
+
+
+    /**
+     * What a cached result is looked up by.
+     */
+    public static final class Key {
+        private final String shape;
+        private final List<String> literals;
+        private final List<Object> binds;
+        private final Class<?> resultType;
+        private final int hash;
+
+        Key(String shape, List<String> literals, List<Object> binds, Class<?> resultType) {
+            this.shape = shape;
+            this.literals = literals;
+            this.binds = binds;
+            this.resultType = resultType;
+            this.hash = ((shape.hashCode() * 31 + literals.hashCode()) * 31 + binds.hashCode()) * 31 + resultType.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && resultType == key.resultType && shape.equals(key.shape)
+                    && literals.equals(key.literals) && binds.equals(key.binds);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return shape + " " + literals + (binds.isEmpty() ? "" : " " + binds);
+        }
+    }
+
+
+    private static final class Entry {
+        final Object value;
+        final long rows;
+        final long bytes;
+        final Set<String> tables;
+        final long createdNanos = System.nanoTime();
+
+        Entry(Object value, long rows, long bytes, Set<String> tables) {
+            this.value = value;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.tables = tables;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * ResultSetMapper.java
+ * Maps the rows of a ResultSet back into objects of a class.
+ *
+ * Process:
+ * - Match the result's columns to the class's fields by name (ignoring case) once, when the mapper is created.
+ * - For each row, create an object and read each matched column with the getter for its field's type
+ *   (getInt, getDouble, getBoolean, getString), so numbers are never turned into text.
+ * - Look enum constants up by name in a table built once.
+ * Fields without a matching column keep their default value.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class ResultSetMapper<T> {
+    private final ClassCodec<T> codec;
+    private final ClassCodec.FieldCodec[] fields;
+    private final int[] columns;
+    private final Map<?, ?>[] enumConstants;
+
+    /**
+     * Resolves the columns of a result for a class.
+     * @param metaData The result's metadata.
+     * @param cls The class to map the rows into.
+     * @throws SQLException If the metadata could not be read.
+     */
+    public ResultSetMapper(ResultSetMetaData metaData, Class<T> cls) throws SQLException {
+        this.codec = ClassCodec.forClass(cls);
+
+        Map<String, Integer> columnIndexes = new HashMap<>();
+        for (int i = metaData.getColumnCount(); i >= 1; i--) {
+            columnIndexes.put(metaData.getColumnLabel(i).toUpperCase(), i);
+        }
+
+        List<ClassCodec.FieldCodec> codecFields = codec.getFields();
+        int matched = 0;
+        for (ClassCodec.FieldCodec field : codecFields) {
+            if (columnIndexes.containsKey(field.getName().toUpperCase())) {
+                matched++;
+            }
+        }
+
+        this.fields = new ClassCodec.FieldCodec[matched];
+        this.columns = new int[matched];
+        this.enumConstants = new Map<?, ?>[matched];
+        int i = 0;
+        for (ClassCodec.FieldCodec field : codecFields) {
+            Integer column = columnIndexes.get(field.getName().toUpperCase());
+            if (column == null) {
+                continue;
+            }
+            fields[i] = field;
+            columns[i] = column;
+            if (field.getKind() == ClassCodec.Kind.ENUM) {
+                enumConstants[i] = constantsByName(field.getType());
+            }
+            i++;
+        }
+    }
+
+
+    /**
+     * Resolves the columns of a result for a class.
+     * @param resultSet The result.
+     * @param cls The class to map the rows into.
+     * @return The mapper.
+     * @throws SQLException If the metadata could not be read.
+     */
+    public static <T> ResultSetMapper<T> forResultSet(ResultSet resultSet, Class<T> cls) throws SQLException {
+        return new ResultSetMapper<>(resultSet.getMetaData(), cls);
+    }
+
+
+    private static Map<String, Object> constantsByName(Class<?> enumType) {
+        Map<String, Object> constants = new HashMap<>();
+        for (Object constant : enumType.getEnumConstants()) {
+            constants.put(((Enum<?>) constant).name(), constant);
+        }
+        return constants;
+    }
+
+
+    /**
+     * Maps the row the result is currently on.
+     * @param resultSet The result, positioned on a row.
+     * @return The object.
+     * @throws SQLException If a column could not be read, or holds an unknown enum constant.
+     */
+    public T map(ResultSet resultSet) throws SQLException {
+        T object = codec.newInstance();
+        for (int i = 0; i < fields.length; i++) {
+            ClassCodec.FieldCodec field = fields[i];
+            int column = columns[i];
+            switch (field.getKind()) {
+                case INT:
+                    field.setInt(object, resultSet.getInt(column));
+                    break;
+                case DOUBLE:
+                    field.setDouble(object, resultSet.getDouble(column));
+                    break;
+                case BOOLEAN:
+                    field.setBoolean(object, resultSet.getBoolean(column));
+                    break;
+                case STRING:
+                    field.set(object, resultSet.getString(column));
+                    break;
+                case ENUM:
+                    field.set(object, readEnum(resultSet, column, i));
+                    break;
+                default:
+                    field.set(object, readBoxed(resultSet, column, field.getType()));
+                    break;
+            }
+        }
+        return object;
+    }
+
+
+    private Object readEnum(ResultSet resultSet, int column, int field) throws SQLException {
+        String name = resultSet.getString(column);
+        if (name == null) {
+            return null;
+        }
+        Object constant = enumConstants[field].get(name.trim());
+        if (constant == null) {
+            throw new SQLException("Unknown " + fields[field].getType().getSimpleName() + " in column " + column + ": " + name);
+        }
+        return constant;
+    }
+
+
+    private static Object readBoxed(ResultSet resultSet, int column, Class<?> type) throws SQLException {
+        Object value;
+        if (type == Integer.class) {
+            value = resultSet.getInt(column);
+        } else if (type == Double.class) {
+            value = resultSet.getDouble(column);
+        } else {
+            value = resultSet.getBoolean(column);
+        }
+        return resultSet.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,500 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+
+/**
+ * ResultSetRenderer.java
+ * Writes the rows of a ResultSet to a Writer, OutputStream or channel as they are read,
+ * so memory use stays the same however large the result is.
+ *
+ * Functionality:
+ * - Formats rows as aligned text, CSV, or JSON lines (or any other Format).
+ * - Reads numbers and booleans with their typed getters and appends them without building Strings.
+ * - Collects output in one reusable buffer, which is written out every BUFFER_SIZE characters.
+ * - Stops after a row limit.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class ResultSetRenderer {
+    public static final int BUFFER_SIZE = 8192;
+    public static final long NO_LIMIT = Long.MAX_VALUE;
+
+    // Text columns wider than this are not padded any further
+    private static final int MAX_TEXT_WIDTH = 40;
+
+    private final Format format;
+    private final long rowLimit;
+
+    /**
+     * @param format The format to write rows in.
+     * @param rowLimit The most rows to write (NO_LIMIT for all of them).
+     */
+    public ResultSetRenderer(Format format, long rowLimit) {
+        if (rowLimit < 0) {
+            throw new IllegalArgumentException("Row limit can't be negative: " + rowLimit);
+        }
+        this.format = format;
+        this.rowLimit = rowLimit;
+    }
+
+
+    /**
+     * Creates a renderer that writes every row.
+     * @param format The format to write rows in.
+     */
+    public ResultSetRenderer(Format format) {
+        this(format, NO_LIMIT);
+    }
+
+
+    /**
+     * Writes the remaining rows of a result. The writer is flushed, but not closed.
+     * @param resultSet The result.
+     * @param out The writer.
+     * @return The number of rows written.
+     * @throws SQLException If the result could not be read.
+     * @throws IOException If the output could not be written.
+     */
+    public long render(ResultSet resultSet, Writer out) throws SQLException, IOException {
+        char[] chars = new char[BUFFER_SIZE];
+        long rows = render(resultSet, buffer -> {
+            for (int start = 0; start < buffer.length(); start += chars.length) {
+                int end = Math.min(buffer.length(), start + chars.length);
+                buffer.getChars(start, end, chars, 0);
+                out.write(chars, 0, end - start);
+            }
+        });
+        out.flush();
+        return rows;
+    }
+
+
+    /**
+     * Writes the remaining rows of a result in UTF-8. The stream is flushed, but not closed.
+     * @param resultSet The result.
+     * @param out The stream.
+     * @return The number of rows written.
+     * @throws SQLException If the result could not be read.
+     * @throws IOException If the output could not be written.
+     */
+    public long render(ResultSet resultSet, OutputStream out) throws SQLException, IOException {
+        long rows = render(resultSet, Channels.newChannel(out));
+        out.flush();
+        return rows;
+    }
+
+
+    /**
+     * Writes the remaining rows of a result in UTF-8. The channel is not closed.
+     * @param resultSet The result.
+     * @param out The channel.
+     * @return The number of rows written.
+     * @throws SQLException If the result could not be read.
+     * @throws IOException If the output could not be written.
+     */
+    public long render(ResultSet resultSet, WritableByteChannel out) throws SQLException, IOException {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * 3);
+        long rows = render(resultSet, buffer -> {
+            // The buffer always ends on a row boundary, so no character is split between two writes
+            CharBuffer chars = CharBuffer.wrap(buffer);
+            while (true) {
+                CoderResult result = encoder.encode(chars, bytes, false);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                drain(bytes, out);
+                if (result.isUnderflow()) {
+                    break;
+                }
+            }
+        });
+
+        encoder.encode(CharBuffer.allocate(0), bytes, true);
+        encoder.flush(bytes);
+        drain(bytes, out);
+        return rows;
+    }
+
+
+    private static void drain(ByteBuffer bytes, WritableByteChannel out) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+        bytes.clear();
+    }
+
+
+    /**
+     * Where the buffered output goes.
+     */
+    private interface Sink {
+        void write(StringBuilder buffer) throws IOException;
+    }
+
+
+    private long render(ResultSet resultSet, Sink sink) throws SQLException, IOException {
+        Column[] columns = Column.forResult(resultSet.getMetaData());
+        StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 256);
+        StringBuilder value = new StringBuilder(64);
+
+        format.appendHeader(buffer, columns);
+        long rows = 0;
+        boolean truncated = false;
+        while (resultSet.next()) {
+            if (rows == rowLimit) {
+                truncated = true;
+                break;
+            }
+
+            for (int i = 0; i < columns.length; i++) {
+                value.setLength(0);
+                boolean isNull = readValue(resultSet, columns[i], value);
+                format.appendValue(buffer, columns[i], isNull ? null : value);
+            }
+            format.endRow(buffer, columns);
+            rows++;
+
+            if (buffer.length() >= BUFFER_SIZE) {
+                sink.write(buffer);
+                buffer.setLength(0);
+            }
+        }
+
+        format.appendFooter(buffer, rows, truncated);
+        sink.write(buffer);
+        return rows;
+    }
+
+
+    /**
+     * Appends the text of a column's value, reading numbers and booleans with their typed getters.
+     * @return Whether the value was NULL.
+     */
+    private static boolean readValue(ResultSet resultSet, Column column, StringBuilder value) throws SQLException {
+        int index = column.getIndex();
+        switch (column.getKind()) {
+            case INTEGER:
+                value.append(resultSet.getLong(index));
+                break;
+            case DECIMAL:
+                value.append(resultSet.getDouble(index));
+                break;
+            case BOOLEAN:
+                value.append(resultSet.getBoolean(index));
+                break;
+            default:
+                String text = resultSet.getString(index);
+                if (text == null) {
+                    return true;
+                }
+                value.append(text);
+                return false;
+        }
+        return resultSet.wasNull();
+    }
+
+
+    /**
+     * A column of the result, as described to a Format.
+     */
+    public static final class Column {
+        /**
+         * How a column's values are read and written.
+         */
+        public enum Kind { INTEGER, DECIMAL, BOOLEAN, TEXT }
+
+        private final int index;
+        private final String label;
+        private final Kind kind;
+        private final int width;
+
+        Column(int index, String label, Kind kind, int width) {
+            this.index = index;
+            this.label = label;
+            this.kind = kind;
+            this.width = width;
+        }
+
+        static Column[] forResult(ResultSetMetaData metaData) throws SQLException {
+            Column[] columns = new Column[metaData.getColumnCount()];
+            for (int i = 1; i <= columns.length; i++) {
+                String label = metaData.getColumnLabel(i);
+                int width = Math.max(label.length(), Math.min(metaData.getColumnDisplaySize(i), MAX_TEXT_WIDTH));
+                columns[i - 1] = new Column(i, label, kindOf(metaData.getColumnType(i)), width);
+            }
+            return columns;
+        }
+
+        private static Kind kindOf(int sqlType) {
+            switch (sqlType) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                    return Kind.INTEGER;
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return Kind.DECIMAL;
+                case Types.BOOLEAN:
+                case Types.BIT:
+                    return Kind.BOOLEAN;
+                default:
+                    return Kind.TEXT;
+            }
+        }
+
+        /**
+         * @return The 1-based index of the column in the result.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return The width to pad the column to in aligned output.
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * @return Whether this is the first column of a row.
+         */
+        public boolean isFirst() {
+            return index == 1;
+        }
+    }
+
+
+    /**
+     * How rows are written. Each call appends to the output buffer.
+     */
+    public interface Format {
+        /**
+         * Columns aligned to their width, with a header and a row count.
+         */
+        Format TEXT = new TextFormat();
+
+        /**
+         * CSV with a header line, quoting values that need it.
+         */
+        Format CSV = new CsvFormat();
+
+        /**
+         * One JSON object per row, keyed by column label.
+         */
+        Format JSON_LINES = new JsonLinesFormat();
+
+        void appendHeader(StringBuilder out, Column[] columns);
+
+        /**
+         * @param value The value's text, or null for SQL NULL.
+         */
+        void appendValue(StringBuilder out, Column column, CharSequence value);
+
+        void endRow(StringBuilder out, Column[] columns);
+
+        /**
+         * @param rows The number of rows written.
+         * @param truncated Whether rows were left out because of the row limit.
+         */
+        void appendFooter(StringBuilder out, long rows, boolean truncated);
+    }
+
+
+    private static class TextFormat implements Format {
+        @Override
+        public void appendHeader(StringBuilder out, Column[] columns) {
+            int lineLength = 0;
+            for (Column column : columns) {
+                pad(out, column, column.getLabel());
+                lineLength += column.getWidth() + 1;
+            }
+            endRow(out, columns);
+            for (int i = 0; i < lineLength - 1; i++) {
+                out.append('-');
+            }
+            out.append('\n');
+        }
+
+        @Override
+        public void appendValue(StringBuilder out, Column column, CharSequence value) {
+            pad(out, column, value == null ? "NULL" : value);
+        }
+
+        private static void pad(StringBuilder out, Column column, CharSequence text) {
+            if (!column.isFirst()) {
+                out.append(' ');
+            }
+            out.append(text);
+            for (int i = text.length(); i < column.getWidth(); i++) {
+                out.append(' ');
+            }
+        }
+
+        @Override
+        public void endRow(StringBuilder out, Column[] columns) {
+            // Drop the padding after the last column
+            int end = out.length();
+            while (end > 0 && out.charAt(end - 1) == ' ') {
+                end--;
+            }
+            out.setLength(end);
+            out.append('\n');
+        }
+
+        @Override
+        public void appendFooter(StringBuilder out, long rows, boolean truncated) {
+            out.append('(').append(truncated ? "first " : "").append(rows).append(rows == 1 ? " row)" : " rows)").append('\n');
+        }
+    }
+
+
+    private static class CsvFormat implements Format {
+        @Override
+        public void appendHeader(StringBuilder out, Column[] columns) {
+            for (Column column : columns) {
+                appendValue(out, column, column.getLabel());
+            }
+            out.append('\n');
+        }
+
+        @Override
+        public void appendValue(StringBuilder out, Column column, CharSequence value) {
+            if (!column.isFirst()) {
+                out.append(',');
+            }
+            if (value == null) {
+                return;
+            }
+            if (!needsQuotes(value)) {
+                out.append(value);
+                return;
+            }
+
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    out.append('"');
+                }
+                out.append(c);
+            }
+            out.append('"');
+        }
+
+        private static boolean needsQuotes(CharSequence value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void endRow(StringBuilder out, Column[] columns) {
+            out.append('\n');
+        }
+
+        @Override
+        public void appendFooter(StringBuilder out, long rows, boolean truncated) {
+        }
+    }
+
+
+    private static class JsonLinesFormat implements Format {
+        @Override
+        public void appendHeader(StringBuilder out, Column[] columns) {
+        }
+
+        @Override
+        public void appendValue(StringBuilder out, Column column, CharSequence value) {
+            out.append(column.isFirst() ? '{' : ',');
+            appendString(out, column.getLabel());
+            out.append(':');
+
+            if (value == null) {
+                out.append("null");
+            } else if (column.getKind() == Column.Kind.TEXT || !isFinite(value)) {
+                appendString(out, value);
+            } else {
+                out.append(value);
+            }
+        }
+
+        // JSON has no NaN or Infinity, so those are written as strings
+        private static boolean isFinite(CharSequence value) {
+            char last = value.charAt(value.length() - 1);
+            return last != 'N' && last != 'y';
+        }
+
+        private static void appendString(StringBuilder out, CharSequence value) {
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        out.append("\\\"");
+                        break;
+                    case '\\':
+                        out.append("\\\\");
+                        break;
+                    case '\n':
+                        out.append("\\n");
+                        break;
+                    case '\r':
+                        out.append("\\r");
+                        break;
+                    case '\t':
+                        out.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            out.append("\\u00");
+                            out.append(Character.forDigit(c >> 4, 16));
+                            out.append(Character.forDigit(c & 0xF, 16));
+                        } else {
+                            out.append(c);
+                        }
+                        break;
+                }
+            }
+            out.append('"');
+        }
+
+        @Override
+        public void endRow(StringBuilder out, Column[] columns) {
+            out.append(columns.length == 0 ? "{}" : "}").append('\n');
+        }
+
+        @Override
+        public void appendFooter(StringBuilder out, long rows, boolean truncated) {
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+
+/**
+ * ResultSetSpliterator.java
+ * Reads the rows of a ResultSet one at a time as objects, for streams of query results (Database.queryStream).
+ * Rows are only fetched as the stream asks for them, so a large result is never held in memory at once.
+ *
+ * An SQLException while reading is rethrown as an IllegalStateException, since streams can't throw checked exceptions.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+    private final ResultSet resultSet;
+    private final ResultSetMapper<T> mapper;
+    private long rowCount;
+    private boolean failed;
+    private boolean finished;
+
+    /**
+     * @param resultSet The result to read. It is not closed by the spliterator.
+     * @param mapper The mapper resolved for the result.
+     */
+    public ResultSetSpliterator(ResultSet resultSet, ResultSetMapper<T> mapper) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.resultSet = resultSet;
+        this.mapper = mapper;
+    }
+
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (finished) {
+            return false;
+        }
+
+        T object;
+        try {
+            if (!resultSet.next()) {
+                finished = true;
+                return false;
+            }
+            object = mapper.map(resultSet);
+        } catch (SQLException e) {
+            failed = true;
+            finished = true;
+            throw new IllegalStateException("Error reading query results", e);
+        }
+
+        rowCount++;
+        action.accept(object);
+        return true;
+    }
+
+
+    /**
+     * @return The number of rows read so far.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+
+    /**
+     * @return Whether every row has been read (or reading failed).
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+
+    /**
+     * @return Whether reading a row failed.
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,426 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+
+/**
+ * SelectQuery.java
+ * Builds a SELECT query fluently, with its values as '?' parameters and a list of values to bind to them.
+ * Started with QueryBuilder.select.
+ *
+ * Example:
+ *   QueryBuilder.select("make", "weight").from("Vehicles").where("weight").gt(2500).and("make").eq(Vehicle.Make.FORD)
+ *   gives "SELECT make, weight FROM Vehicles WHERE weight > ? AND make = ?" with the values [2500, FORD].
+ *
+ * Since the values are never part of the SQL, the same query with different values has the same SQL,
+ * so the database compiles it once and the connection's statement cache (ConnectionPool) reuses the
+ * prepared statement. Values can't inject SQL because they are bound; table and column names can't be bound,
+ * so they must be plain identifiers.
+ *
+ * Conditions are joined in the order they are written, and AND binds tighter than OR, as in SQL.
+ * A condition is only added to the query (with its AND or OR) by its comparison, which can be made once,
+ * so a condition left unfinished leaves the query as it was.
+ *
+ * The query also remembers the columns its = and IN conditions pin to certain values, its sort columns and its limit,
+ * so ShardedDatabase can send it only to the shards that can hold its rows and merge their results.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class SelectQuery {
+    // A plain or table-qualified identifier, e.g. make or v.make
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    private final String columns;
+    private String table;
+    private final StringBuilder where = new StringBuilder();
+    private final StringBuilder orderBy = new StringBuilder();
+    private String fetch = "";
+    private final List<Object> binds = new ArrayList<>();
+    private final List<Object> fetchBinds = new ArrayList<>();
+    // The values each column is pinned to by an = or IN condition, by upper case column name
+    private final Map<String, List<Object>> pinned = new HashMap<>();
+    private final Map<String, Boolean> descending = new LinkedHashMap<>();
+    private final List<String> selected = new ArrayList<>();
+    private boolean hasOr;
+
+    /**
+     * @param columns The columns to select, or "*" for all of them.
+     */
+    SelectQuery(String... columns) {
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("No columns to select");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String column : columns) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(column.equals("*") ? column : identifier(column));
+            if (!column.equals("*")) {
+                selected.add(unqualified(column));
+            }
+        }
+        this.columns = sb.toString();
+    }
+
+
+    /**
+     * @param table The table to select from.
+     * @return This query.
+     */
+    public SelectQuery from(String table) {
+        this.table = identifier(table);
+        return this;
+    }
+
+
+    /**
+     * Starts the first condition.
+     * @param column The column the condition is on.
+     * @return The condition, to be finished with a comparison.
+     */
+    public Condition where(String column) {
+        if (where.length() > 0) {
+            throw new IllegalStateException("The query already has a WHERE clause; use and or or");
+        }
+        return new Condition(null, identifier(column));
+    }
+
+
+    /**
+     * Adds a condition that must hold along with the ones before it.
+     * @param column The column the condition is on.
+     * @return The condition, to be finished with a comparison.
+     */
+    public Condition and(String column) {
+        return joined(" AND ", column);
+    }
+
+
+    /**
+     * Adds a condition that may hold instead of the ones before it.
+     * @param column The column the condition is on.
+     * @return The condition, to be finished with a comparison.
+     */
+    public Condition or(String column) {
+        return joined(" OR ", column);
+    }
+
+
+    private Condition joined(String connector, String column) {
+        if (where.length() == 0) {
+            throw new IllegalStateException("The query has no WHERE clause yet; use where first");
+        }
+        return new Condition(connector, identifier(column));
+    }
+
+
+    /**
+     * Sorts the rows by a column, smallest first. Called again, it sorts by the next column.
+     * @param column The column.
+     * @return This query.
+     */
+    public SelectQuery orderBy(String column) {
+        orderBy.append(orderBy.length() == 0 ? " ORDER BY " : ", ").append(identifier(column));
+        descending.put(unqualified(column), false);
+        return this;
+    }
+
+
+    /**
+     * Sorts the rows by a column, largest first. Called again, it sorts by the next column.
+     * @param column The column.
+     * @return This query.
+     */
+    public SelectQuery orderByDescending(String column) {
+        orderBy(column);
+        orderBy.append(" DESC");
+        descending.put(unqualified(column), true);
+        return this;
+    }
+
+
+    /**
+     * Returns at most a number of rows.
+     * @param rows The most rows to return, at least 1.
+     * @return This query.
+     */
+    public SelectQuery limit(long rows) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1: " + rows);
+        }
+        fetch = " FETCH FIRST ? ROWS ONLY";
+        fetchBinds.clear();
+        fetchBinds.add(rows);
+        return this;
+    }
+
+
+    /**
+     * @return The SQL, with a '?' for every value.
+     */
+    public String getSql() {
+        if (table == null) {
+            throw new IllegalStateException("The query has no table; use from");
+        }
+        StringBuilder sb = new StringBuilder("SELECT ").append(columns).append(" FROM ").append(table);
+        if (where.length() > 0) {
+            sb.append(" WHERE ").append(where);
+        }
+        return sb.append(orderBy).append(fetch).toString();
+    }
+
+
+    /**
+     * @return The shape the query is recorded under in StatementMetrics. Its SQL has no literals, so the shape is
+     *         just the SQL in upper case, without the normalizing pass.
+     */
+    public StatementMetrics.Shape getShape() {
+        return StatementMetrics.Shape.of(StatementMetrics.StatementType.SELECT, getSql().toUpperCase(Locale.ROOT));
+    }
+
+
+    /**
+     * @return The values for the SQL's parameters, in order.
+     */
+    public List<Object> getBinds() {
+        if (fetchBinds.isEmpty()) {
+            return Collections.unmodifiableList(binds);
+        }
+        List<Object> all = new ArrayList<>(binds);
+        all.addAll(fetchBinds);
+        return Collections.unmodifiableList(all);
+    }
+
+
+    /**
+     * Binds values to a statement's parameters, in order. Enum constants are bound by name,
+     * the way they are stored in their columns.
+     * @param statement The prepared statement.
+     * @param values The values.
+     * @throws SQLException If a value could not be bound.
+     */
+    public static void bind(PreparedStatement statement, List<Object> values) throws SQLException {
+        for (int i = 0; i < values.size(); i++) {
+            Object value = values.get(i);
+            if (value instanceof Enum) {
+                statement.setString(i + 1, ((Enum<?>) value).name());
+            } else {
+                statement.setObject(i + 1, value);
+            }
+        }
+    }
+
+
+    String getTable() {
+        return table;
+    }
+
+
+    /**
+     * @param column A column name.
+     * @return The values an = or IN condition requires the column to have, or null if the rows can have any value,
+     *         because there is no such condition or an OR could let other rows through.
+     */
+    List<Object> getPinnedValues(String column) {
+        return hasOr ? null : pinned.get(column.toUpperCase(Locale.ROOT));
+    }
+
+
+    /**
+     * @return The upper case names of the columns the rows are sorted by, in order, each mapped to whether it is
+     *         sorted largest first.
+     */
+    Map<String, Boolean> getOrderColumns() {
+        return Collections.unmodifiableMap(descending);
+    }
+
+
+    /**
+     * @return The upper case names of the selected columns, or none if all of them are selected.
+     */
+    List<String> getSelectedColumns() {
+        return Collections.unmodifiableList(selected);
+    }
+
+
+    /**
+     * @return The most rows to return, or -1 if there is no limit.
+     */
+    long getLimit() {
+        return fetchBinds.isEmpty() ? -1 : (Long) fetchBinds.get(0);
+    }
+
+
+    @Override
+    public String toString() {
+        return getSql() + " " + getBinds();
+    }
+
+
+    private static String identifier(String name) {
+        if (name == null || !IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Not a table or column name: " + name);
+        }
+        return name;
+    }
+
+
+    private static String unqualified(String column) {
+        return column.substring(column.indexOf('.') + 1).toUpperCase(Locale.ROOT);
+    }
+
+
+    private static Object value(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Can't compare to null; use isNull or isNotNull");
+        }
+        if (!(value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Enum)) {
+            throw new IllegalArgumentException("Unsupported value type: " + value.getClass().getName());
+        }
+        return value;
+    }
+
+
+    /**
+     * A condition on one column, finished by one of its comparisons. Only one comparison can be made.
+     */
+    public class Condition {
+        // " AND " or " OR ", or null for the WHERE clause's first condition
+        private final String connector;
+        private final String column;
+        private boolean finished;
+
+        private Condition(String connector, String column) {
+            this.connector = connector;
+            this.column = column;
+        }
+
+        /** column = value */
+        public SelectQuery eq(Object value) {
+            compare(" = ", value);
+            pin(Collections.singletonList(value));
+            return SelectQuery.this;
+        }
+
+        /** column &lt;&gt; value */
+        public SelectQuery notEq(Object value) {
+            return compare(" <> ", value);
+        }
+
+        /** column &gt; value */
+        public SelectQuery gt(Object value) {
+            return compare(" > ", value);
+        }
+
+        /** column &gt;= value */
+        public SelectQuery ge(Object value) {
+            return compare(" >= ", value);
+        }
+
+        /** column &lt; value */
+        public SelectQuery lt(Object value) {
+            return compare(" < ", value);
+        }
+
+        /** column &lt;= value */
+        public SelectQuery le(Object value) {
+            return compare(" <= ", value);
+        }
+
+        /** column LIKE pattern, where % matches any text and _ any one character */
+        public SelectQuery like(String pattern) {
+            return compare(" LIKE ", pattern);
+        }
+
+        /** column BETWEEN low AND high (both included) */
+        public SelectQuery between(Object low, Object high) {
+            Object lowValue = value(low);
+            Object highValue = value(high);
+            start();
+            where.append(" BETWEEN ? AND ?");
+            binds.add(lowValue);
+            binds.add(highValue);
+            return SelectQuery.this;
+        }
+
+        /** column IN (values...) */
+        public SelectQuery in(Object... values) {
+            if (values.length == 0) {
+                throw new IllegalArgumentException("IN needs at least one value");
+            }
+            List<Object> checked = new ArrayList<>(values.length);
+            for (Object value : values) {
+                checked.add(value(value));
+            }
+            start();
+            where.append(" IN (");
+            for (int i = 0; i < checked.size(); i++) {
+                where.append(i == 0 ? "?" : ", ?");
+            }
+            where.append(')');
+            binds.addAll(checked);
+            pin(checked);
+            return SelectQuery.this;
+        }
+
+        /** column IS NULL */
+        public SelectQuery isNull() {
+            start();
+            where.append(" IS NULL");
+            return SelectQuery.this;
+        }
+
+        /** column IS NOT NULL */
+        public SelectQuery isNotNull() {
+            start();
+            where.append(" IS NOT NULL");
+            return SelectQuery.this;
+        }
+
+        /**
+         * Adds the connector and the column to the WHERE clause, once the comparison's values are known to be valid.
+         */
+        private void start() {
+            if (finished) {
+                throw new IllegalStateException("The condition on " + column + " already has a comparison");
+            }
+            if (connector == null) {
+                if (where.length() > 0) {
+                    throw new IllegalStateException("The query already has a WHERE clause; use and or or");
+                }
+            } else {
+                where.append(connector);
+                if (connector.equals(" OR ")) {
+                    hasOr = true;
+                }
+            }
+            where.append(column);
+            finished = true;
+        }
+
+        /**
+         * Remembers the values the column must have. A second condition on the same column only narrows
+         * the rows further, so the first one's values still hold.
+         */
+        private void pin(List<Object> values) {
+            pinned.putIfAbsent(unqualified(column), values);
+        }
+
+        private SelectQuery compare(String operator, Object value) {
+            Object checked = value(value);
+            start();
+            where.append(operator).append('?');
+            binds.add(checked);
+            return SelectQuery.this;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * ShardKey.java
+ * Declares the field whose value decides which shard of a ShardedDatabase a row is stored in.
+ * Rows with the same value are always in the same shard, so queries on one value only read one shard.
+ * A class can have one shard key; ShardedDatabase.setShardKey picks one for classes that don't declare it.
+ *
+ * Example:
+ *   {@literal @}ShardKey
+ *   public Make make;
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface ShardKey {
+}
@@ -0,0 +1,634 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+
+/**
+ * ShardedDatabase.java
+ * Spreads a class's table over several embedded Derby databases (shards), to write and read them in parallel.
+ *
+ * Functionality:
+ * - Opens one database per shard, named after the one in the property file: jdbc:derby:myDB;create=true
+ *   with 4 shards gives myDB_0 to myDB_3, each with its own ConnectionPool (configured by the pool.* entries)
+ *   and stored the way the storage.* entries say (see StorageProfile; storage.restoreFrom doesn't apply to shards).
+ * - Stores each row in the shard its shard key picks: the field annotated with ShardKey (e.g. Vehicle.make),
+ *   or the one set with setShardKey. Rows with the same key are always in the same shard.
+ * - Inserts into every shard at once: the rows are routed into batches, and each shard's batches are inserted
+ *   by its own writer, with its own connection and BatchInserter.
+ * - Runs a SelectQuery on every shard at once and merges the results, sorting them again if the query has an
+ *   ORDER BY and applying its limit to the merged rows.
+ * - Sends a query whose = or IN condition pins the shard key (and that has no OR) only to the shards
+ *   those values are stored in, e.g. where("make").eq(Vehicle.Make.FORD) reads one shard.
+ *
+ * A shard is picked from the hash of the key's value (enum constants by name, numbers by value), which is the same
+ * in every run, so rows inserted by a later run go to the same shards. Changing the number of shards of existing
+ * databases moves the keys to other shards, so the rows have to be inserted again.
+ *
+ * A query's ORDER BY columns must be selected (or the query must select *) to sort the merged rows.
+ * Each shard's inserts are committed separately, so an issue in one shard leaves the others' batches in place.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class ShardedDatabase {
+    // The batches routed to a shard that can wait for its writer, before routing waits for it
+    private static final int QUEUE_CAPACITY = 4;
+    // Marks the end of a shard's batches
+    private static final List<Object> END = new ArrayList<>();
+
+    private final int shardCount;
+    private final String[] urls;
+    private final ConnectionPool[] pools;
+    private final int[] allShards;
+    private final ExecutorService workers;
+    private final Map<Class<?>, String> shardKeys = new ConcurrentHashMap<>();
+    private volatile int batchSize = BatchInserter.DEFAULT_BATCH_SIZE;
+
+    private final AtomicLongArray rowsInserted;
+    private final AtomicLong prunedQueries = new AtomicLong();
+    private final AtomicLong fannedOutQueries = new AtomicLong();
+
+    // Opened once the shards are, so a constructor that fails leaves no log open
+    final DatabaseLog dbLog;
+
+    /**
+     * Opens (and creates, if the URL says so) the shards of the database in a property file.
+     * @param filename The property file with the database driver, URL, username and password.
+     * @param shardCount The number of shards.
+     * @throws IOException If the property file could not be read.
+     * @throws ClassNotFoundException If the driver could not be loaded.
+     * @throws SQLException If a shard could not be opened.
+     */
+    public ShardedDatabase(String filename, int shardCount) throws IOException, ClassNotFoundException, SQLException {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1: " + shardCount);
+        }
+        Properties props = new Properties();
+        try (FileInputStream in = new FileInputStream(filename)) {
+            props.load(in);
+        }
+
+        // Derby reads its storage settings when it boots, so they go in before the first connection
+        StorageProfile profile = StorageProfile.fromProperties(props);
+        profile.applySystemProperties();
+        String driver = props.getProperty("jdbc.driver");
+        if (driver != null) {
+            Class.forName(driver);
+        }
+        String url = props.getProperty("jdbc.url");
+        String username = props.getProperty("jdbc.username", "");
+        String password = props.getProperty("jdbc.password", "");
+
+        this.shardCount = shardCount;
+        this.urls = new String[shardCount];
+        this.pools = new ConnectionPool[shardCount];
+        this.allShards = IntStream.range(0, shardCount).toArray();
+        this.rowsInserted = new AtomicLongArray(shardCount);
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                urls[i] = profile.applyKind(shardUrl(url, i));
+                pools[i] = new ConnectionPool(urls[i], username, password, props);
+            }
+        } catch (SQLException e) {
+            closePools();
+            throw e;
+        }
+
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "ShardedDatabase-worker-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dbLog = DatabaseLog.async();
+        dbLog.log("Opened " + shardCount + " shards " + Arrays.toString(urls) + "\nStorage: " + profile);
+    }
+
+
+    /**
+     * Adds the shard's number to the database name in a URL, e.g. jdbc:derby:myDB;create=true to
+     * jdbc:derby:myDB_2;create=true.
+     */
+    private static String shardUrl(String url, int shard) {
+        if (url == null) {
+            throw new IllegalArgumentException("The property file has no jdbc.url");
+        }
+        int attributes = url.indexOf(';');
+        return attributes < 0 ? url + "_" + shard : url.substring(0, attributes) + "_" + shard + url.substring(attributes);
+    }
+
+
+    /**
+     * Picks the field that routes a class's rows to shards, for classes that don't declare one with ShardKey
+     * (or to use another one). Must be the same every time the class's rows are inserted or queried.
+     * @param cls The class.
+     * @param fieldName The name of the field.
+     * @return This database.
+     */
+    public ShardedDatabase setShardKey(Class<?> cls, String fieldName) {
+        boolean found = ClassCodec.forClass(cls).getFields().stream()
+                .anyMatch(field -> field.getName().equalsIgnoreCase(fieldName));
+        if (!found) {
+            throw new IllegalArgumentException(cls.getSimpleName() + " has no field " + fieldName);
+        }
+        shardKeys.put(cls, fieldName);
+        return this;
+    }
+
+
+    /**
+     * @return The field that routes a class's rows to shards, or null if it has none.
+     */
+    private ClassCodec.FieldCodec getShardKey(Class<?> cls) {
+        String name = shardKeys.get(cls);
+        for (ClassCodec.FieldCodec field : ClassCodec.forClass(cls).getFields()) {
+            if (name != null ? field.getName().equalsIgnoreCase(name) : field.getField().isAnnotationPresent(ShardKey.class)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Sets the number of rows a shard's writer sends to its database at a time.
+     * @param batchSize The number of rows per batch, at least 1.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+
+    /**
+     * Creates the table for a class in every shard, with the indexes it declares with Indexed,
+     * unless the shard already has it.
+     * @param cls The class to create the table for.
+     */
+    public void createTable(Class<?> cls) {
+        String tableName = DatabaseUtils.buildTableName(cls);
+        String create = QueryBuilder.buildCreateTableQuery(tableName, DatabaseUtils.buildColumnInfo(cls));
+        String[] indexedColumns = DatabaseUtils.buildIndexedColumns(cls);
+        try {
+            List<Boolean> created = onShards(allShards, conn -> {
+                if (Database.tableExists(conn, tableName)) {
+                    return false;
+                }
+                try (Statement statement = conn.createStatement()) {
+                    statement.executeUpdate(create);
+                    for (String column : indexedColumns) {
+                        statement.executeUpdate(QueryBuilder.buildCreateIndexQuery("IDX_" + tableName + "_" + column,
+                                tableName, column));
+                    }
+                }
+                return true;
+            });
+            dbLog.log("Created " + tableName + " in " + Collections.frequency(created, true) + " of " + shardCount + " shards");
+        } catch (SQLException e) {
+            dbLog.log("There was an issue creating " + tableName + " in the shards\n");
+            e.printStackTrace();
+        }
+    }
+
+
+    /**
+     * Inserts a list of objects into their class's table, each in its shard.
+     * @param objects The objects, all of the same class.
+     * @return The number of rows inserted, or 0 if there was an issue inserting them.
+     */
+    public <T> long insertAll(List<T> objects) {
+        if (objects == null || objects.isEmpty()) {
+            return 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        Class<T> cls = (Class<T>) objects.get(0).getClass();
+        return insertAll(objects.stream(), cls);
+    }
+
+
+    /**
+     * Inserts a stream of objects into their class's table, each in its shard. The rows are routed into a batch per
+     * shard as they are read, and every shard's writer inserts its batches at the same time.
+     * A shard whose writer falls behind makes routing wait, so at most a few batches per shard are held in memory.
+     * @param objects The objects.
+     * @param cls The class of the objects, which must have a shard key.
+     * @return The number of rows inserted, or 0 if there was an issue inserting them.
+     */
+    public <T> long insertAll(Stream<T> objects, Class<T> cls) {
+        ClassCodec.FieldCodec key = getShardKey(cls);
+        if (key == null) {
+            throw new IllegalArgumentException(cls.getSimpleName() + " has no shard key; annotate a field with ShardKey or use setShardKey");
+        }
+        String tableName = DatabaseUtils.buildTableName(cls);
+        int size = batchSize;
+        dbLog.log("Inserting rows into " + tableName + " in " + shardCount + " shards (batch size " + size + ")");
+
+        long start = System.nanoTime();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<BlockingQueue<List<T>>> queues = new ArrayList<>();
+        List<Future<Long>> writers = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            BlockingQueue<List<T>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            int target = shard;
+            queues.add(queue);
+            writers.add(workers.submit(() -> write(target, queue, cls, size, failure)));
+        }
+
+        List<List<T>> batches = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            batches.add(new ArrayList<>(size));
+        }
+        try {
+            objects.forEachOrdered(object -> {
+                if (failure.get() != null) {
+                    throw new IllegalStateException("A shard's writer failed", failure.get());
+                }
+                int shard = shardOf(key.getValue(object), key);
+                List<T> batch = batches.get(shard);
+                batch.add(object);
+                if (batch.size() >= size) {
+                    handOff(queues.get(shard), batch);
+                    batches.set(shard, new ArrayList<>(size));
+                }
+            });
+            for (int shard = 0; shard < shardCount; shard++) {
+                if (!batches.get(shard).isEmpty()) {
+                    handOff(queues.get(shard), batches.get(shard));
+                }
+            }
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            endBatches(queues);
+        }
+
+        long count = 0;
+        for (int shard = 0; shard < shardCount; shard++) {
+            try {
+                long rows = writers.get(shard).get();
+                rowsInserted.addAndGet(shard, rows);
+                count += rows;
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        if (failure.get() != null) {
+            dbLog.log("There was an issue inserting into " + tableName + " in the shards; the " + count
+                    + " rows committed before it are in the table\n");
+            failure.get().printStackTrace();
+            return 0;
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        dbLog.log(String.format("Inserted %d rows into %s in %d shards in %.3f s (%.0f rows/sec)%n",
+                count, tableName, shardCount, seconds, count / Math.max(seconds, 1e-9)));
+        return count;
+    }
+
+
+    private static <T> void handOff(BlockingQueue<List<T>> queue, List<T> batch) {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while routing rows to the shards", e);
+        }
+    }
+
+
+    /**
+     * Tells every writer there are no more batches. Always delivered, even to an interrupted thread,
+     * since a writer waits for it before it finishes.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> void endBatches(List<BlockingQueue<List<T>>> queues) {
+        boolean interrupted = Thread.interrupted();
+        for (BlockingQueue<List<T>> queue : queues) {
+            while (true) {
+                try {
+                    queue.put((List<T>) END);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Inserts the batches routed to one shard until the end marker. After an issue it keeps taking batches
+     * without inserting them, so routing never waits on it.
+     * @return The number of rows inserted, or after an issue the ones committed before it.
+     */
+    private <T> long write(int shard, BlockingQueue<List<T>> queue, Class<T> cls, int size,
+            AtomicReference<Throwable> failure) throws InterruptedException {
+        boolean ended = false;
+        BatchInserter<T> committed = null;
+        try (Connection conn = pools[shard].getConnection();
+             BatchInserter<T> inserter = new BatchInserter<>(conn, cls, size)) {
+            committed = inserter;
+            for (List<T> batch = queue.take(); batch != END; batch = queue.take()) {
+                for (T object : batch) {
+                    inserter.add(object);
+                }
+            }
+            ended = true;
+            inserter.flush();
+            return inserter.getRowsInserted();
+        } catch (SQLException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+            while (!ended) {
+                ended = queue.take() == END;
+            }
+            return committed == null ? 0 : committed.getRowsInserted();
+        }
+    }
+
+
+    /**
+     * Runs a query on the shards that can hold its rows, all at once, and merges their rows.
+     * @param query The query, whose rows are mapped into objects of the class.
+     * @param cls The class.
+     * @return The rows, sorted by the query's ORDER BY and cut to its limit, or none if there was an issue.
+     */
+    public <T> List<T> query(SelectQuery query, Class<T> cls) {
+        String sql = query.getSql();
+        List<Object> binds = query.getBinds();
+        Comparator<T> order = comparatorFor(query, cls);
+        int[] shards = targetShards(query, cls);
+        (shards.length < shardCount ? prunedQueries : fannedOutQueries).incrementAndGet();
+
+        long start = System.nanoTime();
+        List<T> results = new ArrayList<>();
+        try {
+            for (List<T> rows : onShards(shards, conn -> queryShard(conn, sql, binds, cls))) {
+                results.addAll(rows);
+            }
+        } catch (SQLException e) {
+            dbLog.log("There was an issue running " + query + " on the shards\n");
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+
+        if (order != null) {
+            results.sort(order);
+        }
+        long limit = query.getLimit();
+        if (limit >= 0 && results.size() > limit) {
+            results.subList((int) limit, results.size()).clear();
+        }
+        dbLog.log(String.format("Read %d rows from %d of %d shards in %.3f ms: %s%n", results.size(), shards.length,
+                shardCount, (System.nanoTime() - start) / 1_000_000.0, query));
+        return results;
+    }
+
+
+    private static <T> List<T> queryShard(Connection conn, String sql, List<Object> binds, Class<T> cls)
+            throws SQLException {
+        List<T> rows = new ArrayList<>();
+        try (PreparedStatement statement = conn.prepareStatement(sql)) {
+            SelectQuery.bind(statement, binds);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMapper<T> mapper = ResultSetMapper.forResultSet(resultSet, cls);
+                while (resultSet.next()) {
+                    rows.add(mapper.map(resultSet));
+                }
+            }
+        }
+        return rows;
+    }
+
+
+    /**
+     * Picks the shards a query has to read: only the ones its values of the shard key are stored in,
+     * if it pins the key with = or IN, or else all of them.
+     */
+    private int[] targetShards(SelectQuery query, Class<?> cls) {
+        ClassCodec.FieldCodec key = getShardKey(cls);
+        if (key == null || !DatabaseUtils.buildTableName(cls).equalsIgnoreCase(query.getTable())) {
+            return allShards;
+        }
+        List<Object> values = query.getPinnedValues(key.getName());
+        if (values == null) {
+            return allShards;
+        }
+        return values.stream().mapToInt(value -> shardOf(value, key)).distinct().sorted().toArray();
+    }
+
+
+    /**
+     * Builds a comparator that sorts the merged rows the way the query's ORDER BY sorted each shard's rows.
+     * @return The comparator, or null if the query isn't sorted.
+     */
+    private static <T> Comparator<T> comparatorFor(SelectQuery query, Class<T> cls) {
+        List<String> selected = query.getSelectedColumns();
+        Comparator<T> order = null;
+        for (Map.Entry<String, Boolean> column : query.getOrderColumns().entrySet()) {
+            if (!selected.isEmpty() && !selected.contains(column.getKey())) {
+                throw new IllegalArgumentException("Can't merge the shards' rows by " + column.getKey()
+                        + " unless the query selects it");
+            }
+            ClassCodec.FieldCodec field = ClassCodec.forClass(cls).getFields().stream()
+                    .filter(candidate -> candidate.getName().equalsIgnoreCase(column.getKey()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(cls.getSimpleName() + " has no field for "
+                            + column.getKey() + " to merge the shards' rows by"));
+            Comparator<T> next = (a, b) -> compareValues(field.getValue(a), field.getValue(b));
+            if (column.getValue()) {
+                next = next.reversed();
+            }
+            order = order == null ? next : order.thenComparing(next);
+        }
+        return order;
+    }
+
+
+    /**
+     * Compares two column values the way Derby sorts them: enum constants by name, since that's how they are stored,
+     * and NULL after every value.
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        if (a instanceof Enum) {
+            return ((Enum<?>) a).name().compareTo(((Enum<?>) b).name());
+        }
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+
+    /**
+     * @param cls A class with a shard key.
+     * @param value A value of its shard key.
+     * @return The shard that rows with the value are stored in.
+     */
+    public int getShardFor(Class<?> cls, Object value) {
+        ClassCodec.FieldCodec key = getShardKey(cls);
+        if (key == null) {
+            throw new IllegalArgumentException(cls.getSimpleName() + " has no shard key");
+        }
+        return shardOf(value, key);
+    }
+
+
+    private int shardOf(Object value, ClassCodec.FieldCodec key) {
+        // Scramble the hash (the finalizer of MurmurHash3), since similar values like enum names have similar hashes
+        int hash = Objects.hashCode(routingValue(value, key.getType()));
+        hash = (hash ^ (hash >>> 16)) * 0x85EBCA6B;
+        hash = (hash ^ (hash >>> 13)) * 0xC2B2AE35;
+        return Math.floorMod(hash ^ (hash >>> 16), shardCount);
+    }
+
+
+    /**
+     * Converts a value to the form it is hashed in, so a row's value and a query's value that Derby finds equal
+     * always go to the same shard: enum constants by name (a query can compare to the name), and numbers by the
+     * field's type (a query on a double column can compare to an int).
+     */
+    private static Object routingValue(Object value, Class<?> type) {
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        if (value instanceof Number) {
+            if (type == double.class || type == Double.class || type == float.class || type == Float.class) {
+                // Adding 0.0 turns -0.0 into 0.0, which Derby finds equal to it
+                return ((Number) value).doubleValue() + 0.0;
+            }
+            return ((Number) value).longValue();
+        }
+        return value;
+    }
+
+
+    /**
+     * Runs a task on each of some shards with one of the shard's connections, on the worker threads when there
+     * is more than one, and waits for all of them.
+     * @return The results, in the order of the shards.
+     * @throws SQLException If a task failed.
+     */
+    private <R> List<R> onShards(int[] shards, ShardTask<R> task) throws SQLException {
+        if (shards.length == 1) {
+            try (Connection conn = pools[shards[0]].getConnection()) {
+                return Collections.singletonList(task.run(conn));
+            }
+        }
+
+        List<Future<R>> futures = new ArrayList<>();
+        for (int shard : shards) {
+            futures.add(workers.submit(() -> {
+                try (Connection conn = pools[shard].getConnection()) {
+                    return task.run(conn);
+                }
+            }));
+        }
+        List<R> results = new ArrayList<>();
+        try {
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the shards", e);
+        } finally {
+            // Tasks that haven't started aren't needed anymore; running ones finish on their own
+            for (Future<R> future : futures) {
+                future.cancel(false);
+            }
+        }
+        return results;
+    }
+
+
+    private interface ShardTask<R> {
+        R run(Connection conn) throws SQLException;
+    }
+
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+
+    /**
+     * @return The rows inserted into each shard, the queries sent to only some of the shards
+     *         and the ones sent to all of them.
+     */
+    public String getStats() {
+        long[] rows = new long[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            rows[shard] = rowsInserted.get(shard);
+        }
+        return String.format("%d shards, rows inserted per shard %s, %d queries pruned to fewer shards, %d sent to all",
+                shardCount, Arrays.toString(rows), prunedQueries.get(), fannedOutQueries.get());
+    }
+
+
+    /**
+     * Stops the worker threads and closes every shard's connection pool. The stats are written to the log,
+     * which is then closed (and its messages flushed to the file).
+     */
+    public void closeConnections() {
+        workers.shutdown();
+        dbLog.log("Sharded database: " + getStats());
+        for (int shard = 0; shard < shardCount; shard++) {
+            dbLog.log("Shard " + shard + " connection pool: " + pools[shard].getStats());
+        }
+        closePools();
+        dbLog.close();
+    }
+
+
+    private void closePools() {
+        for (ConnectionPool pool : pools) {
+            if (pool != null) {
+                pool.close();
+            }
+        }
+    }
+}
@@ -1,48 +1,113 @@
-
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Properties;
 
 /**
-   A simple data source for getting database connections. 
+   A simple data source for getting database connections.
+   Connections come from a bounded ConnectionPool configured
+   by the pool.* entries of the property file, to a database
+   stored the way the storage.* entries say (see StorageProfile).
 */
 public class SimpleDataSource
 {
    private static String url;
    private static String username;
    private static String password;
+   private static String initializedFrom;
+   private static ConnectionPool pool;
+   private static StorageProfile storage;
 
    /**
-      Initializes the data source.
-      @param fileName the name of the property file that 
+      Initializes the data source. Initializing again from the
+      same file keeps the existing pool.
+      @param fileName the name of the property file that
       contains the database driver, URL, username, and password
    */
-   public static void init(String fileName)
-         throws IOException, ClassNotFoundException
-   {  
+   public static synchronized void init(String fileName)
+         throws IOException, ClassNotFoundException, SQLException
+   {
+      if (pool != null && fileName.equals(initializedFrom))
+         return;
+
       Properties props = new Properties();
-      FileInputStream in = new FileInputStream(fileName);
-      props.load(in);
+      try (FileInputStream in = new FileInputStream(fileName))
+      {
+         props.load(in);
+      }
+
+      // Derby reads its storage settings when it boots, so they go in before the first connection
+      StorageProfile profile = StorageProfile.fromProperties(props);
+      profile.applySystemProperties();
 
       String driver = props.getProperty("jdbc.driver");
-      url = props.getProperty("jdbc.url");
+      url = profile.applyTo(props.getProperty("jdbc.url"));
       username = props.getProperty("jdbc.username");
       if (username == null) username = "";
       password = props.getProperty("jdbc.password");
       if (password == null) password = "";
       if (driver != null)
          Class.forName(driver);
+
+      if (pool != null)
+         pool.close();
+      pool = new ConnectionPool(url, username, password, props);
+      storage = profile;
+      initializedFrom = fileName;
    }
 
    /**
-      Gets a connection to the database.
+      Gets a connection to the database. Closing the connection
+      returns it to the pool.
       @return the database connection
    */
    public static Connection getConnection() throws SQLException
    {
-      return DriverManager.getConnection(url, username, password);
+      return getPool().getConnection();
+   }
+
+   /**
+      Gets the connection pool, for its metrics.
+      @return the connection pool
+   */
+   public static synchronized ConnectionPool getPool() throws SQLException
+   {
+      if (pool == null)
+         throw new SQLException("SimpleDataSource has not been initialized");
+      return pool;
+   }
+
+   /**
+      Gets the storage profile the database was opened with.
+      @return the storage profile
+   */
+   public static synchronized StorageProfile getStorageProfile() throws SQLException
+   {
+      if (storage == null)
+         throw new SQLException("SimpleDataSource has not been initialized");
+      return storage;
+   }
+
+   /**
+      Gets the URL connections are made to, after the storage
+      profile adjusted it.
+      @return the database URL
+   */
+   public static synchronized String getUrl()
+   {
+      return url;
+   }
+
+   /**
+      Closes the connection pool.
+   */
+   public static synchronized void shutdown()
+   {
+      if (pool != null)
+         pool.close();
+      pool = null;
+      storage = null;
+      initializedFrom = null;
    }
-}
\ No newline at end of file
+}
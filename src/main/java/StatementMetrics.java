@@ -0,0 +1,516 @@
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+/**
+ * StatementMetrics.java
+ * Times the statements a Database executes, by statement type and by normalized SQL shape.
+ *
+ * Functionality:
+ * - Records each statement's latency into a LatencyHistogram (p50/p99/p999/max).
+ * - Counts the rows affected and the errors.
+ * - Normalizes SQL into a shape by replacing literals with '?', so the same query with different values
+ *   is counted together. The shape of each SQL string is remembered (up to a limit), so a statement that is run
+ *   again is only looked up, and callers that already know their shape (a Shape) skip normalizing altogether.
+ * - Records how the Database started: how long Derby took to boot and warm up, how long callers waited for it,
+ *   and when the first statement finished (time to first result) and how long it took.
+ * - Registers itself as a JMX MXBean and produces a summary for the DatabaseLog.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class StatementMetrics implements StatementMetricsMXBean {
+    /**
+     * The statement types tracked separately.
+     */
+    public enum StatementType { SELECT, INSERT, UPDATE, DELETE, CREATE, DROP, OTHER }
+
+    // Past this many distinct shapes, new shapes are counted together so the map stays bounded
+    private static final int MAX_SHAPES = 500;
+    private static final String OTHER_SHAPES = "(other shapes)";
+    // Past this many distinct SQL strings (e.g. with different literals), the rest are normalized every time
+    private static final int MAX_CACHED_SQL = 2000;
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final Map<StatementType, Recorder> byType = new EnumMap<>(StatementType.class);
+    private final ConcurrentHashMap<String, Recorder> byShape = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Shape> shapesBySql = new ConcurrentHashMap<>();
+    private ObjectName objectName;
+
+    // Startup, measured from when these metrics were created (along with their Database); -1 until known
+    private final long createdNanos = System.nanoTime();
+    private volatile long bootNanos = -1;
+    private volatile long warmUpNanos = -1;
+    private final LongAdder bootWaitNanos = new LongAdder();
+    private final AtomicLong firstStatementDoneNanos = new AtomicLong(-1);
+    private volatile long firstStatementNanos = -1;
+
+    public StatementMetrics() {
+        for (StatementType type : StatementType.values()) {
+            byType.put(type, new Recorder(type.name()));
+        }
+    }
+
+
+    /**
+     * Records one executed statement.
+     * @param sql The SQL that was executed.
+     * @param nanos How long it took, in nanoseconds.
+     * @param rows The number of rows it affected (0 if unknown, e.g. for queries).
+     * @param error Whether it failed.
+     */
+    public void record(String sql, long nanos, long rows, boolean error) {
+        record(shapeOf(sql), nanos, rows, error);
+    }
+
+
+    /**
+     * Records one executed statement whose shape is already known.
+     * @param shape The statement's shape.
+     * @param nanos How long it took, in nanoseconds.
+     * @param rows The number of rows it affected (0 if unknown, e.g. for queries).
+     * @param error Whether it failed.
+     */
+    public void record(Shape shape, long nanos, long rows, boolean error) {
+        byType.get(shape.type).record(nanos, rows, error);
+        shapeRecorder(shape.text).record(nanos, rows, error);
+        if (firstStatementDoneNanos.get() < 0
+                && firstStatementDoneNanos.compareAndSet(-1, System.nanoTime() - createdNanos)) {
+            firstStatementNanos = nanos;
+        }
+    }
+
+
+    /**
+     * Records how long the database took to boot.
+     * @param bootNanos The time to initialize the data source and open the connection, in nanoseconds.
+     * @param warmUpNanos The time to prepare the warm-up statements afterwards, in nanoseconds.
+     */
+    public void recordBoot(long bootNanos, long warmUpNanos) {
+        this.bootNanos = bootNanos;
+        this.warmUpNanos = warmUpNanos;
+    }
+
+
+    /**
+     * Records time a caller spent waiting for the database to finish booting.
+     * @param nanos The time waited, in nanoseconds.
+     */
+    public void recordBootWait(long nanos) {
+        bootWaitNanos.add(nanos);
+    }
+
+
+    /**
+     * Finds the shape of a SQL string, normalizing it only the first time it is seen.
+     * @param sql The SQL.
+     * @return The shape.
+     */
+    public Shape shapeOf(String sql) {
+        Shape shape = shapesBySql.get(sql);
+        if (shape == null) {
+            shape = Shape.of(sql);
+            if (shapesBySql.size() < MAX_CACHED_SQL) {
+                shapesBySql.putIfAbsent(sql, shape);
+            }
+        }
+        return shape;
+    }
+
+
+    private Recorder shapeRecorder(String shape) {
+        Recorder recorder = byShape.get(shape);
+        if (recorder != null) {
+            return recorder;
+        }
+        if (byShape.size() >= MAX_SHAPES) {
+            shape = OTHER_SHAPES;
+        }
+        return byShape.computeIfAbsent(shape, Recorder::new);
+    }
+
+
+    /**
+     * Finds the type of a statement from its first keyword.
+     * @param sql The SQL.
+     * @return The statement type.
+     */
+    public static StatementType typeOf(String sql) {
+        int start = 0;
+        while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+
+        String keyword = sql.substring(start, end).toUpperCase();
+        for (StatementType type : StatementType.values()) {
+            if (type.name().equals(keyword)) {
+                return type;
+            }
+        }
+        return StatementType.OTHER;
+    }
+
+
+    /**
+     * Normalizes SQL into its shape: string and number literals become '?', whitespace is collapsed,
+     * and everything else is upper-cased.
+     * e.g. "SELECT * FROM Vehicles WHERE Make = 'CHEVY'" becomes "SELECT * FROM VEHICLES WHERE MAKE = ?"
+     * @param sql The SQL.
+     * @return The shape.
+     */
+    public static String normalize(String sql) {
+        return normalize(sql, null);
+    }
+
+
+    /**
+     * Normalizes SQL into its shape, collecting the literals that were replaced, in order.
+     * The shape and literals together identify the statement (e.g. as a cache key).
+     * @param sql The SQL.
+     * @param literals The list to add the literals to (string literals with their quotes), or null.
+     * @return The shape.
+     */
+    public static String normalize(String sql, List<String> literals) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        int i = 0;
+        int length = sql.length();
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                // A string literal, where '' is an escaped quote
+                int start = i;
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                if (literals != null) {
+                    literals.add(sql.substring(start, Math.min(i, length)));
+                }
+                sb.append('?');
+            } else if ((Character.isDigit(c) || (c == '.' && i + 1 < length && Character.isDigit(sql.charAt(i + 1))))
+                    && (sb.length() == 0 || !Character.isLetterOrDigit(sb.charAt(sb.length() - 1)))) {
+                // A number literal (not part of an identifier like col1)
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.'
+                        || ((sql.charAt(i) == '-' || sql.charAt(i) == '+')
+                            && (sql.charAt(i - 1) == 'e' || sql.charAt(i - 1) == 'E')))) {
+                    i++;
+                }
+                if (literals != null) {
+                    literals.add(sql.substring(start, i));
+                }
+                sb.append('?');
+            } else if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+            } else {
+                sb.append(Character.toUpperCase(c));
+                i++;
+            }
+        }
+
+        // Drop a trailing space left by trailing whitespace
+        if (sb.length() > 0 && sb.charAt(sb.length() - 1) == ' ') {
+            sb.setLength(sb.length() - 1);
+        }
+        return sb.toString();
+    }
+
+
+    @Override
+    public long getStatementCount() {
+        long total = 0;
+        for (Recorder recorder : byType.values()) {
+            total += recorder.latency.getCount();
+        }
+        return total;
+    }
+
+
+    @Override
+    public long getErrorCount() {
+        long total = 0;
+        for (Recorder recorder : byType.values()) {
+            total += recorder.errors.sum();
+        }
+        return total;
+    }
+
+
+    @Override
+    public List<Stats> getByType() {
+        List<Stats> stats = new ArrayList<>();
+        for (Recorder recorder : byType.values()) {
+            if (recorder.latency.getCount() > 0) {
+                stats.add(recorder.snapshot());
+            }
+        }
+        return stats;
+    }
+
+
+    @Override
+    public List<Stats> getByShape() {
+        List<Stats> stats = new ArrayList<>();
+        for (Recorder recorder : byShape.values()) {
+            stats.add(recorder.snapshot());
+        }
+        // Most total time first
+        stats.sort((a, b) -> Double.compare(b.getTotalMillis(), a.getTotalMillis()));
+        return stats;
+    }
+
+
+    @Override
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder("Statement metrics (latencies in microseconds):");
+        for (Stats stats : getByType()) {
+            sb.append(System.lineSeparator()).append("   ").append(stats);
+        }
+        if (getStatementCount() == 0) {
+            sb.append(" no statements executed");
+        }
+        if (bootNanos >= 0) {
+            sb.append(System.lineSeparator()).append(String.format(
+                    "   Startup: boot %.1f ms, warm-up %.1f ms, callers waited %.1f ms for it", getBootMillis(),
+                    getWarmUpMillis(), getBootWaitMillis()));
+            if (firstStatementNanos >= 0) {
+                sb.append(String.format(", first statement done %.1f ms after start (took %.1f ms)",
+                        getFirstStatementDoneMillis(), getFirstStatementMillis()));
+            }
+        }
+        return sb.toString();
+    }
+
+
+    @Override
+    public double getBootMillis() {
+        return millis(bootNanos);
+    }
+
+
+    @Override
+    public double getWarmUpMillis() {
+        return millis(warmUpNanos);
+    }
+
+
+    @Override
+    public double getBootWaitMillis() {
+        return bootWaitNanos.sum() / 1e6;
+    }
+
+
+    @Override
+    public double getFirstStatementDoneMillis() {
+        return millis(firstStatementDoneNanos.get());
+    }
+
+
+    @Override
+    public double getFirstStatementMillis() {
+        return millis(firstStatementNanos);
+    }
+
+
+    private static double millis(long nanos) {
+        return nanos < 0 ? -1 : nanos / 1e6;
+    }
+
+
+    @Override
+    public void reset() {
+        for (Recorder recorder : byType.values()) {
+            recorder.reset();
+        }
+        byShape.clear();
+    }
+
+
+    /**
+     * Registers these metrics with the platform MBean server, under Database:type=StatementMetrics.
+     */
+    public synchronized void register() {
+        if (objectName != null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("Database:type=StatementMetrics,name=database" + INSTANCES.incrementAndGet());
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (JMException e) {
+            System.out.println("Error registering statement metrics with JMX: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Removes these metrics from the platform MBean server.
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            System.out.println("Error unregistering statement metrics from JMX: " + e.getMessage());
+        }
+        objectName = null;
+    }
+
+
+    /**
+     * The type and normalized shape of a statement, worked out once so it can be recorded again without parsing
+     * (e.g. kept in a constant for a fixed statement).
+     */
+    public static final class Shape {
+        private final StatementType type;
+        private final String text;
+
+        private Shape(StatementType type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+
+        /**
+         * @param sql The SQL.
+         * @return Its type and shape.
+         */
+        public static Shape of(String sql) {
+            return new Shape(typeOf(sql), normalize(sql));
+        }
+
+        /**
+         * @param type The statement type.
+         * @param shape The shape, used as it is: SQL without literals, e.g. with '?' parameters, or a label.
+         * @return The shape.
+         */
+        public static Shape of(StatementType type, String shape) {
+            return new Shape(type, shape);
+        }
+
+        public StatementType getType() {
+            return type;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+
+    /**
+     * The statistics for one statement type or shape.
+     */
+    private static class Recorder {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        Recorder(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, long rowCount, boolean error) {
+            latency.record(nanos);
+            if (rowCount > 0) {
+                rows.add(rowCount);
+            }
+            if (error) {
+                errors.increment();
+            }
+        }
+
+        void reset() {
+            latency.reset();
+            rows.reset();
+            errors.reset();
+        }
+
+        Stats snapshot() {
+            return new Stats(name, latency.getCount(), errors.sum(), rows.sum(),
+                    latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0,
+                    latency.getPercentile(99.9) / 1000.0, latency.getMax() / 1000.0,
+                    latency.getTotalNanos() / 1_000_000.0);
+        }
+    }
+
+
+    /**
+     * A snapshot of the statistics for one statement type or shape. Latencies are in microseconds.
+     */
+    public static class Stats {
+        private final String name;
+        private final long count;
+        private final long errors;
+        private final long rows;
+        private final double p50Micros;
+        private final double p99Micros;
+        private final double p999Micros;
+        private final double maxMicros;
+        private final double totalMillis;
+
+        @ConstructorProperties({ "name", "count", "errors", "rows", "p50Micros", "p99Micros", "p999Micros",
+                "maxMicros", "totalMillis" })
+        public Stats(String name, long count, long errors, long rows, double p50Micros, double p99Micros,
+                double p999Micros, double maxMicros, double totalMillis) {
+            this.name = name;
+            this.count = count;
+            this.errors = errors;
+            this.rows = rows;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.p999Micros = p999Micros;
+            this.maxMicros = maxMicros;
+            this.totalMillis = totalMillis;
+        }
+
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public long getErrors() { return errors; }
+        public long getRows() { return rows; }
+        public double getP50Micros() { return p50Micros; }
+        public double getP99Micros() { return p99Micros; }
+        public double getP999Micros() { return p999Micros; }
+        public double getMaxMicros() { return maxMicros; }
+        public double getTotalMillis() { return totalMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: count=%d errors=%d rows=%d p50=%.1f p99=%.1f p999=%.1f max=%.1f",
+                    name, count, errors, rows, p50Micros, p99Micros, p999Micros, maxMicros);
+        }
+    }
+}
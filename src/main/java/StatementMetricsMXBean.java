@@ -0,0 +1,66 @@
+import java.util.List;
+
+
+/**
+ * StatementMetricsMXBean.java
+ * The JMX view of a Database's StatementMetrics (e.g. in JConsole, under "Database").
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public interface StatementMetricsMXBean {
+    /**
+     * @return The number of statements executed.
+     */
+    long getStatementCount();
+
+    /**
+     * @return The number of statements that failed.
+     */
+    long getErrorCount();
+
+    /**
+     * @return Latency and row statistics for each statement type (SELECT, INSERT, ...).
+     */
+    List<StatementMetrics.Stats> getByType();
+
+    /**
+     * @return Latency and row statistics for each normalized SQL shape.
+     */
+    List<StatementMetrics.Stats> getByShape();
+
+    /**
+     * @return A readable summary of the statistics by type.
+     */
+    String getSummary();
+
+    /**
+     * @return How long Derby took to boot, in milliseconds (-1 while it is booting).
+     */
+    double getBootMillis();
+
+    /**
+     * @return How long preparing the warm-up statements took after the boot, in milliseconds (-1 while booting).
+     */
+    double getWarmUpMillis();
+
+    /**
+     * @return How long callers spent waiting for the boot to finish, in milliseconds.
+     */
+    double getBootWaitMillis();
+
+    /**
+     * @return When the first statement finished, in milliseconds after the Database was created (-1 until then).
+     */
+    double getFirstStatementDoneMillis();
+
+    /**
+     * @return How long the first statement took, in milliseconds (-1 until it has run).
+     */
+    double getFirstStatementMillis();
+
+    /**
+     * Clears every statistic except the startup ones.
+     */
+    void reset();
+}
@@ -0,0 +1,287 @@
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+
+/**
+ * StorageProfile.java
+ * How the embedded Derby database stores its data, chosen per job in the property file,
+ * trading durability for throughput.
+ *
+ * Profiles (storage.profile):
+ * - durable (default): Derby's defaults. Every commit is synced to disk.
+ * - bulk-load: commits aren't synced (derby.system.durability=test), with a larger page cache, pages and log buffer.
+ *   Much faster for big loads, but a crash can lose or corrupt the database, so take a snapshot once the load is done.
+ * - in-memory: the database lives in memory (a jdbc:derby:memory: URL) with a larger page cache and pages,
+ *   and is gone when the program ends unless it's snapshotted.
+ *
+ * Any of the profile's settings can be overridden (Derby's defaults in parentheses):
+ *   storage.pageCacheSize in pages (1000), storage.pageSize in bytes, 4096/8192/16384/32768 (4096),
+ *   storage.logBufferSize in bytes (32768), storage.durability, "test" or "full" (full)
+ *
+ * Snapshots (any profile):
+ *   storage.snapshotDirectory: where Database.snapshot and snapshots on close (storage.snapshotOnClose=true) go,
+ *   through SYSCS_UTIL.SYSCS_BACKUP_DATABASE.
+ *   storage.restoreFrom: a snapshot (the database's folder inside a snapshot directory) to create the database
+ *   from when it doesn't exist yet, e.g. to start an in-memory database where the last run left off.
+ *
+ * The settings are Derby system properties, so they are applied before the first connection boots Derby,
+ * and apply to every database in the program. The page size only applies to tables created afterwards.
+ * Applying a profile clears the settings it leaves at Derby's defaults, so they don't carry over from another profile.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class StorageProfile {
+    public enum Kind { DURABLE, BULK_LOAD, IN_MEMORY }
+
+    private static final String MEMORY_PREFIX = "jdbc:derby:memory:";
+    private static final String EMBEDDED_PREFIX = "jdbc:derby:";
+
+    private final Kind kind;
+    private final Integer pageCacheSize;
+    private final Integer pageSize;
+    private final Integer logBufferSize;
+    private final String durability;
+    private final String snapshotDirectory;
+    private final boolean snapshotOnClose;
+    private final String restoreFrom;
+
+    private StorageProfile(Kind kind, Integer pageCacheSize, Integer pageSize, Integer logBufferSize, String durability,
+            String snapshotDirectory, boolean snapshotOnClose, String restoreFrom) {
+        this.kind = kind;
+        this.pageCacheSize = pageCacheSize;
+        this.pageSize = pageSize;
+        this.logBufferSize = logBufferSize;
+        this.durability = durability;
+        this.snapshotDirectory = snapshotDirectory;
+        this.snapshotOnClose = snapshotOnClose;
+        this.restoreFrom = restoreFrom;
+    }
+
+
+    /**
+     * Reads the storage.* entries of a property file.
+     * @param props The properties.
+     * @return The profile, durable with Derby's defaults if there are no storage entries.
+     */
+    public static StorageProfile fromProperties(Properties props) {
+        String name = props.getProperty("storage.profile", "durable").trim();
+        Kind kind;
+        try {
+            kind = Kind.valueOf(name.toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown storage.profile: " + name + " (use durable, bulk-load or in-memory)");
+        }
+
+        // The profile's settings, before overrides
+        Integer pageCacheSize = null;
+        Integer pageSize = null;
+        Integer logBufferSize = null;
+        String durability = null;
+        if (kind == Kind.BULK_LOAD) {
+            pageCacheSize = 20000;
+            pageSize = 32768;
+            logBufferSize = 1024 * 1024;
+            durability = "test";
+        } else if (kind == Kind.IN_MEMORY) {
+            pageCacheSize = 20000;
+            pageSize = 32768;
+        }
+
+        pageCacheSize = intProperty(props, "storage.pageCacheSize", pageCacheSize);
+        pageSize = intProperty(props, "storage.pageSize", pageSize);
+        logBufferSize = intProperty(props, "storage.logBufferSize", logBufferSize);
+        durability = props.getProperty("storage.durability", durability);
+
+        if (pageSize != null && pageSize != 4096 && pageSize != 8192 && pageSize != 16384 && pageSize != 32768) {
+            throw new IllegalArgumentException("storage.pageSize must be 4096, 8192, 16384 or 32768: " + pageSize);
+        }
+        if (durability != null) {
+            durability = durability.trim().toLowerCase();
+            if (!durability.equals("test") && !durability.equals("full")) {
+                throw new IllegalArgumentException("storage.durability must be test or full: " + durability);
+            }
+        }
+
+        String snapshotDirectory = trimmed(props.getProperty("storage.snapshotDirectory"));
+        String restoreFrom = trimmed(props.getProperty("storage.restoreFrom"));
+        boolean snapshotOnClose = Boolean.parseBoolean(props.getProperty("storage.snapshotOnClose", "false").trim());
+        if (snapshotOnClose && snapshotDirectory == null) {
+            throw new IllegalArgumentException("storage.snapshotOnClose needs a storage.snapshotDirectory");
+        }
+        return new StorageProfile(kind, pageCacheSize, pageSize, logBufferSize, durability,
+                snapshotDirectory, snapshotOnClose, restoreFrom);
+    }
+
+
+    private static String trimmed(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+
+    private static Integer intProperty(Properties props, String key, Integer defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        int parsed = Integer.parseInt(value.trim());
+        if (parsed < 1) {
+            throw new IllegalArgumentException(key + " must be positive: " + parsed);
+        }
+        return parsed;
+    }
+
+
+    /**
+     * Sets the Derby system properties of the profile, and clears the ones it doesn't set.
+     * Must be called before Derby boots to take effect; if Derby is already running and the settings change,
+     * a warning is printed.
+     */
+    public void applySystemProperties() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("derby.storage.pageCacheSize", Objects.toString(pageCacheSize, null));
+        settings.put("derby.storage.pageSize", Objects.toString(pageSize, null));
+        settings.put("derby.storage.logBufferSize", Objects.toString(logBufferSize, null));
+        // Full durability is Derby's default, which it only uses when the property isn't set
+        settings.put("derby.system.durability", "test".equals(durability) ? durability : null);
+
+        boolean changed = false;
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            if (Objects.equals(System.getProperty(setting.getKey()), setting.getValue())) {
+                continue;
+            }
+            changed = true;
+            if (setting.getValue() == null) {
+                System.clearProperty(setting.getKey());
+            } else {
+                System.setProperty(setting.getKey(), setting.getValue());
+            }
+        }
+        if (changed && isDerbyRunning()) {
+            System.out.println("Derby is already running, so the " + this
+                    + " storage settings may not take effect until it is shut down");
+        }
+    }
+
+
+    /**
+     * Checks whether the embedded Derby engine has booted, by the management bean it registers while it runs.
+     */
+    private static boolean isDerbyRunning() {
+        try {
+            return !ManagementFactory.getPlatformMBeanServer()
+                    .queryNames(new ObjectName("org.apache.derby:type=JDBC,*"), null).isEmpty();
+        } catch (JMException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Adjusts an embedded Derby URL for the profile: in memory for the in-memory profile,
+     * and created from the restoreFrom snapshot if there is one.
+     * Other URLs (e.g. the network client's) are returned as they are.
+     * @param url The URL from the property file, e.g. jdbc:derby:myDB;create=true.
+     * @return The URL to connect with.
+     */
+    public String applyTo(String url) {
+        if (!isEmbedded(url)) {
+            return url;
+        }
+
+        url = applyKind(url);
+        if (restoreFrom != null) {
+            if (!new File(restoreFrom).isDirectory()) {
+                System.out.println("No snapshot at " + restoreFrom + ", so the database is not restored");
+            } else if (kind == Kind.IN_MEMORY || !new File(getDatabaseName(url)).exists()) {
+                // Derby doesn't allow create=true alongside createFrom
+                url = url.replaceAll("(?i);create=true", "") + ";createFrom=" + new File(restoreFrom).getAbsolutePath();
+            }
+        }
+        return url;
+    }
+
+
+    /**
+     * Adjusts an embedded Derby URL for the profile's kind only, moving it into memory for the in-memory profile,
+     * without restoring it from a snapshot (e.g. for ShardedDatabase's shards, which a single snapshot can't fill).
+     * @param url The URL from the property file.
+     * @return The URL to connect with.
+     */
+    public String applyKind(String url) {
+        if (isEmbedded(url) && kind == Kind.IN_MEMORY && !url.startsWith(MEMORY_PREFIX)) {
+            return MEMORY_PREFIX + url.substring(EMBEDDED_PREFIX.length());
+        }
+        return url;
+    }
+
+
+    private static boolean isEmbedded(String url) {
+        return url != null && url.startsWith(EMBEDDED_PREFIX) && !url.startsWith("jdbc:derby://");
+    }
+
+
+    /**
+     * @param url An embedded Derby URL.
+     * @return The database's name (its folder for on-disk databases), e.g. myDB for jdbc:derby:memory:myDB;create=true.
+     */
+    static String getDatabaseName(String url) {
+        String name = url.startsWith(MEMORY_PREFIX) ? url.substring(MEMORY_PREFIX.length())
+                : url.substring(EMBEDDED_PREFIX.length());
+        int attributes = name.indexOf(';');
+        return attributes < 0 ? name : name.substring(0, attributes);
+    }
+
+
+    public Kind getKind() {
+        return kind;
+    }
+
+
+    /**
+     * @return The directory snapshots go to, or null if none is set.
+     */
+    public String getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+
+
+    /**
+     * @return Whether the database is snapshotted when the Database is closed.
+     */
+    public boolean isSnapshotOnClose() {
+        return snapshotOnClose;
+    }
+
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(kind.name().toLowerCase().replace('_', '-'));
+        if (pageCacheSize != null) {
+            sb.append(", page cache ").append(pageCacheSize).append(" pages");
+        }
+        if (pageSize != null) {
+            sb.append(", pages of ").append(pageSize).append(" bytes");
+        }
+        if (logBufferSize != null) {
+            sb.append(", log buffer ").append(logBufferSize).append(" bytes");
+        }
+        if (durability != null) {
+            sb.append(", durability ").append(durability);
+        }
+        if (snapshotDirectory != null) {
+            sb.append(", snapshots to ").append(snapshotDirectory).append(snapshotOnClose ? " on close" : "");
+        }
+        if (restoreFrom != null) {
+            sb.append(", restored from ").append(restoreFrom);
+        }
+        return sb.toString();
+    }
+}
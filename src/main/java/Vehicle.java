@@ -6,18 +6,40 @@
  * Author: Elijah Reyna
  * Date: 09/20/2025
  */
+@FieldOrder({"make", "size", "weight", "engineSize"})
 public class Vehicle {
     public enum Make { CHEVY, FORD, TOYOTA, NISSAN, HYUNDAI }
-    public enum Size { COMPACT, INTERMEDIATE, FULL_SIZE }
+    public enum Size {
+        COMPACT(1500, 2000), INTERMEDIATE(2000, 2500), FULL_SIZE(2500, 4500);
 
+        private final int minWeight;
+        private final int maxWeight;
+
+        Size(int minWeight, int maxWeight) {
+            this.minWeight = minWeight;
+            this.maxWeight = maxWeight;
+        }
+
+        // The lowest weight of a random vehicle of this size
+        public int getMinWeight() {
+            return minWeight;
+        }
+
+        // The highest weight of a random vehicle of this size (exclusive)
+        public int getMaxWeight() {
+            return maxWeight;
+        }
+    }
+
+    @Indexed
+    @ShardKey
     public Make make;
     public Size size;
     public double weight;
     public double engineSize;
 
-    // Default constructor creates a random vehicle
+    // Default constructor, used when loading vehicles through reflection
     public Vehicle(){
-        VehicleFactory.createRandomVehicle();
     }
 
     // Parameterized constructor
@@ -27,4 +49,9 @@ public class Vehicle {
         this.weight = weight;
         this.engineSize = engineSize;
     }
+
+    @Override
+    public String toString() {
+        return make + " " + size + " " + weight + " " + engineSize;
+    }
 }
@@ -1,3 +1,5 @@
+import java.util.concurrent.ThreadLocalRandom;
+
 
 
 /**
@@ -8,6 +10,8 @@
  * - Provides a method to create a random vehicle with random make, size, weight, and engine size.
  * - Provides a method to create a vehicle with specified make, size, weight, and engine size.
  * 
+ * For generating large numbers of vehicles on several threads, see VehicleGenerator.
+ * 
  * Author: Elijah Reyna
  * Date: 09/20/2025
  */
@@ -17,41 +21,22 @@ public interface VehicleFactory {
      * @return A Vehicle object with random make, size, weight, and engine size.
      */
     public static Vehicle createRandomVehicle(){
-        // Select a random make
-        String[] makes = {"CHEVY", "FORD", "TOYOTA", "NISSAN", "HYUNDAI"};
-        String make = makes[(int)(Math.random() * makes.length)];
-
-        // Select a random size
-        String[] sizes = {"COMPACT", "INTERMEDIATE", "FULL_SIZE"};
-        String size = sizes[(int)(Math.random() * sizes.length)];
+        // ThreadLocalRandom instead of Math.random, which every thread shares
+        ThreadLocalRandom random = ThreadLocalRandom.current();
 
-        // Generate random weight and engine size based on size
-        int lowerWeight;
-        int upperWeight;
-        switch(size){
-            case "COMPACT":
-                lowerWeight = 1500;
-                upperWeight = 2000;
-                break;
-            case "INTERMEDIATE":
-                lowerWeight = 2000;
-                upperWeight = 2500;
-                break;
-            case "FULL_SIZE":
-                lowerWeight = 2500;
-                upperWeight = 4500;
-                break;
-            default:
-                lowerWeight = 1500;
-                upperWeight = 4500;
-        }
+        // Select a random make and size by ordinal
+        Vehicle.Make[] makes = Vehicle.Make.values();
+        Vehicle.Size[] sizes = Vehicle.Size.values();
+        Vehicle.Make make = makes[random.nextInt(makes.length)];
+        Vehicle.Size size = sizes[random.nextInt(sizes.length)];
 
-        double weight = lowerWeight + Math.random() * (upperWeight - lowerWeight);
+        // Generate random weight in the size's range
+        double weight = random.nextDouble(size.getMinWeight(), size.getMaxWeight());
 
         // Generate random engine size between 100 and 200
-        double engineSize = 100 + Math.random() * 100;
+        double engineSize = random.nextDouble(100, 200);
 
-        return createVehicle(make, size, weight, engineSize);
+        return new Vehicle(make, size, weight, engineSize);
     }
 
     /**
@@ -0,0 +1,262 @@
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+
+/**
+ * VehicleGenerator.java
+ * Generates large numbers of random vehicles for capacity testing, on as many threads as the stream is given.
+ *
+ * Functionality:
+ * - Generates the vehicles as a stream, which can be made parallel, or saves or inserts them directly.
+ * - Saving generates several chunks at once but writes them in order, so the file is the same for the same seed.
+ * - Seedable: the same seed and settings always give the same vehicles in the same order,
+ *   no matter how many threads generate them.
+ * - Picks makes and sizes by enum ordinal, without any strings.
+ * - Each Size has its own share of the vehicles, weight range and engine size range
+ *   (by default the size's own weight range, and 100-200, like VehicleFactory.createRandomVehicle).
+ *
+ * The rows are generated in chunks. Each chunk gets its own SplittableRandom seeded from the seed and the
+ * chunk's number, so chunks can be generated on different threads without sharing a generator.
+ *
+ * @author Elijah Reyna
+ * Last Edited 10/18/26
+ */
+public class VehicleGenerator {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final Vehicle.Make[] MAKES = Vehicle.Make.values();
+    private static final Vehicle.Size[] SIZES = Vehicle.Size.values();
+
+    private final long seed;
+    private final double[] shares = new double[SIZES.length];
+    private final double[] minWeights = new double[SIZES.length];
+    private final double[] maxWeights = new double[SIZES.length];
+    private final double[] minEngineSizes = new double[SIZES.length];
+    private final double[] maxEngineSizes = new double[SIZES.length];
+
+    /**
+     * Creates a generator with a random seed.
+     */
+    public VehicleGenerator() {
+        this(new SplittableRandom().nextLong());
+    }
+
+
+    /**
+     * Creates a generator whose vehicles are always the same for the same seed and settings.
+     * @param seed The seed.
+     */
+    public VehicleGenerator(long seed) {
+        this.seed = seed;
+        for (Vehicle.Size size : SIZES) {
+            setSizeDistribution(size, 1, size.getMinWeight(), size.getMaxWeight(), 100, 200);
+        }
+    }
+
+
+    /**
+     * Sets how often a size is generated and the ranges of its vehicles' weights and engine sizes.
+     * @param size The size.
+     * @param share Its share of the vehicles, relative to the other sizes' shares (e.g. 2 is twice as common as 1).
+     *              0 stops it from being generated.
+     * @param minWeight The lowest weight.
+     * @param maxWeight The highest weight (exclusive).
+     * @param minEngineSize The lowest engine size.
+     * @param maxEngineSize The highest engine size (exclusive).
+     * @return This generator.
+     */
+    public synchronized VehicleGenerator setSizeDistribution(Vehicle.Size size, double share, double minWeight,
+            double maxWeight, double minEngineSize, double maxEngineSize) {
+        if (!(share >= 0) || Double.isInfinite(share)) {
+            throw new IllegalArgumentException("Invalid share for " + size + ": " + share);
+        }
+        if (!(minWeight <= maxWeight) || !(minEngineSize <= maxEngineSize)) {
+            throw new IllegalArgumentException("Invalid ranges for " + size + ": weight " + minWeight + "-" + maxWeight
+                    + ", engine size " + minEngineSize + "-" + maxEngineSize);
+        }
+        int i = size.ordinal();
+        shares[i] = share;
+        minWeights[i] = minWeight;
+        maxWeights[i] = maxWeight;
+        minEngineSizes[i] = minEngineSize;
+        maxEngineSizes[i] = maxEngineSize;
+        return this;
+    }
+
+
+    /**
+     * @return The seed, to generate the same vehicles again.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+
+    /**
+     * Streams a number of vehicles. The stream is sequential; make it parallel to generate on several threads.
+     * Changing the size distributions doesn't affect a stream that was already created.
+     * @param count The number of vehicles.
+     * @return The vehicles, in the same order for the same seed and settings.
+     */
+    public Stream<Vehicle> stream(long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count can't be negative: " + count);
+        }
+        Settings settings = snapshot();
+        return LongStream.range(0, chunkCount(count)).boxed().flatMap(chunk -> {
+            SplittableRandom random = chunkRandom(chunk);
+            return IntStream.range(0, chunkRows(chunk, count)).mapToObj(row -> settings.next(random));
+        });
+    }
+
+
+    /**
+     * Generates vehicles and saves them to a file through ClassSaver
+     * (as CSV, or binary or compressed CSV by the file's extension), in the same order as stream.
+     * A few chunks are generated at once on other threads while the finished ones are written in turn.
+     * @param filePath The file, which is replaced if it exists.
+     * @param count The number of vehicles.
+     * @return The number of vehicles saved.
+     * @throws IOException If the file could not be written.
+     */
+    public long saveTo(String filePath, long count) throws IOException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count can't be negative: " + count);
+        }
+        Settings settings = snapshot();
+        long chunks = chunkCount(count);
+        // Enough chunks ahead to keep every core generating, without holding the whole file in memory
+        int ahead = Runtime.getRuntime().availableProcessors() + 1;
+        Deque<CompletableFuture<Vehicle[]>> generating = new ArrayDeque<>();
+
+        long saved = 0;
+        try (ClassSaver<Vehicle> saver = new ClassSaver<>(filePath, Vehicle.class)) {
+            long next = 0;
+            while (next < chunks || !generating.isEmpty()) {
+                while (next < chunks && generating.size() < ahead) {
+                    long chunk = next++;
+                    generating.add(CompletableFuture.supplyAsync(() -> generateChunk(settings, chunk, count)));
+                }
+                saved += saver.saveAll(Arrays.asList(generating.poll().join()));
+            }
+        }
+        return saved;
+    }
+
+
+    private Vehicle[] generateChunk(Settings settings, long chunk, long count) {
+        SplittableRandom random = chunkRandom(chunk);
+        Vehicle[] vehicles = new Vehicle[chunkRows(chunk, count)];
+        for (int i = 0; i < vehicles.length; i++) {
+            vehicles[i] = settings.next(random);
+        }
+        return vehicles;
+    }
+
+
+    private static long chunkCount(long count) {
+        return (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+
+    private static int chunkRows(long chunk, long count) {
+        return (int) Math.min(CHUNK_SIZE, count - chunk * CHUNK_SIZE);
+    }
+
+
+    private SplittableRandom chunkRandom(long chunk) {
+        return new SplittableRandom(mix(seed + chunk * 0x9E3779B97F4A7C15L));
+    }
+
+
+    /**
+     * Generates vehicles in parallel and inserts them into the Vehicles table in batches as they are generated.
+     * @param database The database.
+     * @param count The number of vehicles.
+     * @return The number of vehicles inserted, or 0 if there was an issue inserting them.
+     */
+    public long insertInto(Database database, long count) {
+        return database.insertAll(stream(count).parallel(), Vehicle.class);
+    }
+
+
+    private synchronized Settings snapshot() {
+        double total = 0;
+        for (double share : shares) {
+            total += share;
+        }
+        if (total <= 0) {
+            throw new IllegalStateException("Every size has a share of 0");
+        }
+
+        double[] cumulative = new double[SIZES.length];
+        double sum = 0;
+        for (int i = 0; i < SIZES.length; i++) {
+            sum += shares[i] / total;
+            cumulative[i] = sum;
+        }
+        // Rounding can leave the total just under 1, so the last size that is generated takes whatever is left
+        int last = SIZES.length - 1;
+        while (shares[last] == 0) {
+            last--;
+        }
+        cumulative[last] = Double.POSITIVE_INFINITY;
+        return new Settings(cumulative, minWeights.clone(), maxWeights.clone(),
+                minEngineSizes.clone(), maxEngineSizes.clone());
+    }
+
+
+    /**
+     * Scrambles a seed (the finalizer of the SplitMix64 generator), so neighboring chunks get unrelated seeds.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+
+    /**
+     * The distributions a stream generates from, copied so later changes don't affect it.
+     */
+    private static class Settings {
+        final double[] cumulativeShares;
+        final double[] minWeights;
+        final double[] weightRanges;
+        final double[] minEngineSizes;
+        final double[] engineSizeRanges;
+
+        Settings(double[] cumulativeShares, double[] minWeights, double[] maxWeights,
+                double[] minEngineSizes, double[] maxEngineSizes) {
+            this.cumulativeShares = cumulativeShares;
+            this.minWeights = minWeights;
+            this.minEngineSizes = minEngineSizes;
+            this.weightRanges = new double[minWeights.length];
+            this.engineSizeRanges = new double[minWeights.length];
+            for (int i = 0; i < minWeights.length; i++) {
+                weightRanges[i] = maxWeights[i] - minWeights[i];
+                engineSizeRanges[i] = maxEngineSizes[i] - minEngineSizes[i];
+            }
+        }
+
+        Vehicle next(SplittableRandom random) {
+            Vehicle.Make make = MAKES[random.nextInt(MAKES.length)];
+
+            double pick = random.nextDouble();
+            int size = 0;
+            while (pick >= cumulativeShares[size]) {
+                size++;
+            }
+
+            double weight = minWeights[size] + random.nextDouble() * weightRanges[size];
+            double engineSize = minEngineSizes[size] + random.nextDouble() * engineSizeRanges[size];
+            return new Vehicle(make, SIZES[size], weight, engineSize);
+        }
+    }
+}